@@ -1,5 +1,6 @@
 import Neuranet.Matrix2D;
 import Neuranet.Matrix3D;
+import Neuranet.NeuralNetwork.Evaluation;
 import Neuranet.NeuralNetwork.NeuralNetwork;
 import Neuranet.CNN.ConvolutionalNeuralNetwork;
 import Neuranet.CNN.Pooling;
@@ -8,6 +9,8 @@ import Neuranet.Activation;
 import Neuranet.Dataset;
 import Neuranet.DatasetParser;
 import Neuranet.ImageData;
+import Neuranet.Loss;
+import Neuranet.Optimizer;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -43,8 +46,10 @@ public class Driver {
             //print(datasets[index].getInput());
         }
 
+        net.setLoss(Loss.SOFTMAX_CROSS_ENTROPY);
         print("Average loss: " + net.getAverageLoss( datasets ));
-        net.learn(datasets, 1500, 10, 1.0);
+        net.setOptimizer(Optimizer.adam());
+        net.learn(datasets, 50, 10, 0.02);
         print("Average loss after learning: " + net.getAverageLoss(datasets));
 
         try {
@@ -53,21 +58,19 @@ public class Driver {
             print(fnfe.getMessage());
         }
 
-        int correct = 0;
-        for (Dataset dataset : datasets) {
-            Dataset exDataset = dataset;
-            int guess = Matrix2D.getIndexOfMax(net.compute(exDataset.getInput())).x;
+        Evaluation evaluation = net.evaluate(datasets);
+        for (int index = 0; index < datasets.length; index += 1) {
+            Dataset exDataset = datasets[index];
             int answer = Matrix2D.getIndexOfMax(exDataset.getExpectedOutput()).x;
-            if (guess == answer) {
-                correct += 1;
-            } else {
+            if (evaluation.getPrediction(index) != answer) {
                 print("\nInput:" + exDataset.getInput());
-                print("Output:" + net.compute(exDataset.getInput()));
+                print("Predicted class: " + evaluation.getPrediction(index));
                 print("Expected Output:" + exDataset.getExpectedOutput());
             }
         }
 
-        print("Accuracy: " + (100 * correct / datasets.length) + "%");
+        print("Accuracy: " + (100 * evaluation.getCorrectCount() / evaluation.getSampleCount()) + "%");
+        print(evaluation);
 
         print(net);
 
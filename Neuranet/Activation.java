@@ -3,11 +3,331 @@ package Neuranet;
 /**
  * Enum that represents the type of activation
  * function that the neural network will use.
+ *
+ * Each type carries its own kernels, which activate or differentiate a
+ * whole run of entries at once, so the callers pick the function once
+ * per matrix rather than once per entry. Adding a type means adding a
+ * constant here; Network, MatrixExpression and the networks need no
+ * changes.
  * @author Nolan Bridges
  * @version 1.0.0
  */
 public enum Activation {
-    SIGMOID,
-    RELU,
-    RELU_NORMALIZED
+    /** 1 / (1 + e^-z). */
+    SIGMOID {
+        @Override
+        void activate(double[] z, int zOffset, double[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.sigmoid(z, zOffset, out, outOffset, rows * columns);
+        }
+
+        @Override
+        void derivative(double[] z, int zOffset, double[] a, int aOffset, double[] out, int outOffset, int length) {
+            ElementwiseKernels.INSTANCE.sigmoidOutputDerivative(a, aOffset, out, outOffset, length);
+        }
+
+        @Override
+        void activate(float[] z, int zOffset, float[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.sigmoid(z, zOffset, out, outOffset, rows * columns);
+        }
+
+        @Override
+        void derivative(float[] z, int zOffset, float[] a, int aOffset, float[] out, int outOffset, int length) {
+            ElementwiseKernels.INSTANCE.sigmoidOutputDerivative(a, aOffset, out, outOffset, length);
+        }
+    },
+    /**
+     * SIGMOID interpolated from a table instead of computed with
+     * Math.exp, within 1.2e-5 of the exact value everywhere. The
+     * derivative is the exact one of its output, a * (1 - a). With the
+     * Vector API the exact vector kernel, which is as fast, is used.
+     */
+    FAST_SIGMOID {
+        @Override
+        void activate(double[] z, int zOffset, double[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.fastSigmoid(z, zOffset, out, outOffset, rows * columns);
+        }
+
+        @Override
+        void derivative(double[] z, int zOffset, double[] a, int aOffset, double[] out, int outOffset, int length) {
+            ElementwiseKernels.INSTANCE.sigmoidOutputDerivative(a, aOffset, out, outOffset, length);
+        }
+
+        @Override
+        void activate(float[] z, int zOffset, float[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.fastSigmoid(z, zOffset, out, outOffset, rows * columns);
+        }
+
+        @Override
+        void derivative(float[] z, int zOffset, float[] a, int aOffset, float[] out, int outOffset, int length) {
+            ElementwiseKernels.INSTANCE.sigmoidOutputDerivative(a, aOffset, out, outOffset, length);
+        }
+    },
+    /** max(0, z). */
+    RELU {
+        @Override
+        void activate(double[] z, int zOffset, double[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.reLU(z, zOffset, out, outOffset, rows * columns);
+        }
+
+        @Override
+        void derivative(double[] z, int zOffset, double[] a, int aOffset, double[] out, int outOffset, int length) {
+            ElementwiseKernels.INSTANCE.reLUDerivative(a, aOffset, out, outOffset, length);
+        }
+
+        @Override
+        void activate(float[] z, int zOffset, float[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.reLU(z, zOffset, out, outOffset, rows * columns);
+        }
+
+        @Override
+        void derivative(float[] z, int zOffset, float[] a, int aOffset, float[] out, int outOffset, int length) {
+            ElementwiseKernels.INSTANCE.reLUDerivative(a, aOffset, out, outOffset, length);
+        }
+    },
+    /**
+     * max(0, z) divided by the largest entry of its column (at least
+     * 0.0001), so each column (input set) of a 2D matrix is normalized
+     * on its own, as SOFTMAX is; a 3D matrix is treated as one set. The
+     * derivative is that of RELU, ignoring the division.
+     */
+    RELU_NORMALIZED {
+        @Override
+        void activate(double[] z, int zOffset, double[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.normalizedReLU(z, zOffset, out, outOffset, rows, columns);
+        }
+
+        @Override
+        void derivative(double[] z, int zOffset, double[] a, int aOffset, double[] out, int outOffset, int length) {
+            ElementwiseKernels.INSTANCE.reLUDerivative(a, aOffset, out, outOffset, length);
+        }
+
+        @Override
+        void activate(float[] z, int zOffset, float[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.normalizedReLU(z, zOffset, out, outOffset, rows, columns);
+        }
+
+        @Override
+        void derivative(float[] z, int zOffset, float[] a, int aOffset, float[] out, int outOffset, int length) {
+            ElementwiseKernels.INSTANCE.reLUDerivative(a, aOffset, out, outOffset, length);
+        }
+
+        @Override
+        boolean isElementwise() {
+            return false;
+        }
+    },
+    /** The hyperbolic tangent of z. */
+    TANH {
+        @Override
+        void activate(double[] z, int zOffset, double[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.tanh(z, zOffset, out, outOffset, rows * columns);
+        }
+
+        @Override
+        void derivative(double[] z, int zOffset, double[] a, int aOffset, double[] out, int outOffset, int length) {
+            ElementwiseKernels.INSTANCE.tanhOutputDerivative(a, aOffset, out, outOffset, length);
+        }
+
+        @Override
+        void activate(float[] z, int zOffset, float[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.tanh(z, zOffset, out, outOffset, rows * columns);
+        }
+
+        @Override
+        void derivative(float[] z, int zOffset, float[] a, int aOffset, float[] out, int outOffset, int length) {
+            ElementwiseKernels.INSTANCE.tanhOutputDerivative(a, aOffset, out, outOffset, length);
+        }
+    },
+    /**
+     * TANH interpolated from the table of FAST_SIGMOID instead of
+     * computed with Math.tanh, within 2.4e-5 of the exact value
+     * everywhere. The derivative is the exact one of its output, 1 - a^2.
+     */
+    FAST_TANH {
+        @Override
+        void activate(double[] z, int zOffset, double[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.fastTanh(z, zOffset, out, outOffset, rows * columns);
+        }
+
+        @Override
+        void derivative(double[] z, int zOffset, double[] a, int aOffset, double[] out, int outOffset, int length) {
+            ElementwiseKernels.INSTANCE.tanhOutputDerivative(a, aOffset, out, outOffset, length);
+        }
+
+        @Override
+        void activate(float[] z, int zOffset, float[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.fastTanh(z, zOffset, out, outOffset, rows * columns);
+        }
+
+        @Override
+        void derivative(float[] z, int zOffset, float[] a, int aOffset, float[] out, int outOffset, int length) {
+            ElementwiseKernels.INSTANCE.tanhOutputDerivative(a, aOffset, out, outOffset, length);
+        }
+    },
+    /** z if z is positive, and LEAKY_RELU_SLOPE * z otherwise. */
+    LEAKY_RELU {
+        @Override
+        void activate(double[] z, int zOffset, double[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.leakyReLU(z, zOffset, LEAKY_RELU_SLOPE, out, outOffset, rows * columns);
+        }
+
+        @Override
+        void derivative(double[] z, int zOffset, double[] a, int aOffset, double[] out, int outOffset, int length) {
+            ElementwiseKernels.INSTANCE.leakyReLUDerivative(a, aOffset, LEAKY_RELU_SLOPE, out, outOffset, length);
+        }
+
+        @Override
+        void activate(float[] z, int zOffset, float[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.leakyReLU(z, zOffset, (float) LEAKY_RELU_SLOPE, out, outOffset, rows * columns);
+        }
+
+        @Override
+        void derivative(float[] z, int zOffset, float[] a, int aOffset, float[] out, int outOffset, int length) {
+            ElementwiseKernels.INSTANCE.leakyReLUDerivative(a, aOffset, (float) LEAKY_RELU_SLOPE, out, outOffset, length);
+        }
+    },
+    /**
+     * The Gaussian error linear unit, z times the standard normal
+     * distribution function of z, in its usual tanh approximation.
+     * Its derivative needs z rather than the output.
+     */
+    GELU {
+        @Override
+        void activate(double[] z, int zOffset, double[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.gelu(z, zOffset, out, outOffset, rows * columns);
+        }
+
+        @Override
+        void derivative(double[] z, int zOffset, double[] a, int aOffset, double[] out, int outOffset, int length) {
+            ElementwiseKernels.INSTANCE.geluDerivative(z, zOffset, out, outOffset, length);
+        }
+
+        @Override
+        void activate(float[] z, int zOffset, float[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.gelu(z, zOffset, out, outOffset, rows * columns);
+        }
+
+        @Override
+        void derivative(float[] z, int zOffset, float[] a, int aOffset, float[] out, int outOffset, int length) {
+            ElementwiseKernels.INSTANCE.geluDerivative(z, zOffset, out, outOffset, length);
+        }
+    },
+    /**
+     * e^z divided by the sum of e^z over each column, so that every
+     * column (input set) of a 2D matrix becomes a probability
+     * distribution; a 3D matrix is treated as one set. Each output
+     * depends on its whole column, so there is no element-wise
+     * derivative: finding one throws IllegalStateException, and networks
+     * refuse it as their activation function. Their softmax output layer
+     * comes from Loss.SOFTMAX_CROSS_ENTROPY, which never needs the
+     * derivative.
+     */
+    SOFTMAX {
+        @Override
+        void activate(double[] z, int zOffset, double[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.softmax(z, zOffset, out, outOffset, rows, columns);
+        }
+
+        @Override
+        void derivative(double[] z, int zOffset, double[] a, int aOffset, double[] out, int outOffset, int length) {
+            throw new IllegalStateException("SOFTMAX has no element-wise derivative; use Loss.SOFTMAX_CROSS_ENTROPY for a softmax output layer.");
+        }
+
+        @Override
+        void activate(float[] z, int zOffset, float[] out, int outOffset, int rows, int columns) {
+            ElementwiseKernels.INSTANCE.softmax(z, zOffset, out, outOffset, rows, columns);
+        }
+
+        @Override
+        void derivative(float[] z, int zOffset, float[] a, int aOffset, float[] out, int outOffset, int length) {
+            throw new IllegalStateException("SOFTMAX has no element-wise derivative; use Loss.SOFTMAX_CROSS_ENTROPY for a softmax output layer.");
+        }
+
+        @Override
+        boolean isElementwise() {
+            return false;
+        }
+    };
+
+    /** The slope of LEAKY_RELU for negative inputs. */
+    public static final double LEAKY_RELU_SLOPE = 0.01;
+
+    /**
+     * Activates a contiguous row-major run of entries, storing the
+     * results in another run, which may be the same one.
+     * @param z the array of the entries to activate.
+     * @param zOffset the position of the first entry.
+     * @param out the array to store the activated entries in.
+     * @param outOffset the position of the first activated entry.
+     * @param rows the number of rows of the entries.
+     * @param columns the number of columns (input sets) of the entries.
+     */
+    abstract void activate(double[] z, int zOffset, double[] out, int outOffset, int rows, int columns);
+
+    /**
+     * Finds the derivative of the function at a contiguous run of
+     * entries, given both the entries and their activated values.
+     * The output may be stored over either of them.
+     * @param z the array of the entries.
+     * @param zOffset the position of the first entry.
+     * @param a the array of the activated entries.
+     * @param aOffset the position of the first activated entry.
+     * @param out the array to store the derivatives in.
+     * @param outOffset the position of the first derivative.
+     * @param length the number of entries.
+     * @throws IllegalStateException if the function has no element-wise derivative (SOFTMAX).
+     */
+    abstract void derivative(double[] z, int zOffset, double[] a, int aOffset, double[] out, int outOffset, int length);
+
+    /**
+     * Activates a contiguous row-major run of single-precision entries;
+     * see the double-precision form.
+     * @param z the array of the entries to activate.
+     * @param zOffset the position of the first entry.
+     * @param out the array to store the activated entries in.
+     * @param outOffset the position of the first activated entry.
+     * @param rows the number of rows of the entries.
+     * @param columns the number of columns (input sets) of the entries.
+     */
+    abstract void activate(float[] z, int zOffset, float[] out, int outOffset, int rows, int columns);
+
+    /**
+     * Finds the derivative of the function at a contiguous run of
+     * single-precision entries; see the double-precision form.
+     * @param z the array of the entries.
+     * @param zOffset the position of the first entry.
+     * @param a the array of the activated entries.
+     * @param aOffset the position of the first activated entry.
+     * @param out the array to store the derivatives in.
+     * @param outOffset the position of the first derivative.
+     * @param length the number of entries.
+     * @throws IllegalStateException if the function has no element-wise derivative (SOFTMAX).
+     */
+    abstract void derivative(float[] z, int zOffset, float[] a, int aOffset, float[] out, int outOffset, int length);
+
+    /**
+     * Returns the fast approximate form of the function: FAST_SIGMOID
+     * for SIGMOID, FAST_TANH for TANH, and the function itself for the
+     * others, which are cheap to compute exactly.
+     * @return the approximate function.
+     */
+    public Activation approximation() {
+        switch (this) {
+            case SIGMOID:
+                return FAST_SIGMOID;
+            case TANH:
+                return FAST_TANH;
+            default:
+                return this;
+        }
+    }
+
+    /**
+     * Determines whether each activated entry depends only on its own
+     * entry, so that a matrix can be activated in separate blocks.
+     * @return whether the function is element-wise.
+     */
+    boolean isElementwise() {
+        return true;
+    }
 }
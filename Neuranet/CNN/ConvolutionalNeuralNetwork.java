@@ -2,6 +2,8 @@ package Neuranet.CNN;
 
 import Neuranet.Network;
 import Neuranet.Matrix3D;
+import Neuranet.MatrixLayout;
+import Neuranet.MatrixPool;
 import Neuranet.Activation;
 import Neuranet.Triple;
 
@@ -66,68 +68,68 @@ public class ConvolutionalNeuralNetwork implements Network {
 
         System.out.print("Filtering...");
         
-        Matrix3D filtered = new Matrix3D(filteredRows, filteredCols, filteredLays);
-        for (int layer = 0; layer < filteredLays; layer++) {
-            for (int row = 0; row < filteredRows; row += 1) {
-                for (int col = 0; col < filteredCols; col += 1) {
-                    /** Takes a subsection of the original input. */
-                    int inputRow = row * filterStride - padding;
-                    int inputCol = col * filterStride - padding;
-                    Matrix3D inputSection = Matrix3D.subMatrix(input, inputRow, inputCol, 0, inputRow + filterSize, inputCol + filterSize, input.getLayerCount());
-
-                    /** Finds the dot product between the input section and the weights. */
-                    Matrix3D hadamard = Matrix3D.hadamardMultiply(inputSection, weights[layer]);
-                    double dot = Matrix3D.sumEntries(hadamard);
-
-                    /** Apply bias.*/
-                    double z = dot + biases[layer];
+        /** The filtered maps are only needed until they are pooled, so they are borrowed. */
+        try (MatrixPool.Scope scope = MatrixPool.forCurrentThread().open()) {
+            /** Stores each filtered layer contiguously for the per-layer activation and pooling. */
+            Matrix3D filtered = scope.matrix3D(filteredRows, filteredCols, filteredLays, MatrixLayout.CHANNEL_FIRST);
+            for (int layer = 0; layer < filteredLays; layer++) {
+                for (int row = 0; row < filteredRows; row += 1) {
+                    for (int col = 0; col < filteredCols; col += 1) {
+                        /** Finds the dot product between a subsection of the original input and the weights. */
+                        int inputRow = row * filterStride - padding;
+                        int inputCol = col * filterStride - padding;
+                        double dot = Matrix3D.dotProduct(input, inputRow, inputCol, 0, weights[layer]);
+
+                        /** Apply bias.*/
+                        double z = dot + biases[layer];
                     
-                    filtered.set(row, col, layer, z);
-
-                    System.out.print("\rFiltering: " + ((int) Math.round((col + row * filteredCols + layer * filteredCols * filteredRows + 1) * 10000.0 / (filteredRows * filteredCols * filteredLays)) / 100.0) + "%");
+                        filtered.set(row, col, layer, z);
+                    }
+                    /** Reports progress once per row rather than per entry, which built a String for every entry. */
+                    System.out.print("\rFiltering: " + ((int) Math.round(((row + 1) * filteredCols + layer * filteredCols * filteredRows) * 10000.0 / (filteredRows * filteredCols * filteredLays)) / 100.0) + "%");
                 }
+                /** Activates the layer. */
+                Matrix3D filteredLayer = filtered.layerView(layer);
+                Network.activateInto(filteredLayer, activationType, filteredLayer);
             }
-            /** Activates the layer. */
-            filtered.setLayer(layer, Network.activate(filtered.getLayers()[layer], activationType));
-        }
 
-        System.out.print("\nPooling...");
+            System.out.print("\nPooling...");
 
-        int poolSize = convolution.getPoolSize();
-        int poolStride = convolution.getPoolStride();
+            int poolSize = convolution.getPoolSize();
+            int poolStride = convolution.getPoolStride();
 
-        int pooledRows = (filteredRows - poolSize) / poolStride + 1;
-        int pooledCols = (filteredCols - poolSize) / poolStride + 1;
+            int pooledRows = (filteredRows - poolSize) / poolStride + 1;
+            int pooledCols = (filteredCols - poolSize) / poolStride + 1;
 
-        Matrix3D pooled = new Matrix3D(pooledRows, pooledCols, filteredLays);
+            Matrix3D pooled = new Matrix3D(pooledRows, pooledCols, filteredLays);
         
-        for (int layer = 0; layer < filteredLays; layer++) {
-            for (int row = 0; row < pooledRows; row += 1) {
-                for (int col = 0; col < pooledCols; col += 1) {
-                    /** Takes a subsection of the original input. */
-                    int inputRow = row * poolStride;
-                    int inputCol = col * poolStride;
-                    Matrix3D filteredSection = Matrix3D.subMatrix(filtered.getLayers()[layer], inputRow, inputCol, 0, inputRow + poolSize, inputCol + poolSize, 1);
-
-                    switch (convolution.getPoolingType()) {
-                        case MAX:
-                            Triple<Integer, Integer, Integer> indexOfMax = Matrix3D.getIndexOfMax(filteredSection);
-                            pooled.set(row, col, layer, filteredSection.get(indexOfMax.x, indexOfMax.y, indexOfMax.z));
-                            break;
-                        case AVERAGE:
-                            pooled.set(row, col, layer, Matrix3D.sumEntries(filteredSection) / (poolSize * poolSize));
-                            break;
-                        default:
-                            pooled.set(row, col, layer, Matrix3D.sumEntries(filteredSection) / (poolSize * poolSize));
+            for (int layer = 0; layer < filteredLays; layer++) {
+                for (int row = 0; row < pooledRows; row += 1) {
+                    for (int col = 0; col < pooledCols; col += 1) {
+                        /** Takes a subsection of the original input. */
+                        int inputRow = row * poolStride;
+                        int inputCol = col * poolStride;
+                        Matrix3D filteredSection = Matrix3D.subMatrixView(filtered, inputRow, inputCol, layer, inputRow + poolSize, inputCol + poolSize, layer + 1);
+
+                        switch (convolution.getPoolingType()) {
+                            case MAX:
+                                Triple<Integer, Integer, Integer> indexOfMax = Matrix3D.getIndexOfMax(filteredSection);
+                                pooled.set(row, col, layer, filteredSection.get(indexOfMax.x, indexOfMax.y, indexOfMax.z));
+                                break;
+                            case AVERAGE:
+                                pooled.set(row, col, layer, Matrix3D.sumEntries(filteredSection) / (poolSize * poolSize));
+                                break;
+                            default:
+                                pooled.set(row, col, layer, Matrix3D.sumEntries(filteredSection) / (poolSize * poolSize));
+                        }
                     }
-
-                    System.out.print("\rPooling: " + ((int) Math.round((col + row * pooledCols + layer * pooledCols * pooledRows + 1) * 10000.0 / (pooledRows * pooledCols * filteredLays)) / 100.0) + "%");
+                    System.out.print("\rPooling: " + ((int) Math.round(((row + 1) * pooledCols + layer * pooledCols * pooledRows) * 10000.0 / (pooledRows * pooledCols * filteredLays)) / 100.0) + "%");
                 }
             }
-        }
 
-        System.out.println("");
+            System.out.println("");
         
-        return pooled;
+            return pooled;
+        }
     }
 }
@@ -0,0 +1,154 @@
+package Neuranet.CNN;
+
+import Neuranet.Network;
+import Neuranet.FloatMatrix3D;
+import Neuranet.Matrix3D;
+import Neuranet.Activation;
+import Neuranet.Triple;
+
+/**
+ * Class that represents a convolutional neural network that
+ * computes in single precision. The filters of its convolutions
+ * are converted to floats when the network is created.
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+public class FloatConvolutionalNeuralNetwork implements Network {
+    /** The convolutions of the CNN. */
+    Convolution[] convolutions;
+    /** The single-precision filter weights of each convolution. */
+    FloatMatrix3D[][] weights;
+    /** The single-precision filter biases of each convolution. */
+    float[][] biases;
+
+    /**
+     * Creates an empty CNN.
+     */
+    public FloatConvolutionalNeuralNetwork() {
+        this(new Convolution[0]);
+    }
+
+    /**
+     * Creates a CNN with the specified convolutions.
+     * @param convolutions the convolutions of the CNN.
+     */
+    public FloatConvolutionalNeuralNetwork(Convolution[] convolutions) {
+        this.convolutions = new Convolution[convolutions.length];
+        this.weights = new FloatMatrix3D[convolutions.length][];
+        this.biases = new float[convolutions.length][];
+        for (int index = 0; index < convolutions.length; index += 1) {
+            this.convolutions[index] = new Convolution(convolutions[index]);
+
+            Matrix3D[] filters = convolutions[index].getWeights();
+            double[] filterBiases = convolutions[index].getBiases();
+            this.weights[index] = new FloatMatrix3D[filters.length];
+            this.biases[index] = new float[filterBiases.length];
+            for (int filter = 0; filter < filters.length; filter += 1) {
+                this.weights[index][filter] = new FloatMatrix3D(filters[filter]);
+                this.biases[index][filter] = (float) filterBiases[filter];
+            }
+        }
+    }
+
+    /**
+     * Produces an output set for the provided input set
+     * based on the convolutions of the CNN.
+     * @param input The input set to compute the output for.
+     * @return The output of the CNN with the given input and convolutions.
+     */
+    public FloatMatrix3D compute(FloatMatrix3D input) {
+        FloatMatrix3D output = new FloatMatrix3D(input);
+        for (int index = 0; index < convolutions.length; index++) {
+            output = FloatConvolutionalNeuralNetwork.computeConvolution(convolutions[index], weights[index], biases[index], output);
+        }
+        return output;
+    }
+
+    /**
+     * Produces an output set for the provided input set
+     * based on the convolution.
+     * @param convolution The convolution to apply.
+     * @param weights The single-precision filters of the convolution.
+     * @param biases The single-precision biases of the convolution.
+     * @param input The input set to compute the output for.
+     * @return The output of the convolution with the given input.
+     */
+    private static FloatMatrix3D computeConvolution(Convolution convolution, FloatMatrix3D[] weights, float[] biases, FloatMatrix3D input) {
+        int filterSize = weights[0].getRowCount();
+        int filterStride = convolution.getFilterStride();
+        int padding = convolution.getPadding();
+        Activation activationType = convolution.getActivationType();
+
+        int filteredRows = (input.getRowCount() - filterSize + 2 * padding) / filterStride + 1;
+        int filteredCols = (input.getColumnCount() - filterSize + 2 * padding) / filterStride + 1;
+        int filteredLays = weights.length;
+
+        System.out.print("Filtering...");
+        
+        FloatMatrix3D filtered = new FloatMatrix3D(filteredRows, filteredCols, filteredLays);
+        for (int layer = 0; layer < filteredLays; layer++) {
+            for (int row = 0; row < filteredRows; row += 1) {
+                for (int col = 0; col < filteredCols; col += 1) {
+                    /** Takes a subsection of the original input. */
+                    int inputRow = row * filterStride - padding;
+                    int inputCol = col * filterStride - padding;
+                    FloatMatrix3D inputSection = FloatMatrix3D.subMatrix(input, inputRow, inputCol, 0, inputRow + filterSize, inputCol + filterSize, input.getLayerCount());
+
+                    /** Finds the dot product between the input section and the weights. */
+                    FloatMatrix3D hadamard = FloatMatrix3D.hadamardMultiply(inputSection, weights[layer]);
+                    float dot = FloatMatrix3D.sumEntries(hadamard);
+
+                    /** Apply bias.*/
+                    float z = dot + biases[layer];
+                    
+                    filtered.set(row, col, layer, z);
+
+                    System.out.print("\rFiltering: " + ((int) Math.round((col + row * filteredCols + layer * filteredCols * filteredRows + 1) * 10000.0 / (filteredRows * filteredCols * filteredLays)) / 100.0) + "%");
+                }
+            }
+            /** Activates the layer. */
+            filtered.setLayer(layer, Network.activate(filtered.getLayers()[layer], activationType));
+        }
+
+        System.out.print("\nPooling...");
+
+        int poolSize = convolution.getPoolSize();
+        int poolStride = convolution.getPoolStride();
+
+        int pooledRows = (filteredRows - poolSize) / poolStride + 1;
+        int pooledCols = (filteredCols - poolSize) / poolStride + 1;
+
+        FloatMatrix3D pooled = new FloatMatrix3D(pooledRows, pooledCols, filteredLays);
+        
+        /** Splits the filtered layers once rather than for every pooled entry. */
+        FloatMatrix3D[] filteredLayers = filtered.getLayers();
+        for (int layer = 0; layer < filteredLays; layer++) {
+            for (int row = 0; row < pooledRows; row += 1) {
+                for (int col = 0; col < pooledCols; col += 1) {
+                    /** Takes a subsection of the original input. */
+                    int inputRow = row * poolStride;
+                    int inputCol = col * poolStride;
+                    FloatMatrix3D filteredSection = FloatMatrix3D.subMatrix(filteredLayers[layer], inputRow, inputCol, 0, inputRow + poolSize, inputCol + poolSize, 1);
+
+                    switch (convolution.getPoolingType()) {
+                        case MAX:
+                            Triple<Integer, Integer, Integer> indexOfMax = FloatMatrix3D.getIndexOfMax(filteredSection);
+                            pooled.set(row, col, layer, filteredSection.get(indexOfMax.x, indexOfMax.y, indexOfMax.z));
+                            break;
+                        case AVERAGE:
+                            pooled.set(row, col, layer, FloatMatrix3D.sumEntries(filteredSection) / (poolSize * poolSize));
+                            break;
+                        default:
+                            pooled.set(row, col, layer, FloatMatrix3D.sumEntries(filteredSection) / (poolSize * poolSize));
+                    }
+
+                    System.out.print("\rPooling: " + ((int) Math.round((col + row * pooledCols + layer * pooledCols * pooledRows + 1) * 10000.0 / (pooledRows * pooledCols * filteredLays)) / 100.0) + "%");
+                }
+            }
+        }
+
+        System.out.println("");
+        
+        return pooled;
+    }
+}
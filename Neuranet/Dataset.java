@@ -22,13 +22,23 @@ public class Dataset {
 
     /**
      * Creates a dataset based on the provided input and
-     * expected output 
+     * expected output. Sparse inputs and outputs
+     * (SparseMatrix2D) are kept sparse.
      * @param input The input of the dataset.
      * @param expectedOutput The expected output of the dataset.
      */
     public Dataset(Matrix2D input, Matrix2D expectedOutput) {
-        this.input = new Matrix2D(input);
-        this.expectedOutput = new Matrix2D(expectedOutput);
+        this.input = copy(input);
+        this.expectedOutput = copy(expectedOutput);
+    }
+
+    /**
+     * Copies a matrix, keeping sparse matrices sparse.
+     * @param matrix The matrix to copy.
+     * @return a copy of the matrix.
+     */
+    private static Matrix2D copy(Matrix2D matrix) {
+        return (matrix instanceof SparseMatrix2D ? new SparseMatrix2D(matrix) : new Matrix2D(matrix));
     }
 
     /**
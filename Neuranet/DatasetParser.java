@@ -7,6 +7,7 @@ import java.util.Scanner;
 import Neuranet.RuntimeExceptions.InvalidDatasetFormat;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Class that converts Dataset values from
@@ -26,6 +27,32 @@ public class DatasetParser {
      * @throws InvalidDatasetFormat returned if the dataset format in the file is invalid.
      */
     public static Dataset[] parse(String fileName) throws FileNotFoundException, InvalidDatasetFormat {
+        return parse(fileName, false);
+    }
+
+    /**
+     * Returns an array of Datasets parsed from the file, with
+     * inputs stored as sparse (CSR) matrices that keep only their
+     * nonzero entries. This suits inputs that are mostly zeros,
+     * such as one-hot or bag-of-words features.
+     * @param fileName the file path to parse from.
+     * @return an array of Datasets with sparse inputs parsed from the file.
+     * @throws FileNotFoundException returned if the file is not valid.
+     * @throws InvalidDatasetFormat returned if the dataset format in the file is invalid.
+     */
+    public static Dataset[] parseSparse(String fileName) throws FileNotFoundException, InvalidDatasetFormat {
+        return parse(fileName, true);
+    }
+
+    /**
+     * Returns an array of Datasets parsed from the file.
+     * @param fileName the file path to parse from.
+     * @param sparseInputs whether to store the inputs as sparse matrices.
+     * @return an array of Datasets parsed from the file.
+     * @throws FileNotFoundException returned if the file is not valid.
+     * @throws InvalidDatasetFormat returned if the dataset format in the file is invalid.
+     */
+    private static Dataset[] parse(String fileName, boolean sparseInputs) throws FileNotFoundException, InvalidDatasetFormat {
         ArrayList<Dataset> datasets = new ArrayList<>();
         
         File file = new File(fileName);
@@ -42,11 +69,13 @@ public class DatasetParser {
             String[] inputs = line.split("\\|")[0].trim().split(" ");
             String[] outputs = line.split("\\|")[1].trim().split(" ");
 
-            Matrix2D input = new Matrix2D(inputs.length, 1);
+            Matrix2D input = (sparseInputs ? parseSparseColumn(inputs) : new Matrix2D(inputs.length, 1));
             Matrix2D output = new Matrix2D(outputs.length, 1);
 
-            for (int index = 0; index < inputs.length; index += 1) {
-                input.set(index, 0, Double.parseDouble(inputs[index]));
+            if (!sparseInputs) {
+                for (int index = 0; index < inputs.length; index += 1) {
+                    input.set(index, 0, Double.parseDouble(inputs[index]));
+                }
             }
 
             for (int index = 0; index < outputs.length; index += 1) {
@@ -62,6 +91,30 @@ public class DatasetParser {
         return datasets.toArray(out);
     }
 
+    /**
+     * Parses values into a sparse column matrix, storing only
+     * the values that are not zero.
+     * @param values the values of the column, as Strings.
+     * @return a sparse single-columned matrix of the values.
+     */
+    private static SparseMatrix2D parseSparseColumn(String[] values) {
+        int[] rowPointers = new int[values.length + 1];
+        int[] columnIndices = new int[values.length];
+        double[] entries = new double[values.length];
+        int nonZeroCount = 0;
+        for (int index = 0; index < values.length; index += 1) {
+            rowPointers[index] = nonZeroCount;
+            double value = Double.parseDouble(values[index]);
+            if (value != 0.0) {
+                entries[nonZeroCount] = value;
+                nonZeroCount += 1;
+            }
+        }
+        rowPointers[values.length] = nonZeroCount;
+        return new SparseMatrix2D(values.length, 1, rowPointers,
+            Arrays.copyOf(columnIndices, nonZeroCount), Arrays.copyOf(entries, nonZeroCount));
+    }
+
     /**
      * Writes a list of datasets to the given file path.
      * @param fileName the file path to write the dataset to.
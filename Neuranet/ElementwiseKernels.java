@@ -0,0 +1,444 @@
+package Neuranet;
+
+/**
+ * Class that holds the element-wise kernels used by the matrix
+ * classes and activation functions. Each kernel works on a
+ * contiguous range of one or more arrays.
+ *
+ * This class is the scalar implementation. When the incubating
+ * jdk.incubator.vector module is available (--add-modules
+ * jdk.incubator.vector), INSTANCE is replaced by VectorKernels,
+ * which uses the widest SIMD vectors the machine supports. Setting
+ * the "neuranet.disableVector" system property forces the scalar
+ * kernels.
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+class ElementwiseKernels {
+    /** The kernels used by the matrix classes. */
+    static final ElementwiseKernels INSTANCE = load();
+
+    /**
+     * Loads the vector kernels if the Vector API is available,
+     * falling back to the scalar kernels otherwise.
+     * @return the kernels to use.
+     */
+    private static ElementwiseKernels load() {
+        if (Boolean.getBoolean("neuranet.disableVector")) {
+            return new ElementwiseKernels();
+        }
+        try {
+            return (ElementwiseKernels) Class.forName("Neuranet.VectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ElementwiseKernels();
+        }
+    }
+
+    /**
+     * Returns the name of the implementation in use, for diagnostics.
+     * @return the name of the implementation.
+     */
+    String getName() {
+        return "scalar";
+    }
+
+    /** out[i] = a[i] + b[i]. */
+    void add(double[] a, int aOffset, double[] b, int bOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = a[aOffset + i] + b[bOffset + i];
+        }
+    }
+
+    /** out[i] = a[i] - b[i]. */
+    void subtract(double[] a, int aOffset, double[] b, int bOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = a[aOffset + i] - b[bOffset + i];
+        }
+    }
+
+    /** out[i] = a[i] * b[i]. */
+    void multiply(double[] a, int aOffset, double[] b, int bOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = a[aOffset + i] * b[bOffset + i];
+        }
+    }
+
+    /** out[i] = a[i] + factor * b[i]. */
+    void scaledAdd(double[] a, int aOffset, double factor, double[] b, int bOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = a[aOffset + i] + factor * b[bOffset + i];
+        }
+    }
+
+    /** out[i] = a[i] * factor. */
+    void scale(double[] a, int aOffset, double factor, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = a[aOffset + i] * factor;
+        }
+    }
+
+    /** out[i] = a[i] / factor. */
+    void divide(double[] a, int aOffset, double factor, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = a[aOffset + i] / factor;
+        }
+    }
+
+    /** out[i] = a[i] * a[i]. */
+    void square(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            double value = a[aOffset + i];
+            out[outOffset + i] = value * value;
+        }
+    }
+
+    /** out[i] = |a[i]|. */
+    void abs(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = Math.abs(a[aOffset + i]);
+        }
+    }
+
+    /** Returns the sum of a[i]. */
+    double sum(double[] a, int aOffset, int length) {
+        double sum = 0.0;
+        for (int i = 0; i < length; i += 1) {
+            sum += a[aOffset + i];
+        }
+        return sum;
+    }
+
+    /** Returns the sum of (a[i] - b[i])^2. */
+    double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        double sum = 0.0;
+        for (int i = 0; i < length; i += 1) {
+            double difference = a[aOffset + i] - b[bOffset + i];
+            sum += difference * difference;
+        }
+        return sum;
+    }
+
+    /** Returns the sum of a[i] * b[i]. */
+    double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        double sum = 0.0;
+        for (int i = 0; i < length; i += 1) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    /** out[i] = 1 / (1 + e^-a[i]). */
+    void sigmoid(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = 1.0 / (1.0 + Math.exp(-a[aOffset + i]));
+        }
+    }
+
+    /** The magnitude beyond which fastSigmoid returns its table's end values; sigmoid is within 1.2e-7 of 0 or 1 there. */
+    static final double SIGMOID_TABLE_LIMIT = 16.0;
+    /** The number of table entries per unit of input. */
+    static final double SIGMOID_TABLE_STEPS = 32.0;
+    /** Sigmoid at every step from -SIGMOID_TABLE_LIMIT to SIGMOID_TABLE_LIMIT, plus one past the end. */
+    private static final double[] SIGMOID_TABLE = new double[(int) (2.0 * SIGMOID_TABLE_LIMIT * SIGMOID_TABLE_STEPS) + 2];
+
+    static {
+        for (int index = 0; index < SIGMOID_TABLE.length; index += 1) {
+            SIGMOID_TABLE[index] = 1.0 / (1.0 + Math.exp(SIGMOID_TABLE_LIMIT - index / SIGMOID_TABLE_STEPS));
+        }
+    }
+
+    /**
+     * Approximates sigmoid by interpolating linearly between the two
+     * nearest entries of SIGMOID_TABLE, which costs two loads and a few
+     * multiplications instead of Math.exp and a division. With 32 steps
+     * per unit the absolute error is below 1.2e-5.
+     */
+    private static double tableSigmoid(double value) {
+        value = (value < -SIGMOID_TABLE_LIMIT ? -SIGMOID_TABLE_LIMIT : value);
+        value = (value > SIGMOID_TABLE_LIMIT ? SIGMOID_TABLE_LIMIT : value);
+        double position = (value + SIGMOID_TABLE_LIMIT) * SIGMOID_TABLE_STEPS;
+        int index = (int) position;
+        double lower = SIGMOID_TABLE[index];
+        return lower + (position - index) * (SIGMOID_TABLE[index + 1] - lower);
+    }
+
+    /** out[i] = 1 / (1 + e^-a[i]), to within 1.2e-5. */
+    void fastSigmoid(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = tableSigmoid(a[aOffset + i]);
+        }
+    }
+
+    /** out[i] = tanh(a[i]) = 2 * sigmoid(2 * a[i]) - 1, to within 2.4e-5. */
+    void fastTanh(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = 2.0 * tableSigmoid(2.0 * a[aOffset + i]) - 1.0;
+        }
+    }
+
+    /** out[i] = s[i] * (1 - s[i]), where s holds sigmoid outputs. */
+    void sigmoidOutputDerivative(double[] s, int sOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            double sigmoid = s[sOffset + i];
+            out[outOffset + i] = sigmoid * (1 - sigmoid);
+        }
+    }
+
+    /** out[i] = max(0, a[i]). */
+    void reLU(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = Math.max(0.0, a[aOffset + i]);
+        }
+    }
+
+    /** out[i] = 1 if a[i] > 0, 0 otherwise. */
+    void reLUDerivative(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = (a[aOffset + i] > 0 ? 1.0 : 0.0);
+        }
+    }
+
+    /** out[i] = tanh(a[i]). */
+    void tanh(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = Math.tanh(a[aOffset + i]);
+        }
+    }
+
+    /** out[i] = 1 - t[i] * t[i], where t holds tanh outputs. */
+    void tanhOutputDerivative(double[] t, int tOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            double tanh = t[tOffset + i];
+            out[outOffset + i] = 1 - tanh * tanh;
+        }
+    }
+
+    /** out[i] = a[i] if a[i] > 0, slope * a[i] otherwise. */
+    void leakyReLU(double[] a, int aOffset, double slope, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            double value = a[aOffset + i];
+            out[outOffset + i] = (value > 0 ? value : slope * value);
+        }
+    }
+
+    /** out[i] = 1 if a[i] > 0, slope otherwise; a may hold inputs or outputs. */
+    void leakyReLUDerivative(double[] a, int aOffset, double slope, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = (a[aOffset + i] > 0 ? 1.0 : slope);
+        }
+    }
+
+    /** The constant sqrt(2 / pi) of the GELU approximation. */
+    static final double GELU_SCALE = Math.sqrt(2.0 / Math.PI);
+    /** The cubic coefficient of the GELU approximation. */
+    static final double GELU_CUBIC = 0.044715;
+
+    /** out[i] = 0.5 * a[i] * (1 + tanh(sqrt(2 / pi) * (a[i] + 0.044715 * a[i]^3))). */
+    void gelu(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            double value = a[aOffset + i];
+            double tanh = Math.tanh(GELU_SCALE * (value + GELU_CUBIC * value * value * value));
+            out[outOffset + i] = 0.5 * value * (1 + tanh);
+        }
+    }
+
+    /** out[i] = the derivative of gelu at a[i]. */
+    void geluDerivative(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            double value = a[aOffset + i];
+            double tanh = Math.tanh(GELU_SCALE * (value + GELU_CUBIC * value * value * value));
+            out[outOffset + i] = 0.5 * (1 + tanh) + 0.5 * value * (1 - tanh * tanh) * GELU_SCALE * (1 + 3 * GELU_CUBIC * value * value);
+        }
+    }
+
+    /**
+     * Normalizes the exponentials of each column of a row-major block
+     * of rows * columns entries to sum to 1. The largest entry of each
+     * column is subtracted first, so large entries do not overflow.
+     * Unlike the other kernels, entries of one column are columns apart.
+     */
+    void softmax(double[] a, int aOffset, double[] out, int outOffset, int rows, int columns) {
+        for (int col = 0; col < columns; col += 1) {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int row = 0; row < rows; row += 1) {
+                max = Math.max(max, a[aOffset + row * columns + col]);
+            }
+            double sum = 0.0;
+            for (int row = 0; row < rows; row += 1) {
+                double exp = Math.exp(a[aOffset + row * columns + col] - max);
+                out[outOffset + row * columns + col] = exp;
+                sum += exp;
+            }
+            for (int row = 0; row < rows; row += 1) {
+                out[outOffset + row * columns + col] /= sum;
+            }
+        }
+    }
+
+    /**
+     * Returns -sum(y[i] * ln(p[i])), with p[i] floored at Double.MIN_NORMAL.
+     * Entries where y[i] is 0 are skipped, which for one-hot
+     * outputs leaves one logarithm per input set.
+     */
+    double crossEntropy(double[] y, int yOffset, double[] p, int pOffset, int length) {
+        double sum = 0.0;
+        for (int i = 0; i < length; i += 1) {
+            double expected = y[yOffset + i];
+            if (expected != 0.0) {
+                sum -= expected * Math.log(Math.max(Double.MIN_NORMAL, p[pOffset + i]));
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Applies max(0, a) to each column of a row-major block of rows *
+     * columns entries and divides it by the column's largest entry,
+     * floored at 0.0001. Like softmax, entries of one column are
+     * columns apart.
+     */
+    void normalizedReLU(double[] a, int aOffset, double[] out, int outOffset, int rows, int columns) {
+        for (int col = 0; col < columns; col += 1) {
+            double max = 0.0001;
+            for (int row = 0; row < rows; row += 1) {
+                max = Math.max(max, a[aOffset + row * columns + col]);
+            }
+            for (int row = 0; row < rows; row += 1) {
+                out[outOffset + row * columns + col] = Math.max(0.0, a[aOffset + row * columns + col]) / max;
+            }
+        }
+    }
+
+    /** Returns the sum of (a[i] - b[i])^2 over single-precision entries, added in double precision. */
+    double squaredDistance(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        double sum = 0.0;
+        for (int i = 0; i < length; i += 1) {
+            double difference = a[aOffset + i] - b[bOffset + i];
+            sum += difference * difference;
+        }
+        return sum;
+    }
+
+    /** out[i] = 1 / (1 + e^-a[i]), in single precision. */
+    void sigmoid(float[] a, int aOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = 1.0f / (1.0f + (float) Math.exp(-a[aOffset + i]));
+        }
+    }
+
+    /** out[i] = 1 / (1 + e^-a[i]), to within 1.2e-5, in single precision. */
+    void fastSigmoid(float[] a, int aOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = (float) tableSigmoid(a[aOffset + i]);
+        }
+    }
+
+    /** out[i] = tanh(a[i]) = 2 * sigmoid(2 * a[i]) - 1, to within 2.4e-5, in single precision. */
+    void fastTanh(float[] a, int aOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = (float) (2.0 * tableSigmoid(2.0 * a[aOffset + i]) - 1.0);
+        }
+    }
+
+    /** out[i] = s[i] * (1 - s[i]), where s holds sigmoid outputs, in single precision. */
+    void sigmoidOutputDerivative(float[] s, int sOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            float sigmoid = s[sOffset + i];
+            out[outOffset + i] = sigmoid * (1 - sigmoid);
+        }
+    }
+
+    /** out[i] = max(0, a[i]), in single precision. */
+    void reLU(float[] a, int aOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = Math.max(0.0f, a[aOffset + i]);
+        }
+    }
+
+    /** out[i] = 1 if a[i] > 0, 0 otherwise, in single precision. */
+    void reLUDerivative(float[] a, int aOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = (a[aOffset + i] > 0 ? 1.0f : 0.0f);
+        }
+    }
+
+    /** out[i] = tanh(a[i]), in single precision. */
+    void tanh(float[] a, int aOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = (float) Math.tanh(a[aOffset + i]);
+        }
+    }
+
+    /** out[i] = 1 - t[i] * t[i], where t holds tanh outputs, in single precision. */
+    void tanhOutputDerivative(float[] t, int tOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            float tanh = t[tOffset + i];
+            out[outOffset + i] = 1 - tanh * tanh;
+        }
+    }
+
+    /** out[i] = a[i] if a[i] > 0, slope * a[i] otherwise, in single precision. */
+    void leakyReLU(float[] a, int aOffset, float slope, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            float value = a[aOffset + i];
+            out[outOffset + i] = (value > 0 ? value : slope * value);
+        }
+    }
+
+    /** out[i] = 1 if a[i] > 0, slope otherwise, in single precision; a may hold inputs or outputs. */
+    void leakyReLUDerivative(float[] a, int aOffset, float slope, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            out[outOffset + i] = (a[aOffset + i] > 0 ? 1.0f : slope);
+        }
+    }
+
+    /** out[i] = gelu(a[i]), in single precision. */
+    void gelu(float[] a, int aOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            float value = a[aOffset + i];
+            float tanh = (float) Math.tanh(GELU_SCALE * (value + GELU_CUBIC * value * value * value));
+            out[outOffset + i] = 0.5f * value * (1 + tanh);
+        }
+    }
+
+    /** out[i] = the derivative of gelu at a[i], in single precision. */
+    void geluDerivative(float[] a, int aOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            float value = a[aOffset + i];
+            float tanh = (float) Math.tanh(GELU_SCALE * (value + GELU_CUBIC * value * value * value));
+            out[outOffset + i] = (float) (0.5 * (1 + tanh) + 0.5 * value * (1 - tanh * tanh) * GELU_SCALE * (1 + 3 * GELU_CUBIC * value * value));
+        }
+    }
+
+    /** The softmax of each column of a row-major block, in single precision; see the double kernel. */
+    void softmax(float[] a, int aOffset, float[] out, int outOffset, int rows, int columns) {
+        for (int col = 0; col < columns; col += 1) {
+            float max = Float.NEGATIVE_INFINITY;
+            for (int row = 0; row < rows; row += 1) {
+                max = Math.max(max, a[aOffset + row * columns + col]);
+            }
+            float sum = 0.0f;
+            for (int row = 0; row < rows; row += 1) {
+                float exp = (float) Math.exp(a[aOffset + row * columns + col] - max);
+                out[outOffset + row * columns + col] = exp;
+                sum += exp;
+            }
+            for (int row = 0; row < rows; row += 1) {
+                out[outOffset + row * columns + col] /= sum;
+            }
+        }
+    }
+
+    /** The normalized ReLU of each column of a row-major block, in single precision; see the double kernel. */
+    void normalizedReLU(float[] a, int aOffset, float[] out, int outOffset, int rows, int columns) {
+        for (int col = 0; col < columns; col += 1) {
+            float max = 0.0001f;
+            for (int row = 0; row < rows; row += 1) {
+                max = Math.max(max, a[aOffset + row * columns + col]);
+            }
+            for (int row = 0; row < rows; row += 1) {
+                out[outOffset + row * columns + col] = Math.max(0.0f, a[aOffset + row * columns + col]) / max;
+            }
+        }
+    }
+}
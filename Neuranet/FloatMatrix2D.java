@@ -0,0 +1,1160 @@
+package Neuranet;
+
+import Neuranet.RuntimeExceptions.InvalidMatrixArrayValue;
+import Neuranet.RuntimeExceptions.InvalidMatrixIndex;
+import Neuranet.RuntimeExceptions.InvalidMatrixOperation;
+
+/**
+ * Class that represents a 2D matrix of any dimensions whose
+ * entries are single-precision floats. It supports the same
+ * operations as Matrix2D at half the memory per entry. Large
+ * multiplications use the parallelism settings of Matrix2D.
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+public class FloatMatrix2D extends Matrix {
+    /** The values of the matrix, stored contiguously in row-major order. */
+    private float[] values;
+    /** The number of rows in the matrix. */
+    private int rowCount;
+    /** The number of columns in the matrix. */
+    private int columnCount;
+    /** The distance in the values array between two vertically adjacent entries. */
+    private int rowStride;
+    /** The distance in the values array between two horizontally adjacent entries. */
+    private int columnStride;
+
+    /**
+     * Default no-args constructor that creates
+     * an empty matrix.
+     */
+    public FloatMatrix2D() {
+        this(0, 0);
+    }
+
+    /**
+     * Creates a matrix with the specified values.
+     * @param values The content of the matrix as a 2D array.
+     * The number of elements per row should be the same.
+     */
+    public FloatMatrix2D(float[][] values) {
+        this(values == null ? 0 : values.length,
+            (values == null || values.length == 0 ? 0 : values[0].length));
+
+        for (int row = 0; row < rowCount; row += 1) {
+            System.arraycopy(values[row], 0, this.values, row * rowStride, columnCount);
+        }
+    }
+
+    /**
+     * Creates a matrix with the specified dimensions. Default values: 0.0f.
+     * @param rows The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     */
+    public FloatMatrix2D(int rows, int columns) {
+        this.values = new float[rows * columns];
+        this.rowCount = rows;
+        this.columnCount = columns;
+        this.rowStride = columns;
+        this.columnStride = 1;
+    }
+
+    /**
+     * Copy constructor that copies the values of another matrix.
+     * @param matrix The matrix to copy.
+     */
+    public FloatMatrix2D(FloatMatrix2D matrix) {
+        this(matrix.getRowCount(), matrix.getColumnCount());
+
+        for (int row = 0; row < rowCount; row += 1) {
+            int from = matrix.index(row, 0);
+            int to = index(row, 0);
+            for (int col = 0; col < columnCount; col += 1) {
+                values[to] = matrix.values[from];
+                from += matrix.columnStride;
+                to += columnStride;
+            }
+        }
+    }
+
+    /**
+     * Creates a single-precision copy of a double-precision matrix.
+     * @param matrix The matrix to copy.
+     */
+    public FloatMatrix2D(Matrix2D matrix) {
+        this(matrix.getRowCount(), matrix.getColumnCount());
+
+        for (int row = 0; row < rowCount; row += 1) {
+            int to = index(row, 0);
+            for (int col = 0; col < columnCount; col += 1) {
+                values[to] = (float) matrix.get(row, col);
+                to += columnStride;
+            }
+        }
+    }
+
+    /**
+     * Returns a double-precision copy of a matrix.
+     * @param a The matrix to copy.
+     * @return The double-precision matrix.
+     */
+    public static Matrix2D toDouble(FloatMatrix2D a) {
+        Matrix2D doubleMatrix = new Matrix2D(a.getRowCount(), a.getColumnCount());
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                doubleMatrix.set(row, col, a.values[aIndex]);
+                aIndex += a.columnStride;
+            }
+        }
+        return doubleMatrix;
+    }
+
+    /**
+     * Adds two matrices together. Must be of the same dimensions.
+     * @param a The first matrix to add.
+     * @param b The second matrix to add.
+     * @return The sum as a matrix.
+     */
+    public static FloatMatrix2D add(FloatMatrix2D a, FloatMatrix2D b) throws InvalidMatrixOperation {
+        /** Ensures compatibility. */
+        if (a.getRowCount() != b.getRowCount() || a.getColumnCount() != b.getColumnCount()) {
+            throw new InvalidMatrixOperation(a, b, "addition");
+        }
+        return FloatMatrix2D.addInto(a, b, new FloatMatrix2D(a.getRowCount(), a.getColumnCount()));
+    }
+
+    /**
+     * Adds two matrices together and stores the sum in the destination
+     * matrix. All three must be of the same dimensions. The destination
+     * may be one of the inputs, in which case the sum is done in place.
+     * @param a The first matrix to add.
+     * @param b The second matrix to add.
+     * @param destination The matrix to store the sum in.
+     * @return The destination matrix.
+     */
+    public static FloatMatrix2D addInto(FloatMatrix2D a, FloatMatrix2D b, FloatMatrix2D destination) throws InvalidMatrixOperation {
+        /** Ensures compatibility. */
+        if (a.getRowCount() != b.getRowCount() || a.getColumnCount() != b.getColumnCount()) {
+            throw new InvalidMatrixOperation(a, b, "addition");
+        }
+        checkDestination(a, destination, "addition");
+
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int bIndex = b.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                destination.values[outIndex] = a.values[aIndex] + b.values[bIndex];
+                aIndex += a.columnStride;
+                bIndex += b.columnStride;
+                outIndex += destination.columnStride;
+            }
+        }
+        return destination;
+    }
+
+    /**
+     * Subtracts the second matrix from the first. Must be of the same dimensions.
+     * @param a The first matrix.
+     * @param b The second matrix to subtract from the first.
+     * @return The difference as a matrix.
+     */
+    public static FloatMatrix2D subtract(FloatMatrix2D a, FloatMatrix2D b) throws InvalidMatrixOperation {
+        /** Ensures compatibility. */
+        if (a.getRowCount() != b.getRowCount() || a.getColumnCount() != b.getColumnCount()) {
+            throw new InvalidMatrixOperation(a, b, "subtraction");
+        }
+        return FloatMatrix2D.subtractInto(a, b, new FloatMatrix2D(a.getRowCount(), a.getColumnCount()));
+    }
+
+    /**
+     * Subtracts the second matrix from the first and stores the difference
+     * in the destination matrix. All three must be of the same dimensions.
+     * The destination may be one of the inputs.
+     * @param a The first matrix.
+     * @param b The second matrix to subtract from the first.
+     * @param destination The matrix to store the difference in.
+     * @return The destination matrix.
+     */
+    public static FloatMatrix2D subtractInto(FloatMatrix2D a, FloatMatrix2D b, FloatMatrix2D destination) throws InvalidMatrixOperation {
+        /** Ensures compatibility. */
+        if (a.getRowCount() != b.getRowCount() || a.getColumnCount() != b.getColumnCount()) {
+            throw new InvalidMatrixOperation(a, b, "subtraction");
+        }
+        checkDestination(a, destination, "subtraction");
+
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int bIndex = b.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                destination.values[outIndex] = a.values[aIndex] - b.values[bIndex];
+                aIndex += a.columnStride;
+                bIndex += b.columnStride;
+                outIndex += destination.columnStride;
+            }
+        }
+        return destination;
+    }
+
+    /**
+     * Adds a scaled matrix to another (a + factor * b) and stores the
+     * result in the destination matrix. All three must be of the same
+     * dimensions. The destination may be one of the inputs, so
+     * scaledAdd(a, factor, b, a) accumulates factor * b into a.
+     * @param a The matrix to add to.
+     * @param factor The factor that b should be scaled by.
+     * @param b The matrix to scale and add.
+     * @param destination The matrix to store the result in.
+     * @return The destination matrix.
+     */
+    public static FloatMatrix2D scaledAdd(FloatMatrix2D a, float factor, FloatMatrix2D b, FloatMatrix2D destination) throws InvalidMatrixOperation {
+        /** Ensures compatibility. */
+        if (a.getRowCount() != b.getRowCount() || a.getColumnCount() != b.getColumnCount()) {
+            throw new InvalidMatrixOperation(a, b, "scaled addition");
+        }
+        checkDestination(a, destination, "scaled addition");
+
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int bIndex = b.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                destination.values[outIndex] = a.values[aIndex] + factor * b.values[bIndex];
+                aIndex += a.columnStride;
+                bIndex += b.columnStride;
+                outIndex += destination.columnStride;
+            }
+        }
+        return destination;
+    }
+
+    /**
+     * Multiplies a matrix by a scalar value.
+     * @param a The original matrix.
+     * @param factor The factor that the matrix should be scaled by.
+     * @return The product as a matrix.
+     */
+    public static FloatMatrix2D multiply(FloatMatrix2D a, float factor) {
+        return FloatMatrix2D.multiplyInto(a, factor, new FloatMatrix2D(a.getRowCount(), a.getColumnCount()));
+    }
+
+    /**
+     * Multiplies a matrix by a scalar value and stores the product in the
+     * destination matrix, which must be of the same dimensions. The
+     * destination may be the original matrix.
+     * @param a The original matrix.
+     * @param factor The factor that the matrix should be scaled by.
+     * @param destination The matrix to store the product in.
+     * @return The destination matrix.
+     */
+    public static FloatMatrix2D multiplyInto(FloatMatrix2D a, float factor, FloatMatrix2D destination) throws InvalidMatrixOperation {
+        checkDestination(a, destination, "scalar multiplication");
+
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                destination.values[outIndex] = a.values[aIndex] * factor;
+                aIndex += a.columnStride;
+                outIndex += destination.columnStride;
+            }
+        }
+        return destination;
+    }
+
+    /**
+     * Divides a matrix by a scalar value.
+     * @param a The original matrix.
+     * @param factor The factor that the matrix should be divided by.
+     * @return The product as a matrix.
+     */
+    public static FloatMatrix2D divide(FloatMatrix2D a, float factor) {
+        return FloatMatrix2D.divideInto(a, factor, new FloatMatrix2D(a.getRowCount(), a.getColumnCount()));
+    }
+
+    /**
+     * Divides a matrix by a scalar value and stores the quotient in the
+     * destination matrix, which must be of the same dimensions. The
+     * destination may be the original matrix.
+     * @param a The original matrix.
+     * @param factor The factor that the matrix should be divided by.
+     * @param destination The matrix to store the quotient in.
+     * @return The destination matrix.
+     */
+    public static FloatMatrix2D divideInto(FloatMatrix2D a, float factor, FloatMatrix2D destination) throws InvalidMatrixOperation {
+        checkDestination(a, destination, "scalar division");
+
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                destination.values[outIndex] = a.values[aIndex] / factor;
+                aIndex += a.columnStride;
+                outIndex += destination.columnStride;
+            }
+        }
+        return destination;
+    }
+
+    /**
+     * Multiplies a matrix by another matrix. Matrix dimensions must be compatible
+     * for matrix multiplication.
+     * @param a The first matrix.
+     * @param b The second matrix that multiplies the first.
+     * @return The product as a matrix.
+     */
+    public static FloatMatrix2D multiply(FloatMatrix2D a, FloatMatrix2D b) throws InvalidMatrixOperation {
+        /** Ensures compatibility. */
+        if (a.getColumnCount() != b.getRowCount()) {
+            throw new InvalidMatrixOperation(a, b, "multiplication");
+        }
+        return FloatMatrix2D.multiply(a, false, b, false, new FloatMatrix2D(a.getRowCount(), b.getColumnCount()), true, "multiplication");
+    }
+
+    /**
+     * Multiplies a matrix by another matrix and stores the product in the
+     * destination matrix, overwriting its values. The destination must have
+     * as many rows as a and as many columns as b.
+     * @param a The first matrix.
+     * @param b The second matrix that multiplies the first.
+     * @param destination The matrix to store the product in.
+     * @return The destination matrix.
+     */
+    public static FloatMatrix2D multiplyInto(FloatMatrix2D a, FloatMatrix2D b, FloatMatrix2D destination) throws InvalidMatrixOperation {
+        return FloatMatrix2D.multiply(a, false, b, false, destination, false, "multiplication");
+    }
+
+    /**
+     * Multiplies a matrix by another matrix and adds the product to the
+     * destination matrix (destination += a * b). The destination must have
+     * as many rows as a and as many columns as b.
+     * @param a The first matrix.
+     * @param b The second matrix that multiplies the first.
+     * @param destination The matrix to accumulate the product into.
+     * @return The destination matrix.
+     */
+    public static FloatMatrix2D multiplyAddInto(FloatMatrix2D a, FloatMatrix2D b, FloatMatrix2D destination) throws InvalidMatrixOperation {
+        return FloatMatrix2D.multiply(a, false, b, false, destination, true, "multiplication");
+    }
+
+    /**
+     * Multiplies the transpose of a matrix by another matrix (a^T * b)
+     * without copying the transpose. The row counts of a and b must match.
+     * @param a The first matrix, read as its transpose.
+     * @param b The second matrix that multiplies the first.
+     * @return The product as a matrix.
+     */
+    public static FloatMatrix2D transposeMultiply(FloatMatrix2D a, FloatMatrix2D b) throws InvalidMatrixOperation {
+        return FloatMatrix2D.multiply(a, true, b, false, new FloatMatrix2D(a.getColumnCount(), b.getColumnCount()), true, "transposed multiplication");
+    }
+
+    /**
+     * Multiplies the transpose of a matrix by another matrix (a^T * b)
+     * and stores the product in the destination matrix, overwriting its
+     * values. The destination must have as many rows as a has columns
+     * and as many columns as b.
+     * @param a The first matrix, read as its transpose.
+     * @param b The second matrix that multiplies the first.
+     * @param destination The matrix to store the product in.
+     * @return The destination matrix.
+     */
+    public static FloatMatrix2D transposeMultiplyInto(FloatMatrix2D a, FloatMatrix2D b, FloatMatrix2D destination) throws InvalidMatrixOperation {
+        return FloatMatrix2D.multiply(a, true, b, false, destination, false, "transposed multiplication");
+    }
+
+    /**
+     * Multiplies a matrix by the transpose of another matrix (a * b^T)
+     * without copying the transpose. The column counts of a and b must match.
+     * @param a The first matrix.
+     * @param b The second matrix, read as its transpose.
+     * @return The product as a matrix.
+     */
+    public static FloatMatrix2D multiplyTranspose(FloatMatrix2D a, FloatMatrix2D b) throws InvalidMatrixOperation {
+        return FloatMatrix2D.multiply(a, false, b, true, new FloatMatrix2D(a.getRowCount(), b.getRowCount()), true, "transposed multiplication");
+    }
+
+    /**
+     * Multiplies a matrix by the transpose of another matrix (a * b^T)
+     * and stores the product in the destination matrix, overwriting its
+     * values. The destination must have as many rows as a and as many
+     * columns as b has rows.
+     * @param a The first matrix.
+     * @param b The second matrix, read as its transpose.
+     * @param destination The matrix to store the product in.
+     * @return The destination matrix.
+     */
+    public static FloatMatrix2D multiplyTransposeInto(FloatMatrix2D a, FloatMatrix2D b, FloatMatrix2D destination) throws InvalidMatrixOperation {
+        return FloatMatrix2D.multiply(a, false, b, true, destination, false, "transposed multiplication");
+    }
+
+    /**
+     * Multiplies a matrix by the transpose of another matrix and adds the
+     * product to the destination matrix (destination += a * b^T). When a
+     * and b are single-columned this accumulates their outer product, as
+     * in the weight gradient delta * a^T.
+     * @param a The first matrix.
+     * @param b The second matrix, read as its transpose.
+     * @param destination The matrix to accumulate the product into.
+     * @return The destination matrix.
+     */
+    public static FloatMatrix2D multiplyTransposeAddInto(FloatMatrix2D a, FloatMatrix2D b, FloatMatrix2D destination) throws InvalidMatrixOperation {
+        return FloatMatrix2D.multiply(a, false, b, true, destination, true, "transposed multiplication");
+    }
+
+    /**
+     * Adds the outer product of two single-columned matrices to the
+     * destination matrix (destination += a * b^T).
+     * @param a The column matrix whose length is the destination's row count.
+     * @param b The column matrix whose length is the destination's column count.
+     * @param destination The matrix to accumulate the outer product into.
+     * @return The destination matrix.
+     */
+    public static FloatMatrix2D addOuterProduct(FloatMatrix2D a, FloatMatrix2D b, FloatMatrix2D destination) throws InvalidMatrixOperation {
+        if (a.getColumnCount() != 1 || b.getColumnCount() != 1) {
+            throw new InvalidMatrixOperation(a, b, "outer product");
+        }
+        return FloatMatrix2D.multiplyTransposeAddInto(a, b, destination);
+    }
+
+    /**
+     * Computes op(a) * op(b), where op transposes its matrix if requested,
+     * and either stores it in or adds it to the destination matrix.
+     * Transposed operands are read in place by swapping their strides.
+     * @param a The first matrix.
+     * @param transposeA Whether a should be read as its transpose.
+     * @param b The second matrix.
+     * @param transposeB Whether b should be read as its transpose.
+     * @param destination The matrix to store the product in.
+     * @param accumulate Whether to add to the destination's values
+     *                   instead of overwriting them.
+     * @param operation The name of the operation, for error messages.
+     * @return The destination matrix.
+     */
+    private static FloatMatrix2D multiply(FloatMatrix2D a, boolean transposeA, FloatMatrix2D b, boolean transposeB,
+            FloatMatrix2D destination, boolean accumulate, String operation) throws InvalidMatrixOperation {
+        int rowCount = (transposeA ? a.columnCount : a.rowCount);
+        int linComb = (transposeA ? a.rowCount : a.columnCount);
+        int columnCount = (transposeB ? b.rowCount : b.columnCount);
+
+        /** Ensures compatibility. */
+        if (linComb != (transposeB ? b.columnCount : b.rowCount)) {
+            throw new InvalidMatrixOperation(a, b, operation);
+        } else if (destination.getRowCount() != rowCount || destination.getColumnCount() != columnCount) {
+            throw new InvalidMatrixOperation(new FloatMatrix2D(rowCount, columnCount), destination, operation + " into destination");
+        }
+
+        /** The product cannot be written over one of its own inputs. */
+        if (destination.values == a.values || destination.values == b.values) {
+            FloatMatrix2D product = FloatMatrix2D.multiply(a, transposeA, b, transposeB, new FloatMatrix2D(rowCount, columnCount), true, operation);
+            return (accumulate ? FloatMatrix2D.addInto(destination, product, destination) : FloatMatrix2D.copyInto(product, destination));
+        }
+
+        if (!accumulate) {
+            FloatMatrix2D.fill(destination, 0.0f);
+        }
+        FloatMatrixMultiplier.multiplyAdd(rowCount, columnCount, linComb,
+            a.values, a.index(0, 0), (transposeA ? a.columnStride : a.rowStride), (transposeA ? a.rowStride : a.columnStride),
+            b.values, b.index(0, 0), (transposeB ? b.columnStride : b.rowStride), (transposeB ? b.rowStride : b.columnStride),
+            destination.values, destination.index(0, 0), destination.rowStride, destination.columnStride);
+        return destination;
+    }
+
+    /**
+     * Multiplies two matrices together in an element-wise
+     * fashion. Must be of the same dimensions.
+     * @param a The first matrix to multiply.
+     * @param b The second matrix to multiply.
+     * @return The product as a matrix.
+     */
+    public static FloatMatrix2D hadamardMultiply(FloatMatrix2D a, FloatMatrix2D b) throws InvalidMatrixOperation {
+        /** Ensures compatibility. */
+        if (a.getRowCount() != b.getRowCount() || a.getColumnCount() != b.getColumnCount()) {
+            throw new InvalidMatrixOperation(a, b, "Hadamard multiplication");
+        }
+        return FloatMatrix2D.hadamardMultiplyInto(a, b, new FloatMatrix2D(a.getRowCount(), a.getColumnCount()));
+    }
+
+    /**
+     * Multiplies two matrices together in an element-wise fashion and
+     * stores the product in the destination matrix. All three must be of
+     * the same dimensions. The destination may be one of the inputs.
+     * @param a The first matrix to multiply.
+     * @param b The second matrix to multiply.
+     * @param destination The matrix to store the product in.
+     * @return The destination matrix.
+     */
+    public static FloatMatrix2D hadamardMultiplyInto(FloatMatrix2D a, FloatMatrix2D b, FloatMatrix2D destination) throws InvalidMatrixOperation {
+        /** Ensures compatibility. */
+        if (a.getRowCount() != b.getRowCount() || a.getColumnCount() != b.getColumnCount()) {
+            throw new InvalidMatrixOperation(a, b, "Hadamard multiplication");
+        }
+        checkDestination(a, destination, "Hadamard multiplication");
+
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int bIndex = b.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                destination.values[outIndex] = a.values[aIndex] * b.values[bIndex];
+                aIndex += a.columnStride;
+                bIndex += b.columnStride;
+                outIndex += destination.columnStride;
+            }
+        }
+        return destination;
+    }
+
+    /**
+     * Raises the entries of the a matrix to a given power.
+     * @param a The matrix.
+     * @param power The power to raise the entries of the matrix to.
+     * @return The resulting matrix of entries raised to an inputted power.
+     */
+    public static FloatMatrix2D pow(FloatMatrix2D a, float power) {
+        return FloatMatrix2D.powInto(a, power, new FloatMatrix2D(a.getRowCount(), a.getColumnCount()));
+    }
+
+    /**
+     * Raises the entries of a matrix to a given power and stores them in
+     * the destination matrix, which must be of the same dimensions. The
+     * destination may be the original matrix.
+     * @param a The matrix.
+     * @param power The power to raise the entries of the matrix to.
+     * @param destination The matrix to store the result in.
+     * @return The destination matrix.
+     */
+    public static FloatMatrix2D powInto(FloatMatrix2D a, float power, FloatMatrix2D destination) throws InvalidMatrixOperation {
+        checkDestination(a, destination, "exponentiation");
+
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                float value = a.values[aIndex];
+                /** Squaring is by far the most common power, and much cheaper than Math.pow. */
+                destination.values[outIndex] = (power == 2.0f ? value * value : (float) Math.pow(value, power));
+                aIndex += a.columnStride;
+                outIndex += destination.columnStride;
+            }
+        }
+        return destination;
+    }
+
+    /**
+     * Finds the absolute value of each entry in the
+     * matrix.
+     * @param a The matrix.
+     * @return The resulting matrix of positive entries.
+     */
+    public static FloatMatrix2D abs(FloatMatrix2D a) {
+        return FloatMatrix2D.absInto(a, new FloatMatrix2D(a.getRowCount(), a.getColumnCount()));
+    }
+
+    /**
+     * Finds the absolute value of each entry in a matrix and stores them
+     * in the destination matrix, which must be of the same dimensions.
+     * The destination may be the original matrix.
+     * @param a The matrix.
+     * @param destination The matrix to store the result in.
+     * @return The destination matrix.
+     */
+    public static FloatMatrix2D absInto(FloatMatrix2D a, FloatMatrix2D destination) throws InvalidMatrixOperation {
+        checkDestination(a, destination, "absolute value");
+
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                destination.values[outIndex] = Math.abs(a.values[aIndex]);
+                aIndex += a.columnStride;
+                outIndex += destination.columnStride;
+            }
+        }
+        return destination;
+    }
+
+    /**
+     * Copies the values of a matrix into the destination matrix,
+     * which must be of the same dimensions.
+     * @param a The matrix to copy.
+     * @param destination The matrix to copy the values into.
+     * @return The destination matrix.
+     */
+    public static FloatMatrix2D copyInto(FloatMatrix2D a, FloatMatrix2D destination) throws InvalidMatrixOperation {
+        checkDestination(a, destination, "copying");
+
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                destination.values[outIndex] = a.values[aIndex];
+                aIndex += a.columnStride;
+                outIndex += destination.columnStride;
+            }
+        }
+        return destination;
+    }
+
+    /**
+     * Sets every entry of a matrix to the given value.
+     * @param a The matrix to fill.
+     * @param value The value to set the entries to.
+     * @return The filled matrix.
+     */
+    public static FloatMatrix2D fill(FloatMatrix2D a, float value) {
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                a.values[aIndex] = value;
+                aIndex += a.columnStride;
+            }
+        }
+        return a;
+    }
+
+    /**
+     * Creates a matrix of the inputted dimensions with random values
+     * within the provided bounds.
+     * @param rows The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     * @param min The minimum random value (inclusive).
+     * @param max The maximum random value (exclusive).
+     * @return The randomly generated matrix.
+     */
+    public static FloatMatrix2D random(int rows, int columns, float min, float max) {
+        FloatMatrix2D randomMatrix = new FloatMatrix2D(rows, columns);
+        for (int row = 0; row < rows; row += 1) {
+            for (int col = 0; col < columns; col += 1) {
+                randomMatrix.set(row, col, (float) (Math.random() * (max - min) + min));
+            }
+        }
+        return randomMatrix;
+    }
+
+    /**
+     * Transposes the inputted matrix.
+     * @param a the inputted matrix.
+     * @return the transposed matrix.
+     */
+    public static FloatMatrix2D transpose(FloatMatrix2D a)
+        throws InvalidMatrixArrayValue, InvalidMatrixIndex, InvalidMatrixOperation {
+        FloatMatrix2D out = new FloatMatrix2D(a.getColumnCount(), a.getRowCount());
+        for (int row = 0; row < out.rowCount; row += 1) {
+            int aIndex = a.index(0, row);
+            int outIndex = out.index(row, 0);
+            for (int col = 0; col < out.columnCount; col += 1) {
+                out.values[outIndex] = a.values[aIndex];
+                aIndex += a.rowStride;
+                outIndex += out.columnStride;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Splits a matrix into an array of matrices
+     * of its rows.
+     * @param a the matrix to split.
+     * @return the array of single-rowed matrices.
+     */
+    public static FloatMatrix2D[] getRows(FloatMatrix2D a) {
+        FloatMatrix2D[] out = new FloatMatrix2D[a.getRowCount()];
+        for (int index = 0; index < a.getRowCount(); index += 1) {
+            out[index] = new FloatMatrix2D(1, a.getColumnCount());
+            for (int col = 0; col < a.getColumnCount(); col += 1) {
+                out[index].set(0, col, a.get(index, col));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Splits a matrix into an array of matrices
+     * of its columns.
+     * @param a the matrix to split.
+     * @return the array of single-columned matrices.
+     */
+    public static FloatMatrix2D[] getColumns(FloatMatrix2D a) {
+        FloatMatrix2D[] out = new FloatMatrix2D[a.getColumnCount()];
+        for (int index = 0; index < a.getColumnCount(); index += 1) {
+            out[index] = new FloatMatrix2D(a.getRowCount(), 1);
+            for (int row = 0; row < a.getRowCount(); row += 1) {
+                out[index].set(row, 0, a.get(row, index));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Returns a sub-matrix of the inputted matrix
+     * bounded by the given indices.
+     * @param a the original matrix.
+     * @param rowStart the index of the top row (inclusive).
+     * @param colStart the index of the left column (inclusive).
+     * @param rowEnd the index of the bottom row + 1 (inclusive).
+     * @param colEnd the index of the right column + 1 (inclusive).
+     * @return
+     */
+    public static FloatMatrix2D subMatrix(FloatMatrix2D a, int rowStart, int colStart, int rowEnd, int colEnd) {
+        FloatMatrix2D subMatrix = new FloatMatrix2D(rowEnd - rowStart, colEnd - colStart);
+        for (int row = rowStart; row < rowEnd; row += 1) {
+            for (int column = colStart; column < colEnd; column += 1) {
+                subMatrix.set(row - rowStart, column - colStart, a.get(row, column));
+            }
+        }
+        return subMatrix;
+    }
+    
+    /**
+     * Adds two arrays of matrices together, item by item.
+     * Matrices and arrays must be of the same dimensions.
+     * @param a The first matrix array to add.
+     * @param b The second matrix array to add.
+     * @return The summed matrix array.
+     */
+    public static FloatMatrix2D[] add(FloatMatrix2D[] a, FloatMatrix2D[] b) throws InvalidMatrixOperation {
+        if (a == null || b == null) {
+            throw new InvalidMatrixOperation(new FloatMatrix2D(0,0), new FloatMatrix2D(0,0), "array addition");
+        }
+        FloatMatrix2D[] summedMatrices = new FloatMatrix2D[Math.max(a.length, b.length)];
+        for (int index = 0; index < summedMatrices.length; index += 1) {
+            FloatMatrix2D a_index;
+            FloatMatrix2D b_index;
+            if (a.length > 0 && a[0] != null) {
+                a_index = FloatMatrix2D.multiply(a[0], 1);
+                b_index = FloatMatrix2D.multiply(a[0], 0);
+            } else if (b.length > 0 && b[0] != null) {
+                a_index = FloatMatrix2D.multiply(b[0], 0);
+                b_index = FloatMatrix2D.multiply(b[0], 1);
+            } else {
+                throw new InvalidMatrixOperation(new FloatMatrix2D(0,0), new FloatMatrix2D(0,0), "array addition");
+            }
+            if (index < a.length && a[index] != null) {
+                a_index = a[index];
+            }
+            if (index < b.length && b[index] != null) {
+                b_index = b[index];
+            }
+            summedMatrices[index] = FloatMatrix2D.add(a_index, b_index);
+        }
+        return summedMatrices;
+    }
+    
+    /**
+     * Adds two arrays of matrices together, item by item, storing each sum
+     * in the matrix at the same index of the destination array. Arrays and
+     * matrices must be of the same dimensions. The destination may be one
+     * of the inputs.
+     * @param a The first matrix array to add.
+     * @param b The second matrix array to add.
+     * @param destination The matrix array to store the sums in.
+     * @return The destination matrix array.
+     */
+    public static FloatMatrix2D[] addInto(FloatMatrix2D[] a, FloatMatrix2D[] b, FloatMatrix2D[] destination) throws InvalidMatrixOperation {
+        if (a == null || b == null || destination == null || a.length != b.length || a.length != destination.length) {
+            throw new InvalidMatrixOperation(new FloatMatrix2D(0,0), new FloatMatrix2D(0,0), "array addition");
+        }
+        for (int index = 0; index < a.length; index += 1) {
+            FloatMatrix2D.addInto(a[index], b[index], destination[index]);
+        }
+        return destination;
+    }
+
+    /**
+     * Adds all like elements of an array of matrices together, item by item.
+     * Matrices must be of the same dimensions.
+     * @param a The matrix array to sum.
+     * @return The summed array.
+     */
+    public static FloatMatrix2D add(FloatMatrix2D[] a) throws InvalidMatrixOperation {
+        FloatMatrix2D summedMatrix = a[0];
+        for (int index = 1; index < a.length; index += 1) {
+            summedMatrix = FloatMatrix2D.add(summedMatrix, a[index]);
+        }
+        return summedMatrix;
+    }
+    
+    /**
+     * Multiplies all elements in an array of matrices
+     * by a factor.
+     * @param a The matrix array to multiply.
+     * @return The scaled array.
+     */
+    public static FloatMatrix2D[] multiply(FloatMatrix2D[] a, float factor) throws InvalidMatrixOperation {
+        FloatMatrix2D[] productMatrices = new FloatMatrix2D[a.length];
+        for (int index = 0; index < a.length; index += 1) {
+            productMatrices[index] = FloatMatrix2D.multiply(a[index], factor);
+        }
+        return productMatrices;
+    }
+
+    /**
+     * Sums the entries in the matrix into a scalar.
+     * @param a the matrix to sum.
+     * @return the sum of the entries.
+     */
+    public static float sumEntries(FloatMatrix2D a) {
+        float sum = 0.0f;
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            for (int column = 0; column < a.columnCount; column += 1) {
+                sum += a.values[aIndex];
+                aIndex += a.columnStride;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the determinant of a matrix.
+     * @param a the matrix to find the determinant.
+     * @return the determinant of the matrix.
+     * @throws InvalidMatrixOperation if the matrix is not square.
+     */
+    public static float determinant(FloatMatrix2D a) throws InvalidMatrixOperation {
+        if (a.getColumnCount() != a.getRowCount()) {
+            throw new InvalidMatrixOperation(a, a, "calculating the determinant");
+        } else if (a.getColumnCount() == 1) {
+            return a.get(0, 0);
+        } else {
+            float sum = 0.0f;
+            for (int index = 0; index < a.getColumnCount(); index += 1) {
+                FloatMatrix2D minor = FloatMatrix2D.minor(a, 0, index);
+                sum += a.get(0, index) * FloatMatrix2D.determinant(minor) * ((index % 2) * (-2) + 1);
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Returns the cofactors of a matrix.
+     * @param a the matrix to find the cofactors of.
+     * @return the cofactor matrix.
+     * @throws InvalidMatrixOperation if the matrix is not square.
+     */
+    public static FloatMatrix2D cofactors(FloatMatrix2D a) throws InvalidMatrixOperation {
+        if (a.getColumnCount() != a.getRowCount()) {
+            throw new InvalidMatrixOperation(a, a, "calculating the cofactors");
+        } else {
+            FloatMatrix2D cofactors = new FloatMatrix2D(a.getRowCount(), a.getColumnCount());
+            for (int row = 0; row < a.getColumnCount(); row += 1) {
+                for (int column = 0; column < a.getColumnCount(); column += 1) {
+                    FloatMatrix2D minor = FloatMatrix2D.minor(a, row, column);
+                    float det = FloatMatrix2D.determinant(minor);
+                    cofactors.set(row, column, det * (((row + column) % 2) * (-2) + 1));
+                }
+            }
+            return cofactors;
+        }
+    }
+
+    /**
+     * Returns the adjoint of a matrix.
+     * @param a the matrix to find the adjoint of.
+     * @return the adjoint matrix.
+     * @throws InvalidMatrixOperation if the matrix is not square.
+     */
+    public static FloatMatrix2D adjoint(FloatMatrix2D a) throws InvalidMatrixOperation {
+        if (a.getColumnCount() != a.getRowCount()) {
+            throw new InvalidMatrixOperation(a, a, "calculating the adjoint matrix");
+        } else {
+            return FloatMatrix2D.transpose(FloatMatrix2D.cofactors(a));
+        }
+    }
+
+    /**
+     * Returns the inverse of a matrix, if there is one.
+     * @param a the matrix to find the inverse of.
+     * @return the inverse matrix.
+     * @throws InvalidMatrixOperation if the matrix is not square or
+     *                                if its determinant is zero.
+     */
+    public static FloatMatrix2D inverse(FloatMatrix2D a) throws InvalidMatrixOperation {
+        if (a.getColumnCount() != a.getRowCount()) {
+            throw new InvalidMatrixOperation(a, a, "calculating the adjoint matrix");
+        } else {
+            float det = FloatMatrix2D.determinant(a);
+            if (Math.abs(det) > 0.000001f) {
+                return FloatMatrix2D.divide(FloatMatrix2D.adjoint(a), det);
+            } else {
+                throw new InvalidMatrixOperation(a, a, "inversion; determinant is zero.");
+            }
+        }
+    }
+    
+    /**
+     * Returns the minor of a matrix at a given index.
+     * @param a the matrix to find the minor.
+     * @param row the row index.
+     * @param column the column index.
+     * @return
+     */
+    public static FloatMatrix2D minor(FloatMatrix2D a, int row, int column) throws InvalidMatrixOperation {
+        if (a.getColumnCount() == 1) {
+            return a;
+        } else {
+            FloatMatrix2D minor = new FloatMatrix2D(a.getRowCount() - 1, a.getColumnCount() - 1);
+            for (int r = 0; r < a.getRowCount(); r += 1) {
+                if (r != row) {
+                    for (int c = 0; c < a.getColumnCount(); c += 1) {
+                        if (c != column) {
+                            minor.set((r > row ? r - 1 : r), (c > column ? c - 1 : c), a.get(r, c));
+                        }
+                    }
+                }
+            }
+            return minor;
+        }
+    }
+
+    /**
+     * Returns the index of the first occurrence of
+     * the entry with the max value in the matrix.
+     * @param a the matrix to find the max value of.
+     * @return the index of the first occurence of the
+     * entry with the max value in the matrix.
+     */
+    public static Tuple<Integer, Integer> getIndexOfMax(FloatMatrix2D a) {
+        float maxValue = Float.MIN_VALUE;
+        Tuple<Integer, Integer> maxIndex = new Tuple<>(0, 0);
+        for (int row = 0; row < a.getRowCount(); row += 1) {
+            for (int col = 0; col < a.getColumnCount(); col += 1) {
+                if (a.get(row, col) > maxValue) {
+                    maxValue = a.get(row, col);
+                    maxIndex = new Tuple<>(row, col);
+                }
+            }
+        }
+        return maxIndex;
+    }
+
+    /**
+     * Given a 2D matrix of mxn dimensions, it
+     * returns an mxnx1 3D matrix.
+     * @param a the 2D matrix to turn to 3D.
+     * @return the 3D version of the matrix.
+     */
+    public static FloatMatrix3D to3D(FloatMatrix2D a) throws NullPointerException {
+        if (a == null) {
+            throw new NullPointerException();
+        }
+
+        FloatMatrix3D threeDmatrix = new FloatMatrix3D(a.getRowCount(), a.getColumnCount(), 1);
+        for (int row = 0; row < a.getRowCount(); row += 1) {
+            for (int col = 0; col < a.getColumnCount(); col += 1) {
+                threeDmatrix.set(row, col, 0, a.get(row, col));
+            }
+        }
+
+        return threeDmatrix;
+    }
+
+    /**
+     * Ensures that a destination matrix has the same dimensions as the
+     * matrix an element-wise operation is applied to.
+     * @param a The matrix the operation is applied to.
+     * @param destination The matrix the result will be stored in.
+     * @param operation The name of the operation.
+     * @throws InvalidMatrixOperation if the dimensions differ.
+     */
+    private static void checkDestination(FloatMatrix2D a, FloatMatrix2D destination, String operation) throws InvalidMatrixOperation {
+        if (destination == null || a.getRowCount() != destination.getRowCount() || a.getColumnCount() != destination.getColumnCount()) {
+            throw new InvalidMatrixOperation(a, (destination == null ? new FloatMatrix2D() : destination), operation + " into destination");
+        }
+    }
+
+    /**
+     * Determines whether the matrix stores its entries
+     * in one unbroken row-major run.
+     * @return whether the matrix is contiguous.
+     */
+    boolean isContiguous() {
+        return columnStride == 1 && (rowStride == columnCount || rowCount <= 1);
+    }
+
+    /**
+     * Returns the array the matrix stores its entries in. Entry (row, column)
+     * is at getArrayOffset() + row * rowStride + column * columnStride.
+     * @return the storage of the matrix.
+     */
+    float[] getArray() {
+        return values;
+    }
+
+    /**
+     * Returns the position of entry (0, 0) in the storage array.
+     * @return the position of the first entry.
+     */
+    int getArrayOffset() {
+        return index(0, 0);
+    }
+
+    /**
+     * Returns the position of an entry in the values array.
+     * @param row The row of the entry.
+     * @param column The column of the entry.
+     * @return The position of the entry in the values array.
+     */
+    private int index(int row, int column) {
+        return row * rowStride + column * columnStride;
+    }
+
+    /**
+     * Gets a value at a specified index. Indices should be valid.
+     * @param row The row the value is in.
+     * @param column The column the value is in.
+     * @return The value of the specified index.
+     */
+    public float get(int row, int column) {
+        return values[index(row, column)];
+    }
+
+    /**
+     * Sets a value at a specified index. Indices should be valid.
+     * @param row The row of the value to modify.
+     * @param column The column of the value to modify.
+     * @param value The value to set the specified index to.
+     * @throws InvalidMatrixIndex if the index is invalid
+     */
+    public void set(int row, int column, float value) throws InvalidMatrixIndex {
+        if (row > getRowCount() - 1 || column > getColumnCount() - 1) {
+            throw new InvalidMatrixIndex(this, row, column);
+        }
+        values[index(row, column)] = value;
+    }
+    
+    /**
+     * Sets the specified row. Index should be valid.
+     * @param row The index of the row to set.
+     * @param values A matrix of values, the first row of which
+     *               will be the new values of the row. Preferrably
+     *               single-rowed.
+     * @throws InvalidMatrixArrayValue if the length of values
+     *      is not the number of columns in the matrix.
+     * @throws InvalidMatrixIndex if the row index is invalid.
+     */
+    public void setRow(int row, FloatMatrix2D values) throws InvalidMatrixArrayValue, InvalidMatrixIndex {
+        int colCount = columnCount;
+
+        if (values.getColumnCount() != colCount) {
+            System.out.println(this);
+            System.out.println(values);
+            throw new InvalidMatrixArrayValue(colCount, values.getColumnCount(), "column");
+        } else if (row >= getRowCount()) {
+            throw new InvalidMatrixIndex(this, 0, row);
+        }
+
+        for (int col = 0; col < colCount; col += 1) {
+            this.values[index(row, col)] = values.get(0, col);
+        }
+    }
+    
+    /**
+     * Sets the specified column. Index should be valid.
+     * @param column The index of the column to set.
+     * @param values A matrix of values, the first column of which
+     *               will be the new values of the column. Preferrably
+     *               single-columned.
+     * @throws InvalidMatrixArrayValue if the length of values
+     *      is not the number of rows in the matrix.
+     * @throws InvalidMatrixIndex if the column index is invalid.
+     */
+    public void setColumn(int column, FloatMatrix2D values) throws InvalidMatrixArrayValue, InvalidMatrixIndex {
+        if (values.getRowCount() != rowCount) {
+            throw new InvalidMatrixArrayValue(rowCount, values.getRowCount(), "column");
+        } else if (column >= getColumnCount()) {
+            throw new InvalidMatrixIndex(this, 0, column);
+        }
+
+        for (int row = 0; row < rowCount; row += 1) {
+            this.values[index(row, column)] = values.get(row, 0);
+        }
+    }
+
+    /**
+     * Returns the number of rows in the matrix.
+     * @return the number of rows in the matrix.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the number of columns in the matrix.
+     * @return the number of columns in the matrix.
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Gets the dimensions of the matrix as a String.
+     * @return the dimensions of the matrix.
+     */
+    public String getDimensions() {
+        return "" + getRowCount() + "x" + getColumnCount();
+    }
+
+    /**
+     * Determines equivalence of the matrix with another object.
+     * @param other The object to compare to.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (other == null || !(other instanceof FloatMatrix2D)) {
+            return false;
+        }
+
+        final FloatMatrix2D otherMatrix = (FloatMatrix2D) other;
+        
+        if (getColumnCount() != otherMatrix.getColumnCount() || getRowCount() != otherMatrix.getRowCount()) {
+            return false;
+        }
+        final int rowCount = getRowCount();
+        final int columnCount = getColumnCount();
+
+        for (int row = 0; row < rowCount; row += 1) {
+            for (int col = 0; col < columnCount; col += 1) {
+                if (get(row, col) != otherMatrix.get(row, col)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a hash code of the dimensions and entries of the
+     * matrix, consistent with equals.
+     */
+    @Override
+    public int hashCode() {
+        int hash = 31 * getRowCount() + getColumnCount();
+        for (int row = 0; row < getRowCount(); row += 1) {
+            for (int col = 0; col < getColumnCount(); col += 1) {
+                /** Adding 0.0f turns -0.0f into 0.0f, which equals treats as the same entry. */
+                hash = 31 * hash + Float.hashCode(get(row, col) + 0.0f);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Returns a String representation of the matrix.
+     * @return a String representation of the matrix.
+     */
+    @Override
+    public String toString() {
+        String out = "\n";
+        for (int row = 0; row < rowCount; row++) {
+            out += "[  ";
+            for (int col = 0; col < columnCount; col++) {
+                out += get(row, col) + "  ";
+            }
+            out += (row == rowCount - 1 ? "]" : "]\n");
+        }
+        return out;
+    }
+}
\ No newline at end of file
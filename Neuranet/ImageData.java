@@ -41,7 +41,8 @@ public class ImageData {
             return null;
         }
 
-        Matrix3D out = new Matrix3D(width, height, 1);
+        /** One flat array of height x width pixels. */
+        Matrix3D out = new Matrix3D(height, width, 1);
 
         /** Downscales or upscales the image to the specified width / height. */
         for (int row = 0; row < height; row += 1) {
@@ -0,0 +1,243 @@
+package Neuranet;
+
+import Neuranet.RuntimeExceptions.InvalidMatrixOperation;
+
+/**
+ * Class representing the LU factorization of a square matrix
+ * with partial (row) pivoting, so that P * A = L * U, where P is a
+ * permutation matrix, L is unit lower triangular and U is upper
+ * triangular.
+ *
+ * The factorization takes O(n^3) time once; the determinant then
+ * takes O(n) time, and each solve takes O(n^2) time per right-hand
+ * side column. Matrix2D.determinant, Matrix2D.inverse and
+ * Matrix2D.solve are built on this class.
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+public class LUDecomposition {
+    /** The number of rows and columns of the factored matrix. */
+    private final int size;
+
+    /**
+     * The factors, stored row-major in one array. The strict lower
+     * triangle holds L (whose diagonal of ones is not stored), and
+     * the upper triangle including the diagonal holds U.
+     */
+    private final double[] lu;
+
+    /** pivot[row] is the row of the original matrix moved to row. */
+    private final int[] pivot;
+
+    /** 1 if an even number of rows were swapped, -1 otherwise. */
+    private final int pivotSign;
+
+    /** Whether a pivot was too small to divide by. */
+    private final boolean singular;
+
+    /**
+     * Factors a square matrix.
+     * @param a the matrix to factor. It is not modified.
+     * @throws InvalidMatrixOperation if the matrix is not square.
+     */
+    public LUDecomposition(Matrix2D a) throws InvalidMatrixOperation {
+        if (a.getRowCount() != a.getColumnCount()) {
+            throw new InvalidMatrixOperation(a, a, "LU decomposition");
+        }
+        size = a.getRowCount();
+        lu = new double[size * size];
+        pivot = new int[size];
+
+        double largest = 0.0;
+        for (int row = 0; row < size; row += 1) {
+            pivot[row] = row;
+            for (int col = 0; col < size; col += 1) {
+                lu[row * size + col] = a.get(row, col);
+                largest = Math.max(largest, Math.abs(lu[row * size + col]));
+            }
+        }
+        /** Pivots at or below this size are treated as zero. */
+        double tolerance = largest * size * Math.ulp(1.0);
+
+        int sign = 1;
+        boolean isSingular = false;
+        ElementwiseKernels kernels = ElementwiseKernels.INSTANCE;
+        for (int k = 0; k < size; k += 1) {
+            /** Chooses the row with the largest entry in this column as the pivot row. */
+            int pivotRow = k;
+            for (int row = k + 1; row < size; row += 1) {
+                if (Math.abs(lu[row * size + k]) > Math.abs(lu[pivotRow * size + k])) {
+                    pivotRow = row;
+                }
+            }
+            if (pivotRow != k) {
+                for (int col = 0; col < size; col += 1) {
+                    double temp = lu[k * size + col];
+                    lu[k * size + col] = lu[pivotRow * size + col];
+                    lu[pivotRow * size + col] = temp;
+                }
+                int temp = pivot[k];
+                pivot[k] = pivot[pivotRow];
+                pivot[pivotRow] = temp;
+                sign = -sign;
+            }
+
+            double pivotValue = lu[k * size + k];
+            if (Math.abs(pivotValue) <= tolerance) {
+                isSingular = true;
+                continue;
+            }
+            /** Eliminates the column below the pivot, one contiguous row at a time. */
+            int trailing = size - k - 1;
+            for (int row = k + 1; row < size; row += 1) {
+                double factor = lu[row * size + k] / pivotValue;
+                lu[row * size + k] = factor;
+                if (factor != 0.0) {
+                    kernels.scaledAdd(lu, row * size + k + 1, -factor, lu, k * size + k + 1, lu, row * size + k + 1, trailing);
+                }
+            }
+        }
+        pivotSign = sign;
+        singular = isSingular;
+    }
+
+    /**
+     * Returns the number of rows (and columns) of the factored matrix.
+     * @return the size of the matrix.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns whether the factored matrix is singular, to within
+     * rounding error relative to its largest entry.
+     * @return whether the matrix is singular.
+     */
+    public boolean isSingular() {
+        return singular;
+    }
+
+    /**
+     * Returns the determinant of the factored matrix.
+     * @return the determinant, the signed product of the pivots.
+     */
+    public double getDeterminant() {
+        double det = pivotSign;
+        for (int index = 0; index < size; index += 1) {
+            det *= lu[index * size + index];
+        }
+        return det;
+    }
+
+    /**
+     * Returns the unit lower triangular factor L.
+     * @return the matrix L.
+     */
+    public Matrix2D getLower() {
+        Matrix2D lower = new Matrix2D(size, size);
+        for (int row = 0; row < size; row += 1) {
+            for (int col = 0; col < row; col += 1) {
+                lower.set(row, col, lu[row * size + col]);
+            }
+            lower.set(row, row, 1.0);
+        }
+        return lower;
+    }
+
+    /**
+     * Returns the upper triangular factor U.
+     * @return the matrix U.
+     */
+    public Matrix2D getUpper() {
+        Matrix2D upper = new Matrix2D(size, size);
+        for (int row = 0; row < size; row += 1) {
+            for (int col = row; col < size; col += 1) {
+                upper.set(row, col, lu[row * size + col]);
+            }
+        }
+        return upper;
+    }
+
+    /**
+     * Returns the row permutation. Row i of P * A is
+     * row getPivot()[i] of A.
+     * @return a copy of the pivot indices.
+     */
+    public int[] getPivot() {
+        return pivot.clone();
+    }
+
+    /**
+     * Solves A * X = B for X, where A is the factored matrix.
+     * @param b the right-hand side, with one column per system to solve.
+     * @return the solution X, with the same dimensions as b.
+     * @throws InvalidMatrixOperation if b does not have as many rows as A,
+     *                                or if A is singular.
+     */
+    public Matrix2D solve(Matrix2D b) throws InvalidMatrixOperation {
+        int columnCount = b.getColumnCount();
+        Matrix2D solution = new Matrix2D(size, columnCount);
+        if (b.getRowCount() != size) {
+            throw new InvalidMatrixOperation(getUpper(), b, "solving a linear system");
+        } else if (singular) {
+            throw new InvalidMatrixOperation(getUpper(), b, "solving a linear system; matrix is singular");
+        }
+        /** Applies the row permutation: X = P * B. */
+        double[] x = solution.getArray();
+        for (int row = 0; row < size; row += 1) {
+            for (int col = 0; col < columnCount; col += 1) {
+                x[row * columnCount + col] = b.get(pivot[row], col);
+            }
+        }
+        substitute(x, columnCount);
+        return solution;
+    }
+
+    /**
+     * Returns the inverse of the factored matrix.
+     * @return the inverse matrix.
+     * @throws InvalidMatrixOperation if the matrix is singular.
+     */
+    public Matrix2D getInverse() throws InvalidMatrixOperation {
+        Matrix2D inverse = new Matrix2D(size, size);
+        if (singular) {
+            throw new InvalidMatrixOperation(inverse, inverse, "inversion; matrix is singular");
+        }
+        /** Solves against the identity with its rows already permuted. */
+        double[] x = inverse.getArray();
+        for (int row = 0; row < size; row += 1) {
+            x[row * size + pivot[row]] = 1.0;
+        }
+        substitute(x, size);
+        return inverse;
+    }
+
+    /**
+     * Overwrites a permuted right-hand side with the solution, by
+     * forward substitution with L and then back substitution with U.
+     * Both passes update whole rows of the right-hand side at once.
+     * @param x the permuted right-hand side, stored row-major.
+     * @param columnCount the number of right-hand side columns.
+     */
+    private void substitute(double[] x, int columnCount) {
+        ElementwiseKernels kernels = ElementwiseKernels.INSTANCE;
+        for (int row = 1; row < size; row += 1) {
+            for (int k = 0; k < row; k += 1) {
+                double factor = lu[row * size + k];
+                if (factor != 0.0) {
+                    kernels.scaledAdd(x, row * columnCount, -factor, x, k * columnCount, x, row * columnCount, columnCount);
+                }
+            }
+        }
+        for (int row = size - 1; row >= 0; row -= 1) {
+            for (int k = row + 1; k < size; k += 1) {
+                double factor = lu[row * size + k];
+                if (factor != 0.0) {
+                    kernels.scaledAdd(x, row * columnCount, -factor, x, k * columnCount, x, row * columnCount, columnCount);
+                }
+            }
+            kernels.divide(x, row * columnCount, lu[row * size + row], x, row * columnCount, columnCount);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package Neuranet;
+
+import Neuranet.RuntimeExceptions.InvalidMatrixOperation;
+
+/**
+ * Enum that represents the loss function a network is
+ * trained to minimize, together with the output layer it needs.
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+public enum Loss {
+    /**
+     * The mean of the squared differences from the expected output,
+     * with the output layer using the network's own activation function.
+     */
+    MEAN_SQUARED_ERROR {
+        @Override
+        public double loss(Matrix2D expectedOutput, Matrix2D output) throws InvalidMatrixOperation {
+            return Network.loss(expectedOutput, output);
+        }
+
+        @Override
+        public Activation outputActivation(Activation activationType) {
+            return activationType;
+        }
+    },
+    /**
+     * A softmax output layer with the cross-entropy loss, the mean over
+     * input sets of -sum(y * ln(p)), for expected outputs that are
+     * probability distributions (usually one-hot classes). The gradient
+     * of the loss with respect to the output layer's z values is just
+     * p - y, so the softmax derivative is never computed.
+     */
+    SOFTMAX_CROSS_ENTROPY {
+        @Override
+        public double loss(Matrix2D expectedOutput, Matrix2D output) throws InvalidMatrixOperation {
+            return Network.crossEntropyLoss(expectedOutput, output);
+        }
+
+        @Override
+        public Activation outputActivation(Activation activationType) {
+            return Activation.SOFTMAX;
+        }
+    };
+
+    /**
+     * Computes the loss of a network's output.
+     * @param expectedOutput The true output of the inputs.
+     * @param output The output of the network's output layer.
+     * @return The loss of the output.
+     */
+    public abstract double loss(Matrix2D expectedOutput, Matrix2D output) throws InvalidMatrixOperation;
+
+    /**
+     * Returns the activation function of the output layer.
+     * @param activationType the activation function of the other layers.
+     * @return the activation function of the output layer.
+     */
+    public abstract Activation outputActivation(Activation activationType);
+}
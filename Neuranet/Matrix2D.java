@@ -1,5 +1,7 @@
 package Neuranet;
 
+import java.util.Arrays;
+
 import Neuranet.RuntimeExceptions.InvalidMatrixArrayValue;
 import Neuranet.RuntimeExceptions.InvalidMatrixIndex;
 import Neuranet.RuntimeExceptions.InvalidMatrixOperation;
@@ -10,15 +12,28 @@ import Neuranet.RuntimeExceptions.InvalidMatrixOperation;
  * @version 1.0.0
  */
 public class Matrix2D extends Matrix {
-    /** The values of the matrix. */
-    private double[][] values;
+    /**
+     * The values of the matrix, stored in row-major order. Views share
+     * the array of the matrix they were taken from.
+     */
+    private double[] values;
+    /** The position in the values array of entry (0, 0). */
+    private int offset;
+    /** The number of rows in the matrix. */
+    private int rowCount;
+    /** The number of columns in the matrix. */
+    private int columnCount;
+    /** The distance in the values array between two vertically adjacent entries. */
+    private int rowStride;
+    /** The distance in the values array between two horizontally adjacent entries. */
+    private int columnStride;
 
     /**
      * Default no-args constructor that creates
      * an empty matrix.
      */
     public Matrix2D() {
-        values = new double[0][0];
+        this(0, 0);
     }
 
     /**
@@ -27,19 +42,11 @@ public class Matrix2D extends Matrix {
      * The number of elements per row should be the same.
      */
     public Matrix2D(double[][] values) {
-        if (values == null) {
-            this.values = new double[0][0];
-            return;
-        }
-        
-        int rowCount = values.length;
-        int columnCount = (values.length > 0 ? values[0].length : 0);
-        
-        this.values = new double[rowCount][columnCount];
+        this(values == null ? 0 : values.length,
+            (values == null || values.length == 0 ? 0 : values[0].length));
+
         for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                this.values[row][col] = values[row][col];
-            }
+            System.arraycopy(values[row], 0, this.values, row * rowStride, columnCount);
         }
     }
 
@@ -49,7 +56,38 @@ public class Matrix2D extends Matrix {
      * @param columns The number of columns of the matrix.
      */
     public Matrix2D(int rows, int columns) {
-        this(new double[rows][columns]);
+        this(new double[rows * columns], rows, columns, columns, 1);
+    }
+
+    /**
+     * Creates a matrix over existing storage without copying it.
+     * @param values The storage of the matrix, or null if a subclass
+     *               stores its entries elsewhere and overrides get/set.
+     * @param rows The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     * @param rowStride The distance in values between vertically adjacent entries.
+     * @param columnStride The distance in values between horizontally adjacent entries.
+     */
+    Matrix2D(double[] values, int rows, int columns, int rowStride, int columnStride) {
+        this(values, 0, rows, columns, rowStride, columnStride);
+    }
+
+    /**
+     * Creates a matrix over part of existing storage without copying it.
+     * @param values The storage of the matrix.
+     * @param offset The position in values of entry (0, 0).
+     * @param rows The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     * @param rowStride The distance in values between vertically adjacent entries.
+     * @param columnStride The distance in values between horizontally adjacent entries.
+     */
+    Matrix2D(double[] values, int offset, int rows, int columns, int rowStride, int columnStride) {
+        this.values = values;
+        this.offset = offset;
+        this.rowCount = rows;
+        this.columnCount = columns;
+        this.rowStride = rowStride;
+        this.columnStride = columnStride;
     }
 
     /**
@@ -57,13 +95,24 @@ public class Matrix2D extends Matrix {
      * @param matrix The matrix to copy.
      */
     public Matrix2D(Matrix2D matrix) {
-        int rowCount = matrix.getRowCount();
-        int columnCount = matrix.getColumnCount();
+        this(matrix.getRowCount(), matrix.getColumnCount());
+
+        if (matrix.values == null) {
+            for (int row = 0; row < rowCount; row += 1) {
+                for (int col = 0; col < columnCount; col += 1) {
+                    values[index(row, col)] = matrix.get(row, col);
+                }
+            }
+            return;
+        }
 
-        values = new double[rowCount][columnCount];
         for (int row = 0; row < rowCount; row += 1) {
+            int from = matrix.index(row, 0);
+            int to = index(row, 0);
             for (int col = 0; col < columnCount; col += 1) {
-                values[row][col] = matrix.get(row, col);
+                values[to] = matrix.values[from];
+                from += matrix.columnStride;
+                to += columnStride;
             }
         }
     }
@@ -79,17 +128,49 @@ public class Matrix2D extends Matrix {
         if (a.getRowCount() != b.getRowCount() || a.getColumnCount() != b.getColumnCount()) {
             throw new InvalidMatrixOperation(a, b, "addition");
         }
+        return Matrix2D.addInto(a, b, new Matrix2D(a.getRowCount(), a.getColumnCount()));
+    }
 
-        int rowCount = a.getRowCount();
-        int columnCount = a.getColumnCount();
+    /**
+     * Adds two matrices together and stores the sum in the destination
+     * matrix. All three must be of the same dimensions. The destination
+     * may be one of the inputs, in which case the sum is done in place.
+     * @param a The first matrix to add.
+     * @param b The second matrix to add.
+     * @param destination The matrix to store the sum in.
+     * @return The destination matrix.
+     */
+    public static Matrix2D addInto(Matrix2D a, Matrix2D b, Matrix2D destination) throws InvalidMatrixOperation {
+        /** Ensures compatibility. */
+        if (a.getRowCount() != b.getRowCount() || a.getColumnCount() != b.getColumnCount()) {
+            throw new InvalidMatrixOperation(a, b, "addition");
+        }
+        checkDestination(a, destination, "addition");
+        if (!onHeap(a, b, destination)) {
+            for (int row = 0; row < a.rowCount; row += 1) {
+                for (int col = 0; col < a.columnCount; col += 1) {
+                    destination.set(row, col, a.get(row, col) + b.get(row, col));
+                }
+            }
+            return destination;
+        }
+        if (contiguous(a, b, destination)) {
+            ElementwiseKernels.INSTANCE.add(a.values, a.index(0, 0), b.values, b.index(0, 0), destination.values, destination.index(0, 0), a.rowCount * a.columnCount);
+            return destination;
+        }
 
-        Matrix2D sumMatrix = new Matrix2D(new double[rowCount][columnCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                sumMatrix.set(row, col, a.get(row, col) + b.get(row, col));
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int bIndex = b.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                destination.values[outIndex] = a.values[aIndex] + b.values[bIndex];
+                aIndex += a.columnStride;
+                bIndex += b.columnStride;
+                outIndex += destination.columnStride;
             }
         }
-        return sumMatrix;
+        return destination;
     }
 
     /**
@@ -103,17 +184,93 @@ public class Matrix2D extends Matrix {
         if (a.getRowCount() != b.getRowCount() || a.getColumnCount() != b.getColumnCount()) {
             throw new InvalidMatrixOperation(a, b, "subtraction");
         }
+        return Matrix2D.subtractInto(a, b, new Matrix2D(a.getRowCount(), a.getColumnCount()));
+    }
 
-        int rowCount = a.getRowCount();
-        int columnCount = a.getColumnCount();
-        
-        Matrix2D differenceMatrix = new Matrix2D(new double[rowCount][columnCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                differenceMatrix.set(row, col, a.get(row, col) - b.get(row, col));
+    /**
+     * Subtracts the second matrix from the first and stores the difference
+     * in the destination matrix. All three must be of the same dimensions.
+     * The destination may be one of the inputs.
+     * @param a The first matrix.
+     * @param b The second matrix to subtract from the first.
+     * @param destination The matrix to store the difference in.
+     * @return The destination matrix.
+     */
+    public static Matrix2D subtractInto(Matrix2D a, Matrix2D b, Matrix2D destination) throws InvalidMatrixOperation {
+        /** Ensures compatibility. */
+        if (a.getRowCount() != b.getRowCount() || a.getColumnCount() != b.getColumnCount()) {
+            throw new InvalidMatrixOperation(a, b, "subtraction");
+        }
+        checkDestination(a, destination, "subtraction");
+        if (!onHeap(a, b, destination)) {
+            for (int row = 0; row < a.rowCount; row += 1) {
+                for (int col = 0; col < a.columnCount; col += 1) {
+                    destination.set(row, col, a.get(row, col) - b.get(row, col));
+                }
+            }
+            return destination;
+        }
+        if (contiguous(a, b, destination)) {
+            ElementwiseKernels.INSTANCE.subtract(a.values, a.index(0, 0), b.values, b.index(0, 0), destination.values, destination.index(0, 0), a.rowCount * a.columnCount);
+            return destination;
+        }
+
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int bIndex = b.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                destination.values[outIndex] = a.values[aIndex] - b.values[bIndex];
+                aIndex += a.columnStride;
+                bIndex += b.columnStride;
+                outIndex += destination.columnStride;
+            }
+        }
+        return destination;
+    }
+
+    /**
+     * Adds a scaled matrix to another (a + factor * b) and stores the
+     * result in the destination matrix. All three must be of the same
+     * dimensions. The destination may be one of the inputs, so
+     * scaledAdd(a, factor, b, a) accumulates factor * b into a.
+     * @param a The matrix to add to.
+     * @param factor The factor that b should be scaled by.
+     * @param b The matrix to scale and add.
+     * @param destination The matrix to store the result in.
+     * @return The destination matrix.
+     */
+    public static Matrix2D scaledAdd(Matrix2D a, double factor, Matrix2D b, Matrix2D destination) throws InvalidMatrixOperation {
+        /** Ensures compatibility. */
+        if (a.getRowCount() != b.getRowCount() || a.getColumnCount() != b.getColumnCount()) {
+            throw new InvalidMatrixOperation(a, b, "scaled addition");
+        }
+        checkDestination(a, destination, "scaled addition");
+        if (!onHeap(a, b, destination)) {
+            for (int row = 0; row < a.rowCount; row += 1) {
+                for (int col = 0; col < a.columnCount; col += 1) {
+                    destination.set(row, col, a.get(row, col) + factor * b.get(row, col));
+                }
             }
+            return destination;
         }
-        return differenceMatrix;
+        if (contiguous(a, b, destination)) {
+            ElementwiseKernels.INSTANCE.scaledAdd(a.values, a.index(0, 0), factor, b.values, b.index(0, 0), destination.values, destination.index(0, 0), a.rowCount * a.columnCount);
+            return destination;
+        }
+
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int bIndex = b.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                destination.values[outIndex] = a.values[aIndex] + factor * b.values[bIndex];
+                aIndex += a.columnStride;
+                bIndex += b.columnStride;
+                outIndex += destination.columnStride;
+            }
+        }
+        return destination;
     }
 
     /**
@@ -123,16 +280,43 @@ public class Matrix2D extends Matrix {
      * @return The product as a matrix.
      */
     public static Matrix2D multiply(Matrix2D a, double factor) {
-        int rowCount = a.getRowCount();
-        int columnCount = a.getColumnCount();
+        return Matrix2D.multiplyInto(a, factor, new Matrix2D(a.getRowCount(), a.getColumnCount()));
+    }
 
-        Matrix2D productMatrix = new Matrix2D(new double[rowCount][columnCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                productMatrix.set(row, col, a.get(row, col) * factor);
+    /**
+     * Multiplies a matrix by a scalar value and stores the product in the
+     * destination matrix, which must be of the same dimensions. The
+     * destination may be the original matrix.
+     * @param a The original matrix.
+     * @param factor The factor that the matrix should be scaled by.
+     * @param destination The matrix to store the product in.
+     * @return The destination matrix.
+     */
+    public static Matrix2D multiplyInto(Matrix2D a, double factor, Matrix2D destination) throws InvalidMatrixOperation {
+        checkDestination(a, destination, "scalar multiplication");
+        if (!onHeap(a, a, destination)) {
+            for (int row = 0; row < a.rowCount; row += 1) {
+                for (int col = 0; col < a.columnCount; col += 1) {
+                    destination.set(row, col, a.get(row, col) * factor);
+                }
             }
+            return destination;
         }
-        return productMatrix;
+        if (contiguous(a, a, destination)) {
+            ElementwiseKernels.INSTANCE.scale(a.values, a.index(0, 0), factor, destination.values, destination.index(0, 0), a.rowCount * a.columnCount);
+            return destination;
+        }
+
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                destination.values[outIndex] = a.values[aIndex] * factor;
+                aIndex += a.columnStride;
+                outIndex += destination.columnStride;
+            }
+        }
+        return destination;
     }
 
     /**
@@ -142,16 +326,43 @@ public class Matrix2D extends Matrix {
      * @return The product as a matrix.
      */
     public static Matrix2D divide(Matrix2D a, double factor) {
-        int rowCount = a.getRowCount();
-        int columnCount = a.getColumnCount();
+        return Matrix2D.divideInto(a, factor, new Matrix2D(a.getRowCount(), a.getColumnCount()));
+    }
 
-        Matrix2D quotientMatrix = new Matrix2D(new double[rowCount][columnCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                quotientMatrix.set(row, col, a.get(row, col) / factor);
+    /**
+     * Divides a matrix by a scalar value and stores the quotient in the
+     * destination matrix, which must be of the same dimensions. The
+     * destination may be the original matrix.
+     * @param a The original matrix.
+     * @param factor The factor that the matrix should be divided by.
+     * @param destination The matrix to store the quotient in.
+     * @return The destination matrix.
+     */
+    public static Matrix2D divideInto(Matrix2D a, double factor, Matrix2D destination) throws InvalidMatrixOperation {
+        checkDestination(a, destination, "scalar division");
+        if (!onHeap(a, a, destination)) {
+            for (int row = 0; row < a.rowCount; row += 1) {
+                for (int col = 0; col < a.columnCount; col += 1) {
+                    destination.set(row, col, a.get(row, col) / factor);
+                }
+            }
+            return destination;
+        }
+        if (contiguous(a, a, destination)) {
+            ElementwiseKernels.INSTANCE.divide(a.values, a.index(0, 0), factor, destination.values, destination.index(0, 0), a.rowCount * a.columnCount);
+            return destination;
+        }
+
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                destination.values[outIndex] = a.values[aIndex] / factor;
+                aIndex += a.columnStride;
+                outIndex += destination.columnStride;
             }
         }
-        return quotientMatrix;
+        return destination;
     }
 
     /**
@@ -166,25 +377,268 @@ public class Matrix2D extends Matrix {
         if (a.getColumnCount() != b.getRowCount()) {
             throw new InvalidMatrixOperation(a, b, "multiplication");
         }
+        return Matrix2D.multiply(a, false, b, false, new Matrix2D(a.getRowCount(), b.getColumnCount()), true, "multiplication");
+    }
 
-        int rowCount = a.getRowCount();
-        int columnCount = b.getColumnCount();
-        
-        /** The number of terms for row/column multiplication. */
-        int linComb = a.getColumnCount();
+    /**
+     * Multiplies a matrix by another matrix and stores the product in the
+     * destination matrix, overwriting its values. The destination must have
+     * as many rows as a and as many columns as b.
+     * @param a The first matrix.
+     * @param b The second matrix that multiplies the first.
+     * @param destination The matrix to store the product in.
+     * @return The destination matrix.
+     */
+    public static Matrix2D multiplyInto(Matrix2D a, Matrix2D b, Matrix2D destination) throws InvalidMatrixOperation {
+        return Matrix2D.multiply(a, false, b, false, destination, false, "multiplication");
+    }
 
-        Matrix2D productMatrix = new Matrix2D(new double[rowCount][columnCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                /** Find linear combination between a's row and b's column. */
-                double sum = 0;
-                for (int i = 0; i < linComb; i += 1) {
-                    sum += a.get(row, i) * b.get(i, col);
-                }
-                productMatrix.set(row, col, sum);
+    /**
+     * Multiplies a matrix by another matrix and adds the product to the
+     * destination matrix (destination += a * b). The destination must have
+     * as many rows as a and as many columns as b.
+     * @param a The first matrix.
+     * @param b The second matrix that multiplies the first.
+     * @param destination The matrix to accumulate the product into.
+     * @return The destination matrix.
+     */
+    public static Matrix2D multiplyAddInto(Matrix2D a, Matrix2D b, Matrix2D destination) throws InvalidMatrixOperation {
+        return Matrix2D.multiply(a, false, b, false, destination, true, "multiplication");
+    }
+
+    /**
+     * Multiplies the transpose of a matrix by another matrix (a^T * b)
+     * without copying the transpose. The row counts of a and b must match.
+     * @param a The first matrix, read as its transpose.
+     * @param b The second matrix that multiplies the first.
+     * @return The product as a matrix.
+     */
+    public static Matrix2D transposeMultiply(Matrix2D a, Matrix2D b) throws InvalidMatrixOperation {
+        return Matrix2D.multiply(a, true, b, false, new Matrix2D(a.getColumnCount(), b.getColumnCount()), true, "transposed multiplication");
+    }
+
+    /**
+     * Multiplies the transpose of a matrix by another matrix (a^T * b)
+     * and stores the product in the destination matrix, overwriting its
+     * values. The destination must have as many rows as a has columns
+     * and as many columns as b.
+     * @param a The first matrix, read as its transpose.
+     * @param b The second matrix that multiplies the first.
+     * @param destination The matrix to store the product in.
+     * @return The destination matrix.
+     */
+    public static Matrix2D transposeMultiplyInto(Matrix2D a, Matrix2D b, Matrix2D destination) throws InvalidMatrixOperation {
+        return Matrix2D.multiply(a, true, b, false, destination, false, "transposed multiplication");
+    }
+
+    /**
+     * Multiplies a matrix by the transpose of another matrix (a * b^T)
+     * without copying the transpose. The column counts of a and b must match.
+     * @param a The first matrix.
+     * @param b The second matrix, read as its transpose.
+     * @return The product as a matrix.
+     */
+    public static Matrix2D multiplyTranspose(Matrix2D a, Matrix2D b) throws InvalidMatrixOperation {
+        return Matrix2D.multiply(a, false, b, true, new Matrix2D(a.getRowCount(), b.getRowCount()), true, "transposed multiplication");
+    }
+
+    /**
+     * Multiplies a matrix by the transpose of another matrix (a * b^T)
+     * and stores the product in the destination matrix, overwriting its
+     * values. The destination must have as many rows as a and as many
+     * columns as b has rows.
+     * @param a The first matrix.
+     * @param b The second matrix, read as its transpose.
+     * @param destination The matrix to store the product in.
+     * @return The destination matrix.
+     */
+    public static Matrix2D multiplyTransposeInto(Matrix2D a, Matrix2D b, Matrix2D destination) throws InvalidMatrixOperation {
+        return Matrix2D.multiply(a, false, b, true, destination, false, "transposed multiplication");
+    }
+
+    /**
+     * Multiplies a matrix by the transpose of another matrix and adds the
+     * product to the destination matrix (destination += a * b^T). When a
+     * and b are single-columned this accumulates their outer product, as
+     * in the weight gradient delta * a^T.
+     * @param a The first matrix.
+     * @param b The second matrix, read as its transpose.
+     * @param destination The matrix to accumulate the product into.
+     * @return The destination matrix.
+     */
+    public static Matrix2D multiplyTransposeAddInto(Matrix2D a, Matrix2D b, Matrix2D destination) throws InvalidMatrixOperation {
+        return Matrix2D.multiply(a, false, b, true, destination, true, "transposed multiplication");
+    }
+
+    /**
+     * Adds the outer product of two single-columned matrices to the
+     * destination matrix (destination += a * b^T).
+     * @param a The column matrix whose length is the destination's row count.
+     * @param b The column matrix whose length is the destination's column count.
+     * @param destination The matrix to accumulate the outer product into.
+     * @return The destination matrix.
+     */
+    public static Matrix2D addOuterProduct(Matrix2D a, Matrix2D b, Matrix2D destination) throws InvalidMatrixOperation {
+        if (a.getColumnCount() != 1 || b.getColumnCount() != 1) {
+            throw new InvalidMatrixOperation(a, b, "outer product");
+        }
+        return Matrix2D.multiplyTransposeAddInto(a, b, destination);
+    }
+
+    /**
+     * Computes op(a) * op(b), where op transposes its matrix if requested,
+     * and either stores it in or adds it to the destination matrix.
+     * Transposed operands are read in place by swapping their strides.
+     * @param a The first matrix.
+     * @param transposeA Whether a should be read as its transpose.
+     * @param b The second matrix.
+     * @param transposeB Whether b should be read as its transpose.
+     * @param destination The matrix to store the product in.
+     * @param accumulate Whether to add to the destination's values
+     *                   instead of overwriting them.
+     * @param operation The name of the operation, for error messages.
+     * @return The destination matrix.
+     */
+    private static Matrix2D multiply(Matrix2D a, boolean transposeA, Matrix2D b, boolean transposeB,
+            Matrix2D destination, boolean accumulate, String operation) throws InvalidMatrixOperation {
+        int rowCount = (transposeA ? a.columnCount : a.rowCount);
+        int linComb = (transposeA ? a.rowCount : a.columnCount);
+        int columnCount = (transposeB ? b.rowCount : b.columnCount);
+
+        /** Ensures compatibility. */
+        if (linComb != (transposeB ? b.columnCount : b.rowCount)) {
+            throw new InvalidMatrixOperation(a, b, operation);
+        } else if (destination.getRowCount() != rowCount || destination.getColumnCount() != columnCount) {
+            throw new InvalidMatrixOperation(new Matrix2D(rowCount, columnCount), destination, operation + " into destination");
+        }
+
+        /** Products with a sparse operand visit only its nonzero entries. */
+        if (a instanceof SparseMatrix2D || b instanceof SparseMatrix2D) {
+            return Matrix2D.multiplySparse(a, transposeA, b, transposeB, destination, accumulate);
+        }
+
+        /**
+         * Matrices stored off the heap are read and written in place through
+         * get and set; only a destination that is also an input is staged.
+         */
+        if (!onHeap(a, b, destination)) {
+            if (destination == a || destination == b) {
+                Matrix2D product = Matrix2D.multiply(a, transposeA, b, transposeB, new Matrix2D(rowCount, columnCount), true, operation);
+                return (accumulate ? Matrix2D.addInto(destination, product, destination) : Matrix2D.copyInto(product, destination));
+            }
+            if (!accumulate) {
+                Matrix2D.fill(destination, 0.0);
             }
+            MatrixMultiplier.multiplyAdd(a, transposeA, b, transposeB, destination);
+            return destination;
         }
-        return productMatrix;
+
+        /** The product cannot be written over one of its own inputs. */
+        if (destination.values == a.values || destination.values == b.values) {
+            Matrix2D product = Matrix2D.multiply(a, transposeA, b, transposeB, new Matrix2D(rowCount, columnCount), true, operation);
+            return (accumulate ? Matrix2D.addInto(destination, product, destination) : Matrix2D.copyInto(product, destination));
+        }
+
+        if (!accumulate) {
+            Matrix2D.fill(destination, 0.0);
+        }
+        MatrixMultiplier.multiplyAdd(rowCount, columnCount, linComb,
+            a.values, a.index(0, 0), (transposeA ? a.columnStride : a.rowStride), (transposeA ? a.rowStride : a.columnStride),
+            b.values, b.index(0, 0), (transposeB ? b.columnStride : b.rowStride), (transposeB ? b.rowStride : b.columnStride),
+            destination.values, destination.index(0, 0), destination.rowStride, destination.columnStride);
+        return destination;
+    }
+
+    /**
+     * Multiplies two matrices, at least one of which is sparse, and writes
+     * or adds the product to the destination. Dimensions must already have
+     * been checked. If both operands are sparse, b is made dense.
+     * @param a The first matrix.
+     * @param transposeA Whether a is read as its transpose.
+     * @param b The second matrix.
+     * @param transposeB Whether b is read as its transpose.
+     * @param destination The matrix to write the product to.
+     * @param accumulate Whether to add the product to the destination
+     *                   instead of overwriting it.
+     * @return The destination matrix.
+     */
+    private static Matrix2D multiplySparse(Matrix2D a, boolean transposeA, Matrix2D b, boolean transposeB,
+            Matrix2D destination, boolean accumulate) {
+        boolean sparseOnLeft = (a instanceof SparseMatrix2D);
+        SparseMatrix2D sparse = (SparseMatrix2D) (sparseOnLeft ? a : b);
+        Matrix2D dense = (sparseOnLeft ? (b instanceof SparseMatrix2D ? new Matrix2D(b) : b) : a);
+        boolean transposeSparse = (sparseOnLeft ? transposeA : transposeB);
+        boolean transposeDense = (sparseOnLeft ? transposeB : transposeA);
+
+        /**
+         * A dense operand or destination stored off the heap is read and
+         * written in place through get and set.
+         */
+        if (dense.values == null || destination.values == null) {
+            Matrix2D product = (destination == dense ? new Matrix2D(destination.rowCount, destination.columnCount) : destination);
+            if (product == destination && !accumulate) {
+                Matrix2D.fill(destination, 0.0);
+            }
+            SparseMatrix2D.multiplyAdd(sparse, transposeSparse, sparseOnLeft, dense, transposeDense, product);
+            if (product != destination) {
+                return (accumulate ? Matrix2D.addInto(destination, product, destination) : Matrix2D.copyInto(product, destination));
+            }
+            return destination;
+        }
+
+        /** The product is built in a matrix of its own if the destination is also the dense operand. */
+        boolean staged = (destination.values == dense.values);
+        Matrix2D product = (staged ? new Matrix2D(destination.rowCount, destination.columnCount) : destination);
+        if (!staged && !accumulate) {
+            Matrix2D.fill(destination, 0.0);
+        }
+        SparseMatrix2D.multiplyAdd(sparse, transposeSparse, sparseOnLeft,
+            (sparseOnLeft ? product.columnCount : product.rowCount),
+            dense.values, dense.index(0, 0), (transposeDense ? dense.columnStride : dense.rowStride), (transposeDense ? dense.rowStride : dense.columnStride),
+            product.values, product.index(0, 0), product.rowStride, product.columnStride);
+        if (staged) {
+            return (accumulate ? Matrix2D.addInto(destination, product, destination) : Matrix2D.copyInto(product, destination));
+        }
+        return destination;
+    }
+
+    /**
+     * Sets the number of threads that large matrix multiplications
+     * are split across. Defaults to the "neuranet.parallelism" system
+     * property, or the number of available processors.
+     * @param threads the number of threads (1 disables parallel multiplication).
+     */
+    public static void setParallelism(int threads) {
+        MatrixMultiplier.setParallelism(threads);
+    }
+
+    /**
+     * Returns the number of threads that large matrix multiplications
+     * are split across.
+     * @return the number of threads used for matrix multiplication.
+     */
+    public static int getParallelism() {
+        return MatrixMultiplier.getParallelism();
+    }
+
+    /**
+     * Sets the size, in floating-point operations (2 * rows * columns * terms),
+     * above which matrix multiplications run in parallel. Smaller products
+     * run on the calling thread. Defaults to the "neuranet.parallelThreshold"
+     * system property, or 2 * 128^3.
+     * @param flops the threshold in floating-point operations.
+     */
+    public static void setParallelThreshold(long flops) {
+        MatrixMultiplier.setParallelThreshold(flops);
+    }
+
+    /**
+     * Returns the size, in floating-point operations, above which
+     * matrix multiplications run in parallel.
+     * @return the threshold in floating-point operations.
+     */
+    public static long getParallelThreshold() {
+        return MatrixMultiplier.getParallelThreshold();
     }
 
     /**
@@ -199,17 +653,49 @@ public class Matrix2D extends Matrix {
         if (a.getRowCount() != b.getRowCount() || a.getColumnCount() != b.getColumnCount()) {
             throw new InvalidMatrixOperation(a, b, "Hadamard multiplication");
         }
+        return Matrix2D.hadamardMultiplyInto(a, b, new Matrix2D(a.getRowCount(), a.getColumnCount()));
+    }
 
-        int rowCount = a.getRowCount();
-        int columnCount = a.getColumnCount();
+    /**
+     * Multiplies two matrices together in an element-wise fashion and
+     * stores the product in the destination matrix. All three must be of
+     * the same dimensions. The destination may be one of the inputs.
+     * @param a The first matrix to multiply.
+     * @param b The second matrix to multiply.
+     * @param destination The matrix to store the product in.
+     * @return The destination matrix.
+     */
+    public static Matrix2D hadamardMultiplyInto(Matrix2D a, Matrix2D b, Matrix2D destination) throws InvalidMatrixOperation {
+        /** Ensures compatibility. */
+        if (a.getRowCount() != b.getRowCount() || a.getColumnCount() != b.getColumnCount()) {
+            throw new InvalidMatrixOperation(a, b, "Hadamard multiplication");
+        }
+        checkDestination(a, destination, "Hadamard multiplication");
+        if (!onHeap(a, b, destination)) {
+            for (int row = 0; row < a.rowCount; row += 1) {
+                for (int col = 0; col < a.columnCount; col += 1) {
+                    destination.set(row, col, a.get(row, col) * b.get(row, col));
+                }
+            }
+            return destination;
+        }
+        if (contiguous(a, b, destination)) {
+            ElementwiseKernels.INSTANCE.multiply(a.values, a.index(0, 0), b.values, b.index(0, 0), destination.values, destination.index(0, 0), a.rowCount * a.columnCount);
+            return destination;
+        }
 
-        Matrix2D productMatrix = new Matrix2D(new double[rowCount][columnCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                productMatrix.set(row, col, a.get(row, col) * b.get(row, col));
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int bIndex = b.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                destination.values[outIndex] = a.values[aIndex] * b.values[bIndex];
+                aIndex += a.columnStride;
+                bIndex += b.columnStride;
+                outIndex += destination.columnStride;
             }
         }
-        return productMatrix;
+        return destination;
     }
 
     /**
@@ -219,16 +705,46 @@ public class Matrix2D extends Matrix {
      * @return The resulting matrix of entries raised to an inputted power.
      */
     public static Matrix2D pow(Matrix2D a, double power) {
-        int rowCount = a.getRowCount();
-        int columnCount = a.getColumnCount();
+        return Matrix2D.powInto(a, power, new Matrix2D(a.getRowCount(), a.getColumnCount()));
+    }
 
-        Matrix2D powerMatrix = new Matrix2D(new double[rowCount][columnCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                powerMatrix.set(row, col, Math.pow(a.get(row, col), power));
+    /**
+     * Raises the entries of a matrix to a given power and stores them in
+     * the destination matrix, which must be of the same dimensions. The
+     * destination may be the original matrix.
+     * @param a The matrix.
+     * @param power The power to raise the entries of the matrix to.
+     * @param destination The matrix to store the result in.
+     * @return The destination matrix.
+     */
+    public static Matrix2D powInto(Matrix2D a, double power, Matrix2D destination) throws InvalidMatrixOperation {
+        checkDestination(a, destination, "exponentiation");
+        if (!onHeap(a, a, destination)) {
+            for (int row = 0; row < a.rowCount; row += 1) {
+                for (int col = 0; col < a.columnCount; col += 1) {
+                    double value = a.get(row, col);
+                    destination.set(row, col, (power == 2.0 ? value * value : Math.pow(value, power)));
+                }
+            }
+            return destination;
+        }
+        if (power == 2.0 && contiguous(a, a, destination)) {
+            ElementwiseKernels.INSTANCE.square(a.values, a.index(0, 0), destination.values, destination.index(0, 0), a.rowCount * a.columnCount);
+            return destination;
+        }
+
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                double value = a.values[aIndex];
+                /** Squaring is by far the most common power, and much cheaper than Math.pow. */
+                destination.values[outIndex] = (power == 2.0 ? value * value : Math.pow(value, power));
+                aIndex += a.columnStride;
+                outIndex += destination.columnStride;
             }
         }
-        return powerMatrix;
+        return destination;
     }
 
     /**
@@ -238,16 +754,106 @@ public class Matrix2D extends Matrix {
      * @return The resulting matrix of positive entries.
      */
     public static Matrix2D abs(Matrix2D a) {
-        int rowCount = a.getRowCount();
-        int columnCount = a.getColumnCount();
+        return Matrix2D.absInto(a, new Matrix2D(a.getRowCount(), a.getColumnCount()));
+    }
 
-        Matrix2D absMatrix = new Matrix2D(new double[rowCount][columnCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                absMatrix.set(row, col, Math.abs(a.get(row, col)));
+    /**
+     * Finds the absolute value of each entry in a matrix and stores them
+     * in the destination matrix, which must be of the same dimensions.
+     * The destination may be the original matrix.
+     * @param a The matrix.
+     * @param destination The matrix to store the result in.
+     * @return The destination matrix.
+     */
+    public static Matrix2D absInto(Matrix2D a, Matrix2D destination) throws InvalidMatrixOperation {
+        checkDestination(a, destination, "absolute value");
+        if (!onHeap(a, a, destination)) {
+            for (int row = 0; row < a.rowCount; row += 1) {
+                for (int col = 0; col < a.columnCount; col += 1) {
+                    destination.set(row, col, Math.abs(a.get(row, col)));
+                }
+            }
+            return destination;
+        }
+        if (contiguous(a, a, destination)) {
+            ElementwiseKernels.INSTANCE.abs(a.values, a.index(0, 0), destination.values, destination.index(0, 0), a.rowCount * a.columnCount);
+            return destination;
+        }
+
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                destination.values[outIndex] = Math.abs(a.values[aIndex]);
+                aIndex += a.columnStride;
+                outIndex += destination.columnStride;
+            }
+        }
+        return destination;
+    }
+
+    /**
+     * Copies the values of a matrix into the destination matrix,
+     * which must be of the same dimensions.
+     * @param a The matrix to copy.
+     * @param destination The matrix to copy the values into.
+     * @return The destination matrix.
+     */
+    public static Matrix2D copyInto(Matrix2D a, Matrix2D destination) throws InvalidMatrixOperation {
+        checkDestination(a, destination, "copying");
+        if (a == destination) {
+            return destination;
+        } else if (!onHeap(a, a, destination)) {
+            for (int row = 0; row < a.rowCount; row += 1) {
+                for (int col = 0; col < a.columnCount; col += 1) {
+                    destination.set(row, col, a.get(row, col));
+                }
+            }
+            return destination;
+        } else if (contiguous(a, a, destination)) {
+            System.arraycopy(a.values, a.index(0, 0), destination.values, destination.index(0, 0), a.rowCount * a.columnCount);
+            return destination;
+        }
+
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            int outIndex = destination.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                destination.values[outIndex] = a.values[aIndex];
+                aIndex += a.columnStride;
+                outIndex += destination.columnStride;
             }
         }
-        return absMatrix;
+        return destination;
+    }
+
+    /**
+     * Sets every entry of a matrix to the given value.
+     * @param a The matrix to fill.
+     * @param value The value to set the entries to.
+     * @return The filled matrix.
+     */
+    public static Matrix2D fill(Matrix2D a, double value) {
+        if (a.values == null) {
+            for (int row = 0; row < a.rowCount; row += 1) {
+                for (int col = 0; col < a.columnCount; col += 1) {
+                    a.set(row, col, value);
+                }
+            }
+            return a;
+        } else if (contiguous(a, a, a)) {
+            Arrays.fill(a.values, a.index(0, 0), a.index(0, 0) + a.rowCount * a.columnCount, value);
+            return a;
+        }
+
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            for (int col = 0; col < a.columnCount; col += 1) {
+                a.values[aIndex] = value;
+                aIndex += a.columnStride;
+            }
+        }
+        return a;
     }
 
     /**
@@ -277,9 +883,21 @@ public class Matrix2D extends Matrix {
     public static Matrix2D transpose(Matrix2D a)
         throws InvalidMatrixArrayValue, InvalidMatrixIndex, InvalidMatrixOperation {
         Matrix2D out = new Matrix2D(a.getColumnCount(), a.getRowCount());
-        for (int row = 0; row < out.getRowCount(); row += 1) {
-            for (int col = 0; col < out.getColumnCount(); col += 1) {
-                out.set(row, col, a.get(col, row));
+        if (a.values == null) {
+            for (int row = 0; row < out.rowCount; row += 1) {
+                for (int col = 0; col < out.columnCount; col += 1) {
+                    out.values[out.index(row, col)] = a.get(col, row);
+                }
+            }
+            return out;
+        }
+        for (int row = 0; row < out.rowCount; row += 1) {
+            int aIndex = a.index(0, row);
+            int outIndex = out.index(row, 0);
+            for (int col = 0; col < out.columnCount; col += 1) {
+                out.values[outIndex] = a.values[aIndex];
+                aIndex += a.rowStride;
+                outIndex += out.columnStride;
             }
         }
         return out;
@@ -287,7 +905,8 @@ public class Matrix2D extends Matrix {
 
     /**
      * Splits a matrix into an array of matrices
-     * of its rows.
+     * of its rows. The rows are copies; see
+     * getRowViews for views that share the entries.
      * @param a the matrix to split.
      * @return the array of single-rowed matrices.
      */
@@ -296,7 +915,7 @@ public class Matrix2D extends Matrix {
         for (int index = 0; index < a.getRowCount(); index += 1) {
             out[index] = new Matrix2D(1, a.getColumnCount());
             for (int col = 0; col < a.getColumnCount(); col += 1) {
-                out[index].set(index, col, a.get(index, col));
+                out[index].set(0, col, a.get(index, col));
             }
         }
         return out;
@@ -304,7 +923,8 @@ public class Matrix2D extends Matrix {
 
     /**
      * Splits a matrix into an array of matrices
-     * of its columns.
+     * of its columns. The columns are copies; see
+     * getColumnViews for views that share the entries.
      * @param a the matrix to split.
      * @return the array of single-columned matrices.
      */
@@ -313,7 +933,7 @@ public class Matrix2D extends Matrix {
         for (int index = 0; index < a.getColumnCount(); index += 1) {
             out[index] = new Matrix2D(a.getRowCount(), 1);
             for (int row = 0; row < a.getRowCount(); row += 1) {
-                out[index].set(row, index, a.get(row, index));
+                out[index].set(row, 0, a.get(row, index));
             }
         }
         return out;
@@ -327,7 +947,8 @@ public class Matrix2D extends Matrix {
      * @param colStart the index of the left column (inclusive).
      * @param rowEnd the index of the bottom row + 1 (inclusive).
      * @param colEnd the index of the right column + 1 (inclusive).
-     * @return
+     * @return the sub matrix, a copy of the entries. See subMatrixView
+     *         for a view that shares them.
      */
     public static Matrix2D subMatrix(Matrix2D a, int rowStart, int colStart, int rowEnd, int colEnd) {
         Matrix2D subMatrix = new Matrix2D(rowEnd - rowStart, colEnd - colStart);
@@ -338,6 +959,95 @@ public class Matrix2D extends Matrix {
         }
         return subMatrix;
     }
+
+    /**
+     * Returns a view of the part of a matrix bounded by the given
+     * indices. The view shares the entries of the original matrix
+     * instead of copying them, so changes to either are seen by both.
+     * Matrices not stored on the heap (off-heap or sparse) are copied.
+     * @param a the original matrix.
+     * @param rowStart the index of the top row (inclusive).
+     * @param colStart the index of the left column (inclusive).
+     * @param rowEnd the index of the bottom row + 1 (exclusive).
+     * @param colEnd the index of the right column + 1 (exclusive).
+     * @return a view of the sub-matrix.
+     * @throws InvalidMatrixIndex if the bounds are outside the matrix.
+     */
+    public static Matrix2D subMatrixView(Matrix2D a, int rowStart, int colStart, int rowEnd, int colEnd) throws InvalidMatrixIndex {
+        if (rowStart < 0 || colStart < 0 || rowEnd > a.getRowCount() || colEnd > a.getColumnCount()
+                || rowEnd < rowStart || colEnd < colStart) {
+            throw new InvalidMatrixIndex(a, (rowStart < 0 || rowEnd < rowStart ? rowStart : rowEnd), (colStart < 0 || colEnd < colStart ? colStart : colEnd));
+        } else if (a.values == null) {
+            return Matrix2D.subMatrix(a, rowStart, colStart, rowEnd, colEnd);
+        }
+        return new Matrix2D(a.values, a.index(rowStart, colStart), rowEnd - rowStart, colEnd - colStart, a.rowStride, a.columnStride);
+    }
+
+    /**
+     * Returns a view of one row of a matrix, which shares the
+     * entries of the original matrix instead of copying them.
+     * @param a the original matrix.
+     * @param row the index of the row.
+     * @return a single-rowed view of the row.
+     * @throws InvalidMatrixIndex if the row is outside the matrix.
+     */
+    public static Matrix2D rowView(Matrix2D a, int row) throws InvalidMatrixIndex {
+        return Matrix2D.subMatrixView(a, row, 0, row + 1, a.getColumnCount());
+    }
+
+    /**
+     * Returns a view of one column of a matrix, which shares the
+     * entries of the original matrix instead of copying them.
+     * @param a the original matrix.
+     * @param column the index of the column.
+     * @return a single-columned view of the column.
+     * @throws InvalidMatrixIndex if the column is outside the matrix.
+     */
+    public static Matrix2D columnView(Matrix2D a, int column) throws InvalidMatrixIndex {
+        return Matrix2D.subMatrixView(a, 0, column, a.getRowCount(), column + 1);
+    }
+
+    /**
+     * Splits a matrix into an array of views of its rows,
+     * which share the entries of the original matrix.
+     * @param a the matrix to split.
+     * @return the array of single-rowed views.
+     */
+    public static Matrix2D[] getRowViews(Matrix2D a) {
+        Matrix2D[] out = new Matrix2D[a.getRowCount()];
+        for (int index = 0; index < a.getRowCount(); index += 1) {
+            out[index] = Matrix2D.rowView(a, index);
+        }
+        return out;
+    }
+
+    /**
+     * Splits a matrix into an array of views of its columns,
+     * which share the entries of the original matrix.
+     * @param a the matrix to split.
+     * @return the array of single-columned views.
+     */
+    public static Matrix2D[] getColumnViews(Matrix2D a) {
+        Matrix2D[] out = new Matrix2D[a.getColumnCount()];
+        for (int index = 0; index < a.getColumnCount(); index += 1) {
+            out[index] = Matrix2D.columnView(a, index);
+        }
+        return out;
+    }
+
+    /**
+     * Returns a view of the transpose of a matrix, which shares the
+     * entries of the original matrix instead of copying them.
+     * Matrices not stored on the heap are copied.
+     * @param a the original matrix.
+     * @return a view of the transposed matrix.
+     */
+    public static Matrix2D transposeView(Matrix2D a) {
+        if (a.values == null) {
+            return Matrix2D.transpose(a);
+        }
+        return new Matrix2D(a.values, a.offset, a.columnCount, a.rowCount, a.columnStride, a.rowStride);
+    }
     
     /**
      * Adds two arrays of matrices together, item by item.
@@ -374,6 +1084,26 @@ public class Matrix2D extends Matrix {
         return summedMatrices;
     }
     
+    /**
+     * Adds two arrays of matrices together, item by item, storing each sum
+     * in the matrix at the same index of the destination array. Arrays and
+     * matrices must be of the same dimensions. The destination may be one
+     * of the inputs.
+     * @param a The first matrix array to add.
+     * @param b The second matrix array to add.
+     * @param destination The matrix array to store the sums in.
+     * @return The destination matrix array.
+     */
+    public static Matrix2D[] addInto(Matrix2D[] a, Matrix2D[] b, Matrix2D[] destination) throws InvalidMatrixOperation {
+        if (a == null || b == null || destination == null || a.length != b.length || a.length != destination.length) {
+            throw new InvalidMatrixOperation(new Matrix2D(0,0), new Matrix2D(0,0), "array addition");
+        }
+        for (int index = 0; index < a.length; index += 1) {
+            Matrix2D.addInto(a[index], b[index], destination[index]);
+        }
+        return destination;
+    }
+
     /**
      * Adds all like elements of an array of matrices together, item by item.
      * Matrices must be of the same dimensions.
@@ -396,7 +1126,7 @@ public class Matrix2D extends Matrix {
      */
     public static Matrix2D[] multiply(Matrix2D[] a, double factor) throws InvalidMatrixOperation {
         Matrix2D[] productMatrices = new Matrix2D[a.length];
-        for (int index = 1; index < a.length; index += 1) {
+        for (int index = 0; index < a.length; index += 1) {
             productMatrices[index] = Matrix2D.multiply(a[index], factor);
         }
         return productMatrices;
@@ -408,17 +1138,31 @@ public class Matrix2D extends Matrix {
      * @return the sum of the entries.
      */
     public static double sumEntries(Matrix2D a) {
+        if (a.values == null) {
+            double sum = 0.0;
+            for (int row = 0; row < a.rowCount; row += 1) {
+                for (int column = 0; column < a.columnCount; column += 1) {
+                    sum += a.get(row, column);
+                }
+            }
+            return sum;
+        } else if (contiguous(a, a, a)) {
+            return ElementwiseKernels.INSTANCE.sum(a.values, a.index(0, 0), a.rowCount * a.columnCount);
+        }
         double sum = 0.0;
-        for (int row = 0; row < a.getRowCount(); row += 1) {
-            for (int column = 0; column < a.getColumnCount(); column += 1) {
-                sum += a.get(row, column);
+        for (int row = 0; row < a.rowCount; row += 1) {
+            int aIndex = a.index(row, 0);
+            for (int column = 0; column < a.columnCount; column += 1) {
+                sum += a.values[aIndex];
+                aIndex += a.columnStride;
             }
         }
         return sum;
     }
 
     /**
-     * Returns the determinant of a matrix.
+     * Returns the determinant of a matrix, computed from its
+     * LU decomposition in O(n^3) time.
      * @param a the matrix to find the determinant.
      * @return the determinant of the matrix.
      * @throws InvalidMatrixOperation if the matrix is not square.
@@ -426,15 +1170,8 @@ public class Matrix2D extends Matrix {
     public static double determinant(Matrix2D a) throws InvalidMatrixOperation {
         if (a.getColumnCount() != a.getRowCount()) {
             throw new InvalidMatrixOperation(a, a, "calculating the determinant");
-        } else if (a.getColumnCount() == 1) {
-            return a.get(0, 0);
         } else {
-            double sum = 0.0;
-            for (int index = 0; index < a.getColumnCount(); index += 1) {
-                Matrix2D minor = Matrix2D.minor(a, 0, index);
-                sum += a.get(0, index) * Matrix2D.determinant(minor) * ((index % 2) * (-2) + 1);
-            }
-            return sum;
+            return new LUDecomposition(a).getDeterminant();
         }
     }
 
@@ -447,17 +1184,25 @@ public class Matrix2D extends Matrix {
     public static Matrix2D cofactors(Matrix2D a) throws InvalidMatrixOperation {
         if (a.getColumnCount() != a.getRowCount()) {
             throw new InvalidMatrixOperation(a, a, "calculating the cofactors");
-        } else {
-            Matrix2D cofactors = new Matrix2D(a.getRowCount(), a.getColumnCount());
-            for (int row = 0; row < a.getColumnCount(); row += 1) {
-                for (int column = 0; column < a.getColumnCount(); column += 1) {
-                    Matrix2D minor = Matrix2D.minor(a, row, column);
-                    double det = Matrix2D.determinant(minor);
-                    cofactors.set(row, column, det * (((row + column) % 2) * (-2) + 1));
-                }
-            }
+        }
+        LUDecomposition lu = new LUDecomposition(a);
+        if (!lu.isSingular()) {
+            /** The cofactor matrix of an invertible matrix is det(A) * (A^-1)^T. */
+            return Matrix2D.multiply(Matrix2D.transpose(lu.getInverse()), lu.getDeterminant());
+        }
+        Matrix2D cofactors = new Matrix2D(a.getRowCount(), a.getColumnCount());
+        if (a.getColumnCount() == 1) {
+            cofactors.set(0, 0, 1.0);
             return cofactors;
         }
+        for (int row = 0; row < a.getColumnCount(); row += 1) {
+            for (int column = 0; column < a.getColumnCount(); column += 1) {
+                Matrix2D minor = Matrix2D.minor(a, row, column);
+                double det = Matrix2D.determinant(minor);
+                cofactors.set(row, column, det * (((row + column) % 2) * (-2) + 1));
+            }
+        }
+        return cofactors;
     }
 
     /**
@@ -475,22 +1220,45 @@ public class Matrix2D extends Matrix {
     }
 
     /**
-     * Returns the inverse of a matrix, if there is one.
+     * Returns the inverse of a matrix, if there is one, computed
+     * from its LU decomposition in O(n^3) time.
      * @param a the matrix to find the inverse of.
      * @return the inverse matrix.
      * @throws InvalidMatrixOperation if the matrix is not square or
-     *                                if its determinant is zero.
+     *                                if it is singular.
      */
     public static Matrix2D inverse(Matrix2D a) throws InvalidMatrixOperation {
         if (a.getColumnCount() != a.getRowCount()) {
-            throw new InvalidMatrixOperation(a, a, "calculating the adjoint matrix");
+            throw new InvalidMatrixOperation(a, a, "inversion");
         } else {
-            double det = Matrix2D.determinant(a);
-            if (Math.abs(det) > 0.000001) {
-                return Matrix2D.divide(Matrix2D.adjoint(a), det);
-            } else {
+            LUDecomposition lu = new LUDecomposition(a);
+            if (lu.isSingular()) {
                 throw new InvalidMatrixOperation(a, a, "inversion; determinant is zero.");
             }
+            return lu.getInverse();
+        }
+    }
+
+    /**
+     * Solves the linear system a * x = b for x using the
+     * LU decomposition of a. Solving is cheaper and more accurate
+     * than multiplying by the inverse. To solve several systems
+     * with the same matrix, factor it once with LUDecomposition.
+     * @param a the square matrix of coefficients.
+     * @param b the right-hand side, with one column per system to solve.
+     * @return the solution x, with the same dimensions as b.
+     * @throws InvalidMatrixOperation if a is not square, if b does not
+     *                                have as many rows as a, or if a is singular.
+     */
+    public static Matrix2D solve(Matrix2D a, Matrix2D b) throws InvalidMatrixOperation {
+        if (a.getColumnCount() != a.getRowCount() || a.getRowCount() != b.getRowCount()) {
+            throw new InvalidMatrixOperation(a, b, "solving a linear system");
+        } else {
+            LUDecomposition lu = new LUDecomposition(a);
+            if (lu.isSingular()) {
+                throw new InvalidMatrixOperation(a, b, "solving a linear system; matrix is singular");
+            }
+            return lu.solve(b);
         }
     }
     
@@ -561,14 +1329,94 @@ public class Matrix2D extends Matrix {
         return threeDmatrix;
     }
 
+    /**
+     * Ensures that a destination matrix has the same dimensions as the
+     * matrix an element-wise operation is applied to.
+     * @param a The matrix the operation is applied to.
+     * @param destination The matrix the result will be stored in.
+     * @param operation The name of the operation.
+     * @throws InvalidMatrixOperation if the dimensions differ.
+     */
+    private static void checkDestination(Matrix2D a, Matrix2D destination, String operation) throws InvalidMatrixOperation {
+        if (destination == null || a.getRowCount() != destination.getRowCount() || a.getColumnCount() != destination.getColumnCount()) {
+            throw new InvalidMatrixOperation(a, (destination == null ? new Matrix2D() : destination), operation + " into destination");
+        }
+    }
+
+    /**
+     * Determines whether all of the given matrices keep their
+     * entries in a heap array that the kernels can read directly.
+     * @param a The first matrix.
+     * @param b The second matrix.
+     * @param c The third matrix.
+     * @return whether all three matrices are stored on the heap.
+     */
+    private static boolean onHeap(Matrix2D a, Matrix2D b, Matrix2D c) {
+        return a.values != null && b.values != null && c.values != null;
+    }
+
+    /**
+     * Determines whether all of the given matrices store their entries
+     * in one unbroken row-major run, so that element-wise kernels can
+     * treat them as flat arrays.
+     * @param a The first matrix.
+     * @param b The second matrix.
+     * @param c The third matrix.
+     * @return whether all three matrices are contiguous.
+     */
+    private static boolean contiguous(Matrix2D a, Matrix2D b, Matrix2D c) {
+        return a.isContiguous() && b.isContiguous() && c.isContiguous();
+    }
+
+    /**
+     * Determines whether the matrix stores its entries on the heap
+     * in one unbroken row-major run.
+     * @return whether the matrix is contiguous.
+     */
+    boolean isContiguous() {
+        return values != null && columnStride == 1 && (rowStride == columnCount || rowCount <= 1);
+    }
+
+    /**
+     * Returns the array the matrix stores its entries in. Entry (row, column)
+     * is at getArrayOffset() + row * rowStride + column * columnStride.
+     * @return the storage of the matrix, or null if it is not on the heap.
+     */
+    double[] getArray() {
+        return values;
+    }
+
+    /**
+     * Returns the position of entry (0, 0) in the storage array.
+     * @return the position of the first entry.
+     */
+    int getArrayOffset() {
+        return index(0, 0);
+    }
+
+    /**
+     * Returns the position of an entry in the values array.
+     * @param row The row of the entry.
+     * @param column The column of the entry.
+     * @return The position of the entry in the values array.
+     */
+    private int index(int row, int column) {
+        return offset + row * rowStride + column * columnStride;
+    }
+
     /**
      * Gets a value at a specified index. Indices should be valid.
      * @param row The row the value is in.
      * @param column The column the value is in.
      * @return The value of the specified index.
+     * @throws InvalidMatrixIndex if the index is invalid
      */
-    public double get(int row, int column) {
-        return values[row][column];
+    public double get(int row, int column) throws InvalidMatrixIndex {
+        /** The entries share one flat array, so an index past the end of a row would read the next row. */
+        if (row < 0 || row > rowCount - 1 || column < 0 || column > columnCount - 1) {
+            throw new InvalidMatrixIndex(this, row, column);
+        }
+        return values[index(row, column)];
     }
 
     /**
@@ -579,10 +1427,11 @@ public class Matrix2D extends Matrix {
      * @throws InvalidMatrixIndex if the index is invalid
      */
     public void set(int row, int column, double value) throws InvalidMatrixIndex {
-        if (row > getRowCount() - 1 || column > getColumnCount() - 1) {
+        /** Views share their parent's array, so a negative index would write into the parent outside the view. */
+        if (row < 0 || row > rowCount - 1 || column < 0 || column > columnCount - 1) {
             throw new InvalidMatrixIndex(this, row, column);
         }
-        values[row][column] = value;
+        values[index(row, column)] = value;
     }
     
     /**
@@ -596,7 +1445,7 @@ public class Matrix2D extends Matrix {
      * @throws InvalidMatrixIndex if the row index is invalid.
      */
     public void setRow(int row, Matrix2D values) throws InvalidMatrixArrayValue, InvalidMatrixIndex {
-        int colCount = this.values[0].length;
+        int colCount = columnCount;
 
         if (values.getColumnCount() != colCount) {
             System.out.println(this);
@@ -607,7 +1456,7 @@ public class Matrix2D extends Matrix {
         }
 
         for (int col = 0; col < colCount; col += 1) {
-            this.values[row][col] = values.get(0, col);
+            set(row, col, values.get(0, col));
         }
     }
     
@@ -622,8 +1471,6 @@ public class Matrix2D extends Matrix {
      * @throws InvalidMatrixIndex if the column index is invalid.
      */
     public void setColumn(int column, Matrix2D values) throws InvalidMatrixArrayValue, InvalidMatrixIndex {
-        int rowCount = this.values.length;
-
         if (values.getRowCount() != rowCount) {
             throw new InvalidMatrixArrayValue(rowCount, values.getRowCount(), "column");
         } else if (column >= getColumnCount()) {
@@ -631,7 +1478,7 @@ public class Matrix2D extends Matrix {
         }
 
         for (int row = 0; row < rowCount; row += 1) {
-            this.values[row][column] = values.get(row, 0);
+            set(row, column, values.get(row, 0));
         }
     }
 
@@ -640,7 +1487,7 @@ public class Matrix2D extends Matrix {
      * @return the number of rows in the matrix.
      */
     public int getRowCount() {
-        return values.length;
+        return rowCount;
     }
 
     /**
@@ -648,7 +1495,7 @@ public class Matrix2D extends Matrix {
      * @return the number of columns in the matrix.
      */
     public int getColumnCount() {
-        return (values.length > 0 ? values[0].length : 0);
+        return columnCount;
     }
 
     /**
@@ -694,13 +1541,12 @@ public class Matrix2D extends Matrix {
     @Override
     public String toString() {
         String out = "\n";
-        for (int index = 0; index < values.length; index++) {
-            double[] row = values[index];
+        for (int row = 0; row < rowCount; row++) {
             out += "[  ";
-            for (double val : row) {
-                out += val + "  ";
+            for (int col = 0; col < columnCount; col++) {
+                out += get(row, col) + "  ";
             }
-            out += (index == values.length - 1 ? "]" : "]\n");
+            out += (row == rowCount - 1 ? "]" : "]\n");
         }
         return out;
     }
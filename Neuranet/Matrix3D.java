@@ -6,19 +6,45 @@ import Neuranet.RuntimeExceptions.InvalidMatrixOperation;
 
 /**
  * Class that represents a 3D matrix of any dimensions.
+ * The entries are stored in one flat array, in either
+ * channel-first (CHW) or channel-last (HWC) order; see
+ * MatrixLayout. The layout only affects performance:
+ * every operation accepts matrices of either layout.
  * @author Nolan Bridges
  * @version 1.0.0
  */
 public class Matrix3D extends Matrix {
-    /** The values of the matrix. */
-    private double[][][] values;
+    /** The layout new matrices use when none is given. */
+    public static final MatrixLayout DEFAULT_LAYOUT = MatrixLayout.CHANNEL_LAST;
+
+    /**
+     * The values of the matrix, stored in the order given by layout.
+     * Views share the array of the matrix they were taken from.
+     */
+    private double[] values;
+    /** The position in the values array of entry (0, 0, 0). */
+    private int offset;
+    /** The number of rows in the matrix. */
+    private int rowCount;
+    /** The number of columns in the matrix. */
+    private int columnCount;
+    /** The number of layers in the matrix. */
+    private int layerCount;
+    /** The distance in the values array between two vertically adjacent entries. */
+    private int rowStride;
+    /** The distance in the values array between two horizontally adjacent entries. */
+    private int columnStride;
+    /** The distance in the values array between two entries in adjacent layers. */
+    private int layerStride;
+    /** The order the entries are stored in. */
+    private MatrixLayout layout;
 
     /**
      * Default no-args constructor that creates
      * an empty matrix.
      */
     public Matrix3D() {
-        values = new double[0][0][0];
+        this(0, 0, 0);
     }
 
     /**
@@ -28,52 +54,160 @@ public class Matrix3D extends Matrix {
      * as should the number of columns across all layers.
      */
     public Matrix3D(double[][][] values) {
-        if (values == null) {
-            this.values = new double[0][0][0];
-            return;
-        }
-        
-        int rowCount = values.length;
-        int columnCount = (values.length > 0 ? values[0].length : 0);
-        int layerCount = (values.length > 0 && values[0].length > 0 ? values[0][0].length : 0);
-        
-        this.values = new double[rowCount][columnCount][layerCount];
+        this((values == null ? 0 : values.length),
+            (values == null || values.length == 0 ? 0 : values[0].length),
+            (values == null || values.length == 0 || values[0].length == 0 ? 0 : values[0][0].length));
+
         for (int row = 0; row < rowCount; row += 1) {
             for (int col = 0; col < columnCount; col += 1) {
-                for (int lay = 0; lay < layerCount; lay += 1) {
-                    this.values[row][col][lay] = values[row][col][lay];
-                }
+                System.arraycopy(values[row][col], 0, this.values, index(row, col, 0), layerCount);
             }
         }
     }
 
     /**
-     * Creates a matrix with the specified dimensions. Default values: 0.0.
+     * Creates a matrix with the specified dimensions
+     * in the default layout. Default values: 0.0.
      * @param rows The number of rows of the matrix.
      * @param columns The number of columns of the matrix.
      * @param layers The number of layers of the matrix.
      */
     public Matrix3D(int rows, int columns, int layers) {
-        this(new double[rows][columns][layers]);
+        this(rows, columns, layers, DEFAULT_LAYOUT);
+    }
+
+    /**
+     * Creates a matrix with the specified dimensions
+     * and layout. Default values: 0.0.
+     * @param rows The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     * @param layers The number of layers of the matrix.
+     * @param layout The order to store the entries in.
+     */
+    public Matrix3D(int rows, int columns, int layers, MatrixLayout layout) {
+        this(new double[rows * columns * layers], rows, columns, layers, layout);
+    }
+
+    /**
+     * Creates a matrix over existing storage, packed in the given
+     * layout, without copying it.
+     * @param values The storage of the matrix, or null if a subclass
+     *               stores its entries elsewhere and overrides get/set.
+     * @param rows The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     * @param layers The number of layers of the matrix.
+     * @param layout The order the entries are stored in.
+     */
+    Matrix3D(double[] values, int rows, int columns, int layers, MatrixLayout layout) {
+        this(values, 0, rows, columns, layers,
+            (layout == MatrixLayout.CHANNEL_LAST ? columns * layers : columns),
+            (layout == MatrixLayout.CHANNEL_LAST ? layers : 1),
+            (layout == MatrixLayout.CHANNEL_LAST ? 1 : rows * columns), layout);
+    }
+
+    /**
+     * Creates a matrix over part of existing storage without copying it.
+     * @param values The storage of the matrix.
+     * @param offset The position in values of entry (0, 0, 0).
+     * @param rows The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     * @param layers The number of layers of the matrix.
+     * @param rowStride The distance in values between vertically adjacent entries.
+     * @param columnStride The distance in values between horizontally adjacent entries.
+     * @param layerStride The distance in values between entries in adjacent layers.
+     * @param layout The layout of the storage the matrix was taken from.
+     */
+    Matrix3D(double[] values, int offset, int rows, int columns, int layers,
+            int rowStride, int columnStride, int layerStride, MatrixLayout layout) {
+        this.values = values;
+        this.offset = offset;
+        this.rowCount = rows;
+        this.columnCount = columns;
+        this.layerCount = layers;
+        this.rowStride = rowStride;
+        this.columnStride = columnStride;
+        this.layerStride = layerStride;
+        this.layout = layout;
     }
 
     /**
-     * Copy constructor that copies the values of another matrix.
+     * Copy constructor that copies the values of another matrix,
+     * keeping its layout.
      * @param matrix The matrix to copy.
      */
     public Matrix3D(Matrix3D matrix) {
-        int rowCount = matrix.getRowCount();
-        int columnCount = matrix.getColumnCount();
-        int layerCount = matrix.getLayerCount();
+        this(matrix, matrix.getLayout());
+    }
 
-        values = new double[rowCount][columnCount][layerCount];
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                for (int lay = 0; lay < layerCount; lay += 1) {
-                    values[row][col][lay] = matrix.get(row, col, lay);
+    /**
+     * Copies the values of another matrix into the given layout.
+     * @param matrix The matrix to copy.
+     * @param layout The order to store the entries of the copy in.
+     */
+    public Matrix3D(Matrix3D matrix, MatrixLayout layout) {
+        this(matrix.getRowCount(), matrix.getColumnCount(), matrix.getLayerCount(), layout);
+        Matrix3D.copyInto(matrix, this);
+    }
+
+    /**
+     * Returns a matrix with the same values in the given layout:
+     * the matrix itself if it is already stored that way, or
+     * a converted copy otherwise.
+     * @param a The matrix.
+     * @param layout The layout wanted.
+     * @return a matrix with the values of a, stored in the given layout.
+     */
+    public static Matrix3D toLayout(Matrix3D a, MatrixLayout layout) {
+        if (a.contiguousLayout() == layout || (a.isContiguous() && a.isPacked(layout))) {
+            return a;
+        }
+        return new Matrix3D(a, layout);
+    }
+
+    /**
+     * Copies the values of one matrix into another of the same
+     * dimensions, converting between layouts if they differ.
+     * @param a The matrix to copy.
+     * @param destination The matrix to copy into.
+     * @return The destination matrix.
+     */
+    public static Matrix3D copyInto(Matrix3D a, Matrix3D destination) throws InvalidMatrixOperation {
+        checkDestination(a, destination, "copying");
+        if (a == destination) {
+            return destination;
+        } else if (sameOrder(a, destination)) {
+            System.arraycopy(a.values, a.index(0, 0, 0), destination.values, destination.index(0, 0, 0), a.size());
+            return destination;
+        } else if (a.values == null || destination.values == null) {
+            for (int row = 0; row < a.getRowCount(); row += 1) {
+                for (int col = 0; col < a.getColumnCount(); col += 1) {
+                    for (int lay = 0; lay < a.getLayerCount(); lay += 1) {
+                        destination.set(row, col, lay, a.get(row, col, lay));
+                    }
                 }
             }
+            return destination;
         }
+
+        /** Walks the entries in the destination's storage order, so that its writes are sequential. */
+        boolean layersInner = (destination.layerStride <= destination.columnStride);
+        int outer = (layersInner ? a.rowCount : a.layerCount);
+        int middle = (layersInner ? a.columnCount : a.rowCount);
+        int inner = (layersInner ? a.layerCount : a.columnCount);
+        for (int i = 0; i < outer; i += 1) {
+            for (int j = 0; j < middle; j += 1) {
+                int aIndex = (layersInner ? a.index(i, j, 0) : a.index(j, 0, i));
+                int outIndex = (layersInner ? destination.index(i, j, 0) : destination.index(j, 0, i));
+                int aStep = (layersInner ? a.layerStride : a.columnStride);
+                int outStep = (layersInner ? destination.layerStride : destination.columnStride);
+                for (int k = 0; k < inner; k += 1) {
+                    destination.values[outIndex] = a.values[aIndex];
+                    aIndex += aStep;
+                    outIndex += outStep;
+                }
+            }
+        }
+        return destination;
     }
 
     /**
@@ -88,14 +222,14 @@ public class Matrix3D extends Matrix {
             throw new InvalidMatrixOperation(a, b, "addition");
         }
 
-        int rowCount = a.getRowCount();
-        int columnCount = a.getColumnCount();
-        int layerCount = a.getLayerCount();
-
-        Matrix3D sumMatrix = new Matrix3D(new double[rowCount][columnCount][layerCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                for (int lay = 0; lay < layerCount; lay += 1) {
+        Matrix3D sumMatrix = Matrix3D.like(a);
+        if (sameOrder(a, b, sumMatrix)) {
+            ElementwiseKernels.INSTANCE.add(a.values, a.index(0, 0, 0), b.values, b.index(0, 0, 0), sumMatrix.values, 0, a.size());
+            return sumMatrix;
+        }
+        for (int row = 0; row < a.getRowCount(); row += 1) {
+            for (int col = 0; col < a.getColumnCount(); col += 1) {
+                for (int lay = 0; lay < a.getLayerCount(); lay += 1) {
                     sumMatrix.set(row, col, lay, a.get(row, col, lay) + b.get(row, col, lay));
                 }
             }
@@ -115,14 +249,14 @@ public class Matrix3D extends Matrix {
             throw new InvalidMatrixOperation(a, b, "subtraction");
         }
 
-        int rowCount = a.getRowCount();
-        int columnCount = a.getColumnCount();
-        int layerCount = a.getLayerCount();
-        
-        Matrix3D differenceMatrix = new Matrix3D(new double[rowCount][columnCount][layerCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                for (int lay = 0; lay < layerCount; lay += 1) {
+        Matrix3D differenceMatrix = Matrix3D.like(a);
+        if (sameOrder(a, b, differenceMatrix)) {
+            ElementwiseKernels.INSTANCE.subtract(a.values, a.index(0, 0, 0), b.values, b.index(0, 0, 0), differenceMatrix.values, 0, a.size());
+            return differenceMatrix;
+        }
+        for (int row = 0; row < a.getRowCount(); row += 1) {
+            for (int col = 0; col < a.getColumnCount(); col += 1) {
+                for (int lay = 0; lay < a.getLayerCount(); lay += 1) {
                     differenceMatrix.set(row, col, lay, a.get(row, col, lay) - b.get(row, col, lay));
                 }
             }
@@ -137,14 +271,14 @@ public class Matrix3D extends Matrix {
      * @return The product as a matrix.
      */
     public static Matrix3D multiply(Matrix3D a, double factor) {
-        int rowCount = a.getRowCount();
-        int columnCount = a.getColumnCount();
-        int layerCount = a.getLayerCount();
-
-        Matrix3D productMatrix = new Matrix3D(new double[rowCount][columnCount][layerCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                for (int lay = 0; lay < layerCount; lay += 1) {
+        Matrix3D productMatrix = Matrix3D.like(a);
+        if (sameOrder(a, productMatrix)) {
+            ElementwiseKernels.INSTANCE.scale(a.values, a.index(0, 0, 0), factor, productMatrix.values, 0, a.size());
+            return productMatrix;
+        }
+        for (int row = 0; row < a.getRowCount(); row += 1) {
+            for (int col = 0; col < a.getColumnCount(); col += 1) {
+                for (int lay = 0; lay < a.getLayerCount(); lay += 1) {
                     productMatrix.set(row, col, lay, a.get(row, col, lay) * factor);
                 }
             }
@@ -159,14 +293,14 @@ public class Matrix3D extends Matrix {
      * @return The product as a matrix.
      */
     public static Matrix3D divide(Matrix3D a, double factor) {
-        int rowCount = a.getRowCount();
-        int columnCount = a.getColumnCount();
-        int layerCount = a.getLayerCount();
-
-        Matrix3D quotientMatrix = new Matrix3D(new double[rowCount][columnCount][layerCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                for (int lay = 0; lay < layerCount; lay += 1) {
+        Matrix3D quotientMatrix = Matrix3D.like(a);
+        if (sameOrder(a, quotientMatrix)) {
+            ElementwiseKernels.INSTANCE.divide(a.values, a.index(0, 0, 0), factor, quotientMatrix.values, 0, a.size());
+            return quotientMatrix;
+        }
+        for (int row = 0; row < a.getRowCount(); row += 1) {
+            for (int col = 0; col < a.getColumnCount(); col += 1) {
+                for (int lay = 0; lay < a.getLayerCount(); lay += 1) {
                     quotientMatrix.set(row, col, lay, a.get(row, col, lay) / factor);
                 }
             }
@@ -178,6 +312,7 @@ public class Matrix3D extends Matrix {
      * Multiplies a matrix by another matrix. Matrix dimensions must be compatible
      * for matrix multiplication. In other words, the layerCount of a and b must
      * be the same, and the rowCount of b must equal the columnCount of a.
+     * Each layer is multiplied with the Matrix2D multiplication kernel.
      * @param a The first matrix.
      * @param b The second matrix that multiplies the first.
      * @return The product as a matrix.
@@ -188,25 +323,10 @@ public class Matrix3D extends Matrix {
             throw new InvalidMatrixOperation(a, b, "multiplication");
         }
 
-        int rowCount = a.getRowCount();
-        int columnCount = b.getColumnCount();
         int layerCount = a.getLayerCount();
-        
-        /** The number of terms for row/column multiplication. */
-        int linComb = a.getColumnCount();
-
-        Matrix3D productMatrix = new Matrix3D(new double[rowCount][columnCount][layerCount]);
+        Matrix3D productMatrix = new Matrix3D(a.getRowCount(), b.getColumnCount(), layerCount, a.getLayout());
         for (int lay = 0; lay < layerCount; lay += 1) {
-            for (int row = 0; row < rowCount; row += 1) {
-                for (int col = 0; col < columnCount; col += 1) {
-                    /** Find linear combination between a's row and b's column. */
-                    double sum = 0;
-                    for (int i = 0; i < linComb; i += 1) {
-                        sum += a.get(row, i, lay) * b.get(i, col, lay);
-                    }
-                    productMatrix.set(row, col, lay, sum);
-                }
-            }
+            Matrix2D.multiplyInto(a.layerMatrix(lay), b.layerMatrix(lay), productMatrix.layerMatrix(lay));
         }
         return productMatrix;
     }
@@ -224,14 +344,14 @@ public class Matrix3D extends Matrix {
             throw new InvalidMatrixOperation(a, b, "Hadamard multiplication");
         }
 
-        int rowCount = a.getRowCount();
-        int columnCount = a.getColumnCount();
-        int layerCount = a.getLayerCount();
-
-        Matrix3D productMatrix = new Matrix3D(new double[rowCount][columnCount][layerCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                for (int lay = 0; lay < layerCount; lay += 1) {
+        Matrix3D productMatrix = Matrix3D.like(a);
+        if (sameOrder(a, b, productMatrix)) {
+            ElementwiseKernels.INSTANCE.multiply(a.values, a.index(0, 0, 0), b.values, b.index(0, 0, 0), productMatrix.values, 0, a.size());
+            return productMatrix;
+        }
+        for (int row = 0; row < a.getRowCount(); row += 1) {
+            for (int col = 0; col < a.getColumnCount(); col += 1) {
+                for (int lay = 0; lay < a.getLayerCount(); lay += 1) {
                     productMatrix.set(row, col, lay, a.get(row, col, lay) * b.get(row, col, lay));
                 }
             }
@@ -239,6 +359,79 @@ public class Matrix3D extends Matrix {
         return productMatrix;
     }
 
+    /**
+     * Sums the products of the like entries of two matrices,
+     * which is the sum of their Hadamard product, without
+     * building the product. Must be of the same dimensions.
+     * @param a The first matrix.
+     * @param b The second matrix.
+     * @return The sum of the element-wise products.
+     */
+    public static double dotProduct(Matrix3D a, Matrix3D b) throws InvalidMatrixOperation {
+        /** Ensures compatibility. */
+        if (a == null || b == null || !a.getDimensions().equals(b.getDimensions())) {
+            throw new InvalidMatrixOperation(a, b, "dot product");
+        }
+
+        if (sameOrder(a, b)) {
+            return ElementwiseKernels.INSTANCE.dot(a.values, a.index(0, 0, 0), b.values, b.index(0, 0, 0), a.size());
+        }
+        double sum = 0.0;
+        /** Windows of channel-last matrices, such as convolution inputs, are still contiguous row by row. */
+        if (a.rowsPacked() && b.rowsPacked()) {
+            int length = a.getColumnCount() * a.getLayerCount();
+            for (int row = 0; row < a.getRowCount(); row += 1) {
+                sum += ElementwiseKernels.INSTANCE.dot(a.values, a.index(row, 0, 0), b.values, b.index(row, 0, 0), length);
+            }
+            return sum;
+        }
+        for (int row = 0; row < a.getRowCount(); row += 1) {
+            for (int col = 0; col < a.getColumnCount(); col += 1) {
+                for (int lay = 0; lay < a.getLayerCount(); lay += 1) {
+                    sum += a.get(row, col, lay) * b.get(row, col, lay);
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Sums the products of the entries of one matrix with the entries of
+     * a same-sized window of another, which is one output of a
+     * convolution, without creating a view of the window. Parts of the
+     * window outside the matrix count as 0.0, as with subMatrixView.
+     * @param a The matrix the window is taken from.
+     * @param rowStart The row of a at the top of the window.
+     * @param colStart The column of a at the left of the window.
+     * @param layStart The layer of a at the front of the window.
+     * @param b The matrix to multiply the window by; its dimensions
+     *          are those of the window.
+     * @return The sum of the element-wise products.
+     */
+    public static double dotProduct(Matrix3D a, int rowStart, int colStart, int layStart, Matrix3D b) {
+        int rows = b.getRowCount();
+        int columns = b.getColumnCount();
+        int layers = b.getLayerCount();
+        double sum = 0.0;
+        /** Runs a kernel over each row when the rows of both the window and b are packed channel-last. */
+        if (rowStart >= 0 && colStart >= 0 && layStart >= 0 && rowStart + rows <= a.getRowCount()
+                && colStart + columns <= a.getColumnCount() && layStart + layers <= a.getLayerCount()
+                && a.values != null && b.rowsPacked() && (layers <= 1 || a.layerStride == 1) && (columns <= 1 || a.columnStride == layers)) {
+            for (int row = 0; row < rows; row += 1) {
+                sum += ElementwiseKernels.INSTANCE.dot(a.values, a.index(rowStart + row, colStart, layStart), b.values, b.index(row, 0, 0), columns * layers);
+            }
+            return sum;
+        }
+        for (int row = Math.max(0, -rowStart); row < Math.min(rows, a.getRowCount() - rowStart); row += 1) {
+            for (int col = Math.max(0, -colStart); col < Math.min(columns, a.getColumnCount() - colStart); col += 1) {
+                for (int lay = Math.max(0, -layStart); lay < Math.min(layers, a.getLayerCount() - layStart); lay += 1) {
+                    sum += a.get(rowStart + row, colStart + col, layStart + lay) * b.get(row, col, lay);
+                }
+            }
+        }
+        return sum;
+    }
+
     /**
      * Raises the entries of the a matrix to a given power.
      * @param a The matrix.
@@ -246,14 +439,14 @@ public class Matrix3D extends Matrix {
      * @return The resulting matrix of entries raised to an inputted power.
      */
     public static Matrix3D pow(Matrix3D a, double power) {
-        int rowCount = a.getRowCount();
-        int columnCount = a.getColumnCount();
-        int layerCount = a.getLayerCount();
-
-        Matrix3D powerMatrix = new Matrix3D(new double[rowCount][columnCount][layerCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                for (int lay = 0; lay < layerCount; lay += 1) {
+        Matrix3D powerMatrix = Matrix3D.like(a);
+        if (power == 2.0 && sameOrder(a, powerMatrix)) {
+            ElementwiseKernels.INSTANCE.square(a.values, a.index(0, 0, 0), powerMatrix.values, 0, a.size());
+            return powerMatrix;
+        }
+        for (int row = 0; row < a.getRowCount(); row += 1) {
+            for (int col = 0; col < a.getColumnCount(); col += 1) {
+                for (int lay = 0; lay < a.getLayerCount(); lay += 1) {
                     powerMatrix.set(row, col, lay, Math.pow(a.get(row, col, lay), power));
                 }
             }
@@ -267,14 +460,14 @@ public class Matrix3D extends Matrix {
      * @return The resulting matrix of positive entries.
      */
     public static Matrix3D abs(Matrix3D a) {
-        int rowCount = a.getRowCount();
-        int columnCount = a.getColumnCount();
-        int layerCount = a.getLayerCount();
-
-        Matrix3D absMatrix = new Matrix3D(new double[rowCount][columnCount][layerCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                for (int lay = 0; lay < layerCount; lay += 1) {
+        Matrix3D absMatrix = Matrix3D.like(a);
+        if (sameOrder(a, absMatrix)) {
+            ElementwiseKernels.INSTANCE.abs(a.values, a.index(0, 0, 0), absMatrix.values, 0, a.size());
+            return absMatrix;
+        }
+        for (int row = 0; row < a.getRowCount(); row += 1) {
+            for (int col = 0; col < a.getColumnCount(); col += 1) {
+                for (int lay = 0; lay < a.getLayerCount(); lay += 1) {
                     absMatrix.set(row, col, lay, Math.abs(a.get(row, col, lay)));
                 }
             }
@@ -306,57 +499,42 @@ public class Matrix3D extends Matrix {
 
     /**
      * Splits a matrix into an array of matrices
-     * of its rows.
+     * of its rows. The rows are copies; see
+     * getRowViews for views that share the entries.
      * @return the array of single-rowed matrices.
      */
     public Matrix3D[] getRows() {
         Matrix3D[] out = new Matrix3D[getRowCount()];
         for (int index = 0; index < getRowCount(); index += 1) {
-            out[index] = new Matrix3D(1, getColumnCount(), getLayerCount());
-            
-            for (int col = 0; col < getColumnCount(); col += 1) {
-                for (int lay = 0; lay < getLayerCount(); lay += 1) {
-                    out[index].set(0, col, lay, get(index, col, lay));
-                }
-            }
+            out[index] = new Matrix3D(rowView(index));
         }
         return out;
     }
 
     /**
      * Splits a matrix into an array of matrices
-     * of its columns.
+     * of its columns. The columns are copies; see
+     * getColumnViews for views that share the entries.
      * @return the array of single-columned matrices.
      */
     public Matrix3D[] getColumns() {
         Matrix3D[] out = new Matrix3D[getColumnCount()];
         for (int index = 0; index < getColumnCount(); index += 1) {
-            out[index] = new Matrix3D(getRowCount(), 1, getLayerCount());
-            
-            for (int row = 0; row < getRowCount(); row += 1) {
-                for (int lay = 0; lay < getLayerCount(); lay += 1) {
-                    out[index].set(row, 0, lay, get(row, index, lay));
-                }
-            }
+            out[index] = new Matrix3D(columnView(index));
         }
         return out;
     }
 
     /**
      * Splits a matrix into an array of matrices
-     * of its layers.
+     * of its layers. The layers are copies; see
+     * getLayerViews for views that share the entries.
      * @return the array of single-layered matrices.
      */
     public Matrix3D[] getLayers() {
         Matrix3D[] out = new Matrix3D[getLayerCount()];
         for (int index = 0; index < getLayerCount(); index += 1) {
-            out[index] = new Matrix3D(getRowCount(), getColumnCount(), 1);
-
-            for (int row = 0; row < getRowCount(); row += 1) {
-                for (int col = 0; col < getColumnCount(); col += 1) {
-                    out[index].set(row, col, 0, get(row, col, index));
-                }
-            }
+            out[index] = new Matrix3D(layerView(index));
         }
         return out;
     }
@@ -373,21 +551,120 @@ public class Matrix3D extends Matrix {
      * @param rowEnd the index of the bottom row + 1 (inclusive).
      * @param colEnd the index of the right column + 1 (inclusive).
      * @param layEnd the index of the back layer + 1 (inclusive).
-     * @return the sub matrix.
+     * @return the sub matrix, a copy of the entries. See subMatrixView
+     *         for a view that shares them.
      */
     public static Matrix3D subMatrix(Matrix3D a, int rowStart, int colStart, int layStart, int rowEnd, int colEnd, int layEnd) {
-        Matrix3D subMatrix = new Matrix3D(rowEnd - rowStart, colEnd - colStart, layEnd - layStart);
-        for (int row = rowStart; row < rowEnd; row += 1) {
-            for (int column = colStart; column < colEnd; column += 1) {
-                for (int layer = layStart; layer < layEnd; layer += 1) {
-                    double value = (0 <= row && row < a.getRowCount() && 0 <= column && column < a.getColumnCount() && 0 <= layer && layer < a.getLayerCount() ? a.get(row, column, layer) : 0.0);
-                    subMatrix.set(row - rowStart, column - colStart, layer - layStart, value);
-                }
-            }
+        return new Matrix3D(Matrix3D.subMatrixView(a, rowStart, colStart, layStart, rowEnd, colEnd, layEnd), a.getLayout());
+    }
+
+    /**
+     * Returns a view of the part of a matrix bounded by the given
+     * indices. The view shares the entries of the original matrix
+     * instead of copying them, so changes to either are seen by both.
+     * As with subMatrix, entries of the view outside the original
+     * matrix's bounds are 0.0; they cannot be written.
+     * @param a the original matrix.
+     * @param rowStart the index of the top row (inclusive).
+     * @param colStart the index of the left column (inclusive).
+     * @param layStart the index of the front layer (inclusive);
+     * @param rowEnd the index of the bottom row + 1 (exclusive).
+     * @param colEnd the index of the right column + 1 (exclusive).
+     * @param layEnd the index of the back layer + 1 (exclusive).
+     * @return a view of the sub matrix.
+     */
+    public static Matrix3D subMatrixView(Matrix3D a, int rowStart, int colStart, int layStart, int rowEnd, int colEnd, int layEnd) {
+        boolean inside = (rowStart >= 0 && colStart >= 0 && layStart >= 0 && rowStart <= rowEnd && colStart <= colEnd && layStart <= layEnd
+            && rowEnd <= a.getRowCount() && colEnd <= a.getColumnCount() && layEnd <= a.getLayerCount());
+        /** Windows inside a heap matrix are strided views of its array; others need zero padding or indirection. */
+        if (inside && a.values != null) {
+            return new Matrix3D(a.values, a.index(rowStart, colStart, layStart), rowEnd - rowStart, colEnd - colStart, layEnd - layStart,
+                a.rowStride, a.columnStride, a.layerStride, a.layout);
+        }
+        return new Matrix3DView(a, rowStart, colStart, layStart, rowEnd - rowStart, colEnd - colStart, layEnd - layStart);
+    }
+
+    /**
+     * Returns a view of one row of the matrix, which shares
+     * the entries of the matrix instead of copying them.
+     * @param row the index of the row.
+     * @return a single-rowed view of the row.
+     * @throws InvalidMatrixIndex if the row is outside the matrix.
+     */
+    public Matrix3D rowView(int row) throws InvalidMatrixIndex {
+        if (row < 0 || row >= getRowCount()) {
+            throw new InvalidMatrixIndex(this, row, 0, 0);
         }
-        return subMatrix;
+        return Matrix3D.subMatrixView(this, row, 0, 0, row + 1, getColumnCount(), getLayerCount());
     }
-    
+
+    /**
+     * Returns a view of one column of the matrix, which shares
+     * the entries of the matrix instead of copying them.
+     * @param column the index of the column.
+     * @return a single-columned view of the column.
+     * @throws InvalidMatrixIndex if the column is outside the matrix.
+     */
+    public Matrix3D columnView(int column) throws InvalidMatrixIndex {
+        if (column < 0 || column >= getColumnCount()) {
+            throw new InvalidMatrixIndex(this, 0, column, 0);
+        }
+        return Matrix3D.subMatrixView(this, 0, column, 0, getRowCount(), column + 1, getLayerCount());
+    }
+
+    /**
+     * Returns a view of one layer of the matrix, which shares
+     * the entries of the matrix instead of copying them.
+     * @param layer the index of the layer.
+     * @return a single-layered view of the layer.
+     * @throws InvalidMatrixIndex if the layer is outside the matrix.
+     */
+    public Matrix3D layerView(int layer) throws InvalidMatrixIndex {
+        if (layer < 0 || layer >= getLayerCount()) {
+            throw new InvalidMatrixIndex(this, 0, 0, layer);
+        }
+        return Matrix3D.subMatrixView(this, 0, 0, layer, getRowCount(), getColumnCount(), layer + 1);
+    }
+
+    /**
+     * Splits a matrix into an array of views of its
+     * rows, which share the entries of the matrix.
+     * @return the array of single-rowed views.
+     */
+    public Matrix3D[] getRowViews() {
+        Matrix3D[] out = new Matrix3D[getRowCount()];
+        for (int index = 0; index < getRowCount(); index += 1) {
+            out[index] = rowView(index);
+        }
+        return out;
+    }
+
+    /**
+     * Splits a matrix into an array of views of its
+     * columns, which share the entries of the matrix.
+     * @return the array of single-columned views.
+     */
+    public Matrix3D[] getColumnViews() {
+        Matrix3D[] out = new Matrix3D[getColumnCount()];
+        for (int index = 0; index < getColumnCount(); index += 1) {
+            out[index] = columnView(index);
+        }
+        return out;
+    }
+
+    /**
+     * Splits a matrix into an array of views of its
+     * layers, which share the entries of the matrix.
+     * @return the array of single-layered views.
+     */
+    public Matrix3D[] getLayerViews() {
+        Matrix3D[] out = new Matrix3D[getLayerCount()];
+        for (int index = 0; index < getLayerCount(); index += 1) {
+            out[index] = layerView(index);
+        }
+        return out;
+    }
+
     /**
      * Adds two arrays of matrices together, item by item.
      * Matrices and arrays must be of the same dimensions.
@@ -422,7 +699,7 @@ public class Matrix3D extends Matrix {
         }
         return summedMatrices;
     }
-    
+
     /**
      * Adds all like elements of an array of matrices together, item by item.
      * Matrices must be of the same dimensions.
@@ -436,7 +713,7 @@ public class Matrix3D extends Matrix {
         }
         return summedMatrix;
     }
-    
+
     /**
      * Multiplies all elements in an array of matrices
      * by a factor.
@@ -445,7 +722,7 @@ public class Matrix3D extends Matrix {
      */
     public static Matrix3D[] multiply(Matrix3D[] a, double factor) throws InvalidMatrixOperation {
         Matrix3D[] productMatrices = new Matrix3D[a.length];
-        for (int index = 1; index < a.length; index += 1) {
+        for (int index = 0; index < a.length; index += 1) {
             productMatrices[index] = Matrix3D.multiply(a[index], factor);
         }
         return productMatrices;
@@ -457,6 +734,9 @@ public class Matrix3D extends Matrix {
      * @return the sum of the entries.
      */
     public static double sumEntries(Matrix3D a) {
+        if (a.isContiguous()) {
+            return ElementwiseKernels.INSTANCE.sum(a.values, a.index(0, 0, 0), a.size());
+        }
         double sum = 0.0;
         for (int row = 0; row < a.getRowCount(); row += 1) {
             for (int column = 0; column < a.getColumnCount(); column += 1) {
@@ -501,39 +781,40 @@ public class Matrix3D extends Matrix {
         if (a.getLayerCount() != 1) {
             throw new InvalidMatrixOperation(a, new Matrix2D(a.getRowCount(), a.getColumnCount()), "conversion to 2D");
         }
-
-        Matrix2D twoDmatrix = new Matrix2D(a.getRowCount(), a.getColumnCount());
-        for (int row = 0; row < a.getRowCount(); row += 1) {
-            for (int col = 0; col < a.getColumnCount(); col += 1) {
-                twoDmatrix.set(row, col, a.get(row, col, 0));
-            }
-        }
-
-        return twoDmatrix;
+        return new Matrix2D(a.layerMatrix(0));
     }
 
     /**
      * Flattens the values of a 3D matrix into a
-     * singled columned 2D matrix.
+     * singled columned 2D matrix, layer by layer.
      * @param a the 3D matrix to flatten.
      * @return the flattened matrix.
      */
     public static Matrix2D flatten(Matrix3D a) {
-        int rowCount = a.getRowCount();
-        int colCount = a.getColumnCount();
-        int layCount = a.getLayerCount();
-        
-        Matrix2D flattenedMatrix = new Matrix2D(rowCount * colCount * layCount, 1);
-
-        for (int lay = 0; lay < layCount; lay += 1) {
-            for (int row = 0; row < rowCount; row += 1) {
-                for (int col = 0; col < colCount; col += 1) {
-                    flattenedMatrix.set(col + row * colCount + lay * colCount * rowCount, 0, a.get(row, col, lay));
+        Matrix2D flattenedMatrix = new Matrix2D(a.size(), 1);
+        /** The flattened order is channel-first, so it is a copy of a channel-first matrix. */
+        Matrix3D.copyInto(a, new Matrix3D(flattenedMatrix.getArray(), a.getRowCount(), a.getColumnCount(), a.getLayerCount(), MatrixLayout.CHANNEL_FIRST));
+        return flattenedMatrix;
+    }
+
+    /**
+     * Returns a layer of the matrix as a 2D matrix that shares
+     * its entries, so that 2D kernels can work on it directly.
+     * Matrices not stored on the heap give a copy.
+     * @param layer the index of the layer.
+     * @return the layer as a 2D matrix.
+     */
+    Matrix2D layerMatrix(int layer) {
+        if (values == null) {
+            Matrix2D copy = new Matrix2D(getRowCount(), getColumnCount());
+            for (int row = 0; row < getRowCount(); row += 1) {
+                for (int col = 0; col < getColumnCount(); col += 1) {
+                    copy.set(row, col, get(row, col, layer));
                 }
             }
+            return copy;
         }
-
-        return flattenedMatrix;
+        return new Matrix2D(values, index(0, 0, layer), rowCount, columnCount, rowStride, columnStride);
     }
 
     /**
@@ -544,7 +825,7 @@ public class Matrix3D extends Matrix {
      * @return The value of the specified index.
      */
     public double get(int row, int column, int layer) {
-        return values[row][column][layer];
+        return values[index(row, column, layer)];
     }
 
     /**
@@ -557,11 +838,11 @@ public class Matrix3D extends Matrix {
      */
     public void set(int row, int column, int layer, double value) throws InvalidMatrixIndex {
         if (row > getRowCount() - 1 || column > getColumnCount() - 1 || layer > getLayerCount() - 1) {
-            throw new InvalidMatrixIndex(this, row, column);
+            throw new InvalidMatrixIndex(this, row, column, layer);
         }
-        values[row][column][layer] = value;
+        values[index(row, column, layer)] = value;
     }
-    
+
     /**
      * Sets the specified column. Index should be valid.
      * @param column The index of the column to set.
@@ -582,13 +863,9 @@ public class Matrix3D extends Matrix {
             throw new InvalidMatrixIndex(this, 0, column, 0);
         }
 
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int lay = 0; lay < layerCount; lay += 1) {
-                this.values[row][column][lay] = values.get(row, 0, lay);
-            }
-        }
+        Matrix3D.copyInto(Matrix3D.subMatrixView(values, 0, 0, 0, rowCount, 1, layerCount), columnView(column));
     }
-    
+
     /**
      * Sets the specified row. Index should be valid.
      * @param row The index of the row to set.
@@ -609,13 +886,9 @@ public class Matrix3D extends Matrix {
             throw new InvalidMatrixIndex(this, row, 0, 0);
         }
 
-        for (int col = 0; col < columnCount; col += 1) {
-            for (int lay = 0; lay < layerCount; lay += 1) {
-                this.values[row][col][lay] = values.get(0, col, lay);
-            }
-        }
+        Matrix3D.copyInto(Matrix3D.subMatrixView(values, 0, 0, 0, 1, columnCount, layerCount), rowView(row));
     }
-    
+
     /**
      * Sets the specified layer. Index should be valid.
      * @param layer The index of the layer to set.
@@ -636,11 +909,7 @@ public class Matrix3D extends Matrix {
             throw new InvalidMatrixIndex(this, 0, 0, layer);
         }
 
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                this.values[row][col][layer] = values.get(row, col, 0);
-            }
-        }
+        Matrix3D.copyInto(Matrix3D.subMatrixView(values, 0, 0, 0, rowCount, columnCount, 1), layerView(layer));
     }
 
     /**
@@ -648,7 +917,7 @@ public class Matrix3D extends Matrix {
      * @return the number of rows in the matrix.
      */
     public int getRowCount() {
-        return values.length;
+        return rowCount;
     }
 
     /**
@@ -656,7 +925,7 @@ public class Matrix3D extends Matrix {
      * @return the number of columns in the matrix.
      */
     public int getColumnCount() {
-        return (values.length > 0 ? values[0].length : 0);
+        return columnCount;
     }
 
     /**
@@ -664,7 +933,16 @@ public class Matrix3D extends Matrix {
      * @return the number of layers in the matrix.
      */
     public int getLayerCount() {
-        return (values.length > 0 && values[0].length > 0 ? values[0][0].length : 0);
+        return layerCount;
+    }
+
+    /**
+     * Returns the order the matrix stores its entries in. Views
+     * report the layout of the matrix they were taken from.
+     * @return the layout of the matrix.
+     */
+    public MatrixLayout getLayout() {
+        return layout;
     }
 
     /**
@@ -675,6 +953,138 @@ public class Matrix3D extends Matrix {
         return "" + getRowCount() + "x" + getColumnCount() + "x" + getLayerCount();
     }
 
+    /**
+     * Returns the number of entries in the matrix.
+     * @return rows * columns * layers.
+     */
+    private int size() {
+        return getRowCount() * getColumnCount() * getLayerCount();
+    }
+
+    /**
+     * Returns the position of an entry in the values array.
+     * @param row The row of the entry.
+     * @param column The column of the entry.
+     * @param layer The layer of the entry.
+     * @return The position of the entry in the values array.
+     */
+    private int index(int row, int column, int layer) {
+        return offset + row * rowStride + column * columnStride + layer * layerStride;
+    }
+
+    /**
+     * Creates an empty matrix with the dimensions of another matrix,
+     * in the layout that matrix is stored in.
+     * @param a The matrix to match.
+     * @return a new matrix of zeros.
+     */
+    private static Matrix3D like(Matrix3D a) {
+        MatrixLayout layout = a.contiguousLayout();
+        return new Matrix3D(a.getRowCount(), a.getColumnCount(), a.getLayerCount(), (layout == null ? a.getLayout() : layout));
+    }
+
+    /**
+     * Determines whether the matrix's entries fill one unbroken
+     * run of its array in the order of the given layout.
+     * @param layout The layout to check.
+     * @return whether the matrix is packed in that layout.
+     */
+    private boolean isPacked(MatrixLayout layout) {
+        if (layout == MatrixLayout.CHANNEL_LAST) {
+            return (layerCount <= 1 || layerStride == 1)
+                && (columnCount <= 1 || columnStride == layerCount)
+                && (rowCount <= 1 || rowStride == columnCount * layerCount);
+        }
+        return (columnCount <= 1 || columnStride == 1)
+            && (rowCount <= 1 || rowStride == columnCount)
+            && (layerCount <= 1 || layerStride == rowCount * columnCount);
+    }
+
+    /**
+     * Determines whether each row of the matrix fills one unbroken run
+     * of its heap array in channel-last order, as the rows of a window
+     * onto a channel-last matrix do.
+     * @return whether every row is packed.
+     */
+    private boolean rowsPacked() {
+        return values != null && (layerCount <= 1 || layerStride == 1) && (columnCount <= 1 || columnStride == layerCount);
+    }
+
+    /**
+     * Returns the layout in which the matrix's entries fill one
+     * unbroken run of its heap array, or null if they do not.
+     * If both layouts describe the same order (as for a single
+     * layer), the matrix's own layout is preferred.
+     * @return the layout the matrix is packed in, or null.
+     */
+    MatrixLayout contiguousLayout() {
+        if (values == null) {
+            return null;
+        } else if (isPacked(layout)) {
+            return layout;
+        }
+        MatrixLayout other = (layout == MatrixLayout.CHANNEL_LAST ? MatrixLayout.CHANNEL_FIRST : MatrixLayout.CHANNEL_LAST);
+        return (isPacked(other) ? other : null);
+    }
+
+    /**
+     * Determines whether the matrix stores its entries on the heap
+     * in one unbroken run, in either layout.
+     * @return whether the matrix is contiguous.
+     */
+    boolean isContiguous() {
+        return contiguousLayout() != null;
+    }
+
+    /**
+     * Returns the array the matrix stores its entries in.
+     * @return the storage of the matrix, or null if it is not on the heap.
+     */
+    double[] getArray() {
+        return values;
+    }
+
+    /**
+     * Returns the position of entry (0, 0, 0) in the storage array.
+     * @return the position of the first entry.
+     */
+    int getArrayOffset() {
+        return offset;
+    }
+
+    /**
+     * Determines whether the entries of all the given matrices are
+     * contiguous and in the same order, so that element-wise kernels
+     * can treat them as flat arrays of matching entries.
+     * @param matrices The matrices, all of the same dimensions.
+     * @return whether the matrices can be processed as flat arrays.
+     */
+    static boolean sameOrder(Matrix3D... matrices) {
+        MatrixLayout first = matrices[0].contiguousLayout();
+        if (first == null) {
+            return false;
+        }
+        for (int index = 1; index < matrices.length; index += 1) {
+            if (matrices[index].contiguousLayout() != first && !(matrices[index].isContiguous() && matrices[index].isPacked(first))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ensures that a destination matrix has the same dimensions as an input.
+     * @param a The input matrix.
+     * @param destination The destination matrix.
+     * @param operation The name of the operation, for error messages.
+     * @throws InvalidMatrixOperation if the dimensions differ.
+     */
+    private static void checkDestination(Matrix3D a, Matrix3D destination, String operation) throws InvalidMatrixOperation {
+        if (destination == null || !a.getDimensions().equals(destination.getDimensions())) {
+            throw new InvalidMatrixOperation(a, (destination == null ? new Matrix3D() : destination), operation + " into destination");
+        }
+    }
+
     /**
      * Determines equivalence of the matrix with another object.
      * @param other The object to compare to.
@@ -686,7 +1096,7 @@ public class Matrix3D extends Matrix {
         }
 
         final Matrix3D otherMatrix = (Matrix3D) other;
-        
+
         if (getColumnCount() != otherMatrix.getColumnCount() || getRowCount() != otherMatrix.getRowCount()
                 || getLayerCount() != otherMatrix.getLayerCount()) {
             return false;
@@ -714,7 +1124,7 @@ public class Matrix3D extends Matrix {
     @Override
     public String toString() {
         String out = "\n[";
-        Matrix3D[] layers = getLayers();
+        Matrix3D[] layers = getLayerViews();
         for (int index = 0; index < layers.length; index++) {
             out += Matrix3D.to2D(layers[index]);
             if (index < layers.length - 1) {
@@ -723,4 +1133,4 @@ public class Matrix3D extends Matrix {
         }
         return out + "\n]";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+package Neuranet;
+
+import Neuranet.RuntimeExceptions.InvalidMatrixIndex;
+
+/**
+ * Class that represents a window onto another 3D matrix. The view
+ * shares the entries of the matrix it was taken from instead of
+ * copying them, so changes to either are seen by both. Parts of the
+ * window that fall outside the original matrix read as 0.0 (zero
+ * padding) and cannot be written.
+ *
+ * Views are created by Matrix3D.subMatrixView and the
+ * get...Views methods of Matrix3D.
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+class Matrix3DView extends Matrix3D {
+    /** The matrix the view was taken from. */
+    private final Matrix3D parent;
+    /** The row of the parent at row 0 of the view. */
+    private final int rowStart;
+    /** The column of the parent at column 0 of the view. */
+    private final int columnStart;
+    /** The layer of the parent at layer 0 of the view. */
+    private final int layerStart;
+    /** The number of rows in the view. */
+    private final int rowCount;
+    /** The number of columns in the view. */
+    private final int columnCount;
+    /** The number of layers in the view. */
+    private final int layerCount;
+    /** Whether the whole window lies inside the parent. */
+    private final boolean inside;
+
+    /**
+     * Creates a view of a window of a matrix. Views of views refer
+     * directly to the original matrix when the inner window has no
+     * padding.
+     * @param parent The matrix to view.
+     * @param rowStart The row of the parent at row 0 of the view.
+     * @param columnStart The column of the parent at column 0 of the view.
+     * @param layerStart The layer of the parent at layer 0 of the view.
+     * @param rows The number of rows in the view.
+     * @param columns The number of columns in the view.
+     * @param layers The number of layers in the view.
+     */
+    Matrix3DView(Matrix3D parent, int rowStart, int columnStart, int layerStart, int rows, int columns, int layers) {
+        super(null, rows, columns, layers, parent.getLayout());
+        if (parent instanceof Matrix3DView && ((Matrix3DView) parent).inside) {
+            Matrix3DView view = (Matrix3DView) parent;
+            parent = view.parent;
+            rowStart += view.rowStart;
+            columnStart += view.columnStart;
+            layerStart += view.layerStart;
+        }
+        this.parent = parent;
+        this.rowStart = rowStart;
+        this.columnStart = columnStart;
+        this.layerStart = layerStart;
+        this.rowCount = rows;
+        this.columnCount = columns;
+        this.layerCount = layers;
+        this.inside = (rowStart >= 0 && columnStart >= 0 && layerStart >= 0
+            && rowStart + rows <= parent.getRowCount()
+            && columnStart + columns <= parent.getColumnCount()
+            && layerStart + layers <= parent.getLayerCount());
+    }
+
+    /**
+     * Gets a value at a specified index. Indices should be valid.
+     * Entries outside the original matrix are 0.0.
+     * @param row The row the value is in.
+     * @param column The column the value is in.
+     * @param layer The layer the value is in.
+     * @return The value of the specified index.
+     */
+    @Override
+    public double get(int row, int column, int layer) {
+        int parentRow = rowStart + row;
+        int parentColumn = columnStart + column;
+        int parentLayer = layerStart + layer;
+        if (!inside && (parentRow < 0 || parentRow >= parent.getRowCount()
+                || parentColumn < 0 || parentColumn >= parent.getColumnCount()
+                || parentLayer < 0 || parentLayer >= parent.getLayerCount())) {
+            return 0.0;
+        }
+        return parent.get(parentRow, parentColumn, parentLayer);
+    }
+
+    /**
+     * Sets a value at a specified index, in the original matrix.
+     * @param row The row of the value to modify.
+     * @param column The column of the value to modify.
+     * @param layer The layer of the value to modify.
+     * @param value The value to set the specified index to.
+     * @throws InvalidMatrixIndex if the index is outside the view
+     *      or falls in its zero padding.
+     */
+    @Override
+    public void set(int row, int column, int layer, double value) throws InvalidMatrixIndex {
+        int parentRow = rowStart + row;
+        int parentColumn = columnStart + column;
+        int parentLayer = layerStart + layer;
+        if (row < 0 || row > rowCount - 1 || column < 0 || column > columnCount - 1 || layer < 0 || layer > layerCount - 1
+                || parentRow < 0 || parentRow >= parent.getRowCount()
+                || parentColumn < 0 || parentColumn >= parent.getColumnCount()
+                || parentLayer < 0 || parentLayer >= parent.getLayerCount()) {
+            throw new InvalidMatrixIndex(this, row, column, layer);
+        }
+        parent.set(parentRow, parentColumn, parentLayer, value);
+    }
+
+    /**
+     * Returns the number of rows in the matrix.
+     * @return the number of rows in the matrix.
+     */
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the number of columns in the matrix.
+     * @return the number of columns in the matrix.
+     */
+    @Override
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Returns the number of layers in the matrix.
+     * @return the number of layers in the matrix.
+     */
+    @Override
+    public int getLayerCount() {
+        return layerCount;
+    }
+}
@@ -0,0 +1,497 @@
+package Neuranet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import Neuranet.RuntimeExceptions.InvalidMatrixOperation;
+
+/**
+ * Class that represents a lazily evaluated Matrix2D computation:
+ * an optional matrix product followed by a chain of element-wise
+ * operations. Nothing is computed until evaluate, evaluateInto or
+ * sumEntries is called. The element-wise chain is then applied in
+ * one pass over the result, block by block, so each entry is loaded
+ * and stored once instead of once per operation, and no intermediate
+ * matrices are allocated. For example
+ *
+ *     MatrixExpression.product(weights, input).add(biases).activate(Activation.SIGMOID).evaluate()
+ *
+ * accumulates the product directly onto a copy of the biases and
+ * activates it in place, where the eager equivalent makes three
+ * passes and three matrices.
+ *
+ * Expressions are immutable: every operation returns a new expression
+ * and the original can still be evaluated or extended. The matrices an
+ * expression refers to are read when it is evaluated, not when it is
+ * built.
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+public final class MatrixExpression {
+    /** The number of entries each fused block covers; small enough to stay in L1 cache. */
+    private static final int BLOCK_SIZE = 1024;
+
+    /**
+     * Enum that represents the element-wise operations
+     * an expression can apply to its entries.
+     */
+    private enum Operation {
+        ADD,
+        SUBTRACT,
+        HADAMARD_MULTIPLY,
+        SCALE,
+        DIVIDE,
+        POW,
+        ABS,
+        ACTIVATE
+    }
+
+    /**
+     * Class that represents one element-wise operation
+     * and its operand.
+     */
+    private static final class Stage {
+        /** The operation to apply. */
+        final Operation operation;
+        /** The matrix operand of ADD, SUBTRACT and HADAMARD_MULTIPLY. */
+        final Matrix2D operand;
+        /** The scalar operand of SCALE, DIVIDE and POW. */
+        final double scalar;
+        /** The activation function of ACTIVATE. */
+        final Activation activation;
+
+        Stage(Operation operation, Matrix2D operand, double scalar, Activation activation) {
+            this.operation = operation;
+            this.operand = operand;
+            this.scalar = scalar;
+            this.activation = activation;
+        }
+
+        /**
+         * Determines whether the stage needs the whole matrix before it
+         * can produce any entry, so that it cannot be fused.
+         * @return whether the stage ends a fused pass.
+         */
+        boolean isBarrier() {
+            return operation == Operation.ACTIVATE && !activation.isElementwise();
+        }
+    }
+
+    /** The matrix the expression starts from, or the left factor of its product. */
+    private final Matrix2D left;
+    /** The right factor of the product, or null if the expression starts from left itself. */
+    private final Matrix2D right;
+    /** The element-wise operations applied after the product, in order. */
+    private final List<Stage> stages;
+
+    /**
+     * Creates an expression from its base and its element-wise stages.
+     * @param left The starting matrix or left factor.
+     * @param right The right factor, or null.
+     * @param stages The element-wise operations.
+     */
+    private MatrixExpression(Matrix2D left, Matrix2D right, List<Stage> stages) {
+        this.left = left;
+        this.right = right;
+        this.stages = stages;
+    }
+
+    /**
+     * Creates an expression whose value is a matrix.
+     * @param a The matrix.
+     * @return the expression.
+     */
+    public static MatrixExpression of(Matrix2D a) {
+        return new MatrixExpression(a, null, new ArrayList<>());
+    }
+
+    /**
+     * Creates an expression whose value is the product of two matrices.
+     * The columnCount of a must equal the rowCount of b.
+     * @param a The first matrix.
+     * @param b The second matrix that multiplies the first.
+     * @return the expression.
+     * @throws InvalidMatrixOperation if the dimensions are incompatible.
+     */
+    public static MatrixExpression product(Matrix2D a, Matrix2D b) throws InvalidMatrixOperation {
+        if (a.getColumnCount() != b.getRowCount()) {
+            throw new InvalidMatrixOperation(a, b, "multiplication");
+        }
+        return new MatrixExpression(a, b, new ArrayList<>());
+    }
+
+    /**
+     * Returns an expression for the product of this expression and a
+     * matrix. Products cannot be fused with what precedes them, so if
+     * this expression has element-wise operations, they are evaluated
+     * first.
+     * @param b The matrix that multiplies this expression.
+     * @return the expression.
+     * @throws InvalidMatrixOperation if the dimensions are incompatible.
+     */
+    public MatrixExpression multiply(Matrix2D b) throws InvalidMatrixOperation {
+        return MatrixExpression.product((right == null && stages.isEmpty() ? left : evaluate()), b);
+    }
+
+    /**
+     * Returns an expression that adds a matrix to this one.
+     * @param b The matrix to add, of the same dimensions.
+     * @return the expression.
+     * @throws InvalidMatrixOperation if the dimensions differ.
+     */
+    public MatrixExpression add(Matrix2D b) throws InvalidMatrixOperation {
+        return then(new Stage(Operation.ADD, checkOperand(b, "addition"), 0.0, null));
+    }
+
+    /**
+     * Returns an expression that subtracts a matrix from this one.
+     * @param b The matrix to subtract, of the same dimensions.
+     * @return the expression.
+     * @throws InvalidMatrixOperation if the dimensions differ.
+     */
+    public MatrixExpression subtract(Matrix2D b) throws InvalidMatrixOperation {
+        return then(new Stage(Operation.SUBTRACT, checkOperand(b, "subtraction"), 0.0, null));
+    }
+
+    /**
+     * Returns an expression that multiplies this one by a matrix
+     * in an element-wise fashion.
+     * @param b The matrix to multiply by, of the same dimensions.
+     * @return the expression.
+     * @throws InvalidMatrixOperation if the dimensions differ.
+     */
+    public MatrixExpression hadamardMultiply(Matrix2D b) throws InvalidMatrixOperation {
+        return then(new Stage(Operation.HADAMARD_MULTIPLY, checkOperand(b, "Hadamard multiplication"), 0.0, null));
+    }
+
+    /**
+     * Returns an expression that multiplies this one by a scalar.
+     * @param factor The factor to scale the entries by.
+     * @return the expression.
+     */
+    public MatrixExpression multiply(double factor) {
+        return then(new Stage(Operation.SCALE, null, factor, null));
+    }
+
+    /**
+     * Returns an expression that divides this one by a scalar.
+     * @param factor The factor to divide the entries by.
+     * @return the expression.
+     */
+    public MatrixExpression divide(double factor) {
+        return then(new Stage(Operation.DIVIDE, null, factor, null));
+    }
+
+    /**
+     * Returns an expression that raises the entries of this one to a power.
+     * @param power The power to raise the entries to.
+     * @return the expression.
+     */
+    public MatrixExpression pow(double power) {
+        return then(new Stage(Operation.POW, null, power, null));
+    }
+
+    /**
+     * Returns an expression for the absolute values of the entries of this one.
+     * @return the expression.
+     */
+    public MatrixExpression abs() {
+        return then(new Stage(Operation.ABS, null, 0.0, null));
+    }
+
+    /**
+     * Returns an expression that puts this one through an activation
+     * function. Functions that are not element-wise, RELU_NORMALIZED
+     * and SOFTMAX, need the whole matrix and end a fused pass.
+     * @param activationType the activation function type to use.
+     * @return the expression.
+     */
+    public MatrixExpression activate(Activation activationType) {
+        return then(new Stage(Operation.ACTIVATE, null, 0.0, activationType));
+    }
+
+    /**
+     * Returns the number of rows of the value of the expression.
+     * @return the number of rows.
+     */
+    public int getRowCount() {
+        return left.getRowCount();
+    }
+
+    /**
+     * Returns the number of columns of the value of the expression.
+     * @return the number of columns.
+     */
+    public int getColumnCount() {
+        return (right == null ? left : right).getColumnCount();
+    }
+
+    /**
+     * Computes the value of the expression as a new matrix.
+     * @return the value of the expression.
+     */
+    public Matrix2D evaluate() {
+        return evaluateInto(new Matrix2D(getRowCount(), getColumnCount()));
+    }
+
+    /**
+     * Computes the value of the expression into a destination matrix,
+     * overwriting its values. If the destination shares storage with an
+     * operand of the expression, the value is computed into a temporary
+     * matrix first, so the operands are never read after being overwritten.
+     * @param destination The matrix to store the value in.
+     * @return The destination matrix.
+     * @throws InvalidMatrixOperation if the destination has different dimensions.
+     */
+    public Matrix2D evaluateInto(Matrix2D destination) throws InvalidMatrixOperation {
+        if (destination.getRowCount() != getRowCount() || destination.getColumnCount() != getColumnCount()) {
+            throw new InvalidMatrixOperation(new Matrix2D(getRowCount(), getColumnCount()), destination, "evaluation into destination");
+        } else if (overlaps(destination)) {
+            return Matrix2D.copyInto(evaluate(), destination);
+        }
+
+        int first = 0;
+        Matrix2D source = left;
+        if (right != null) {
+            /** Accumulates the product onto the first addend rather than adding it afterwards. */
+            if (!stages.isEmpty() && stages.get(0).operation == Operation.ADD && stages.get(0).operand != destination) {
+                Matrix2D.copyInto(stages.get(0).operand, destination);
+                Matrix2D.multiplyAddInto(left, right, destination);
+                first = 1;
+            } else {
+                Matrix2D.multiplyInto(left, right, destination);
+            }
+            source = destination;
+        }
+
+        /** Runs the stages in fused passes, separated by the stages that need the whole matrix. */
+        while (first < stages.size()) {
+            int last = first;
+            while (last < stages.size() && !stages.get(last).isBarrier()) {
+                last += 1;
+            }
+            applyStages(first, last, source, destination);
+            source = destination;
+            if (last < stages.size()) {
+                Network.activateInto(destination, stages.get(last).activation, destination);
+                last += 1;
+            }
+            first = last;
+        }
+        if (source != destination) {
+            Matrix2D.copyInto(source, destination);
+        }
+        return destination;
+    }
+
+    /**
+     * Computes the sum of the entries of the value of the expression.
+     * When the expression has no product, the entries are produced and
+     * summed block by block without ever storing the whole value, so for
+     * example the squared error of two matrices is
+     *
+     *     MatrixExpression.of(expected).subtract(output).pow(2.0).sumEntries()
+     *
+     * which reads each matrix once and allocates no matrices.
+     * @return the sum of the entries.
+     */
+    public double sumEntries() {
+        boolean fusable = (right == null && left.isContiguous());
+        for (Stage stage : stages) {
+            fusable = fusable && !stage.isBarrier() && (stage.operand == null || stage.operand.isContiguous());
+        }
+        if (!fusable) {
+            return Matrix2D.sumEntries(evaluate());
+        }
+
+        ElementwiseKernels kernels = ElementwiseKernels.INSTANCE;
+        int length = getRowCount() * getColumnCount();
+        double[] block = new double[Math.min(BLOCK_SIZE, length)];
+        double sum = 0.0;
+        for (int start = 0; start < length; start += BLOCK_SIZE) {
+            int blockLength = Math.min(BLOCK_SIZE, length - start);
+            applyStages(0, stages.size(), left.getArray(), left.getArrayOffset() + start, block, 0, start, blockLength);
+            sum += kernels.sum(block, 0, blockLength);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns a copy of this expression with one more stage.
+     * @param stage The stage to append.
+     * @return the extended expression.
+     */
+    private MatrixExpression then(Stage stage) {
+        List<Stage> extended = new ArrayList<>(stages);
+        extended.add(stage);
+        return new MatrixExpression(left, right, extended);
+    }
+
+    /**
+     * Determines whether a destination shares storage with an operand in
+     * a way that fused evaluation could read after writing. Evaluating a
+     * plain matrix expression into that same matrix is safe, as each entry
+     * is read before it is written.
+     * @param destination The destination matrix.
+     * @return whether the destination must be staged through a temporary.
+     */
+    private boolean overlaps(Matrix2D destination) {
+        double[] array = destination.getArray();
+        if (array == null) {
+            return false;
+        } else if (left.getArray() == array && (right != null || left != destination)) {
+            return true;
+        } else if (right != null && right.getArray() == array) {
+            return true;
+        }
+        for (Stage stage : stages) {
+            if (stage.operand != null && stage.operand.getArray() == array) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ensures that an element-wise operand has the dimensions of the expression.
+     * @param b The operand.
+     * @param operation The name of the operation, for error messages.
+     * @return The operand.
+     * @throws InvalidMatrixOperation if the dimensions differ.
+     */
+    private Matrix2D checkOperand(Matrix2D b, String operation) throws InvalidMatrixOperation {
+        if (b == null || b.getRowCount() != getRowCount() || b.getColumnCount() != getColumnCount()) {
+            throw new InvalidMatrixOperation(new Matrix2D(getRowCount(), getColumnCount()), (b == null ? new Matrix2D(0, 0) : b), operation);
+        }
+        return b;
+    }
+
+    /**
+     * Applies a run of fusable stages to every entry of a source matrix,
+     * storing the results in a destination matrix.
+     * @param first The index of the first stage.
+     * @param last The index after the last stage.
+     * @param source The matrix to read the entries from.
+     * @param destination The matrix to store the results in.
+     */
+    private void applyStages(int first, int last, Matrix2D source, Matrix2D destination) {
+        boolean contiguous = source.isContiguous() && destination.isContiguous();
+        for (int index = first; index < last; index += 1) {
+            Matrix2D operand = stages.get(index).operand;
+            contiguous = contiguous && (operand == null || operand.isContiguous());
+        }
+
+        if (contiguous) {
+            int length = getRowCount() * getColumnCount();
+            for (int start = 0; start < length; start += BLOCK_SIZE) {
+                int blockLength = Math.min(BLOCK_SIZE, length - start);
+                applyStages(first, last, source.getArray(), source.getArrayOffset() + start,
+                    destination.getArray(), destination.getArrayOffset() + start, start, blockLength);
+            }
+            return;
+        }
+
+        /** Element-wise activations are applied to one entry at a time through a one-entry run. */
+        double[] entry = new double[1];
+        for (int row = 0; row < getRowCount(); row += 1) {
+            for (int col = 0; col < getColumnCount(); col += 1) {
+                double value = source.get(row, col);
+                for (int index = first; index < last; index += 1) {
+                    value = applyStage(stages.get(index), value, row, col, entry);
+                }
+                destination.set(row, col, value);
+            }
+        }
+    }
+
+    /**
+     * Applies a run of fusable stages to one block of contiguous entries.
+     * The first stage reads the source block; every later stage works on
+     * the output block in place while it is still in cache.
+     * @param first The index of the first stage.
+     * @param last The index after the last stage.
+     * @param in The array to read the entries from.
+     * @param inOffset The position in 'in' of the first entry of the block.
+     * @param out The array to store the results in.
+     * @param outOffset The position in 'out' of the first entry of the block.
+     * @param start The position of the block within the matrix, used to find
+     *              the matching entries of matrix operands.
+     * @param length The number of entries in the block.
+     */
+    private void applyStages(int first, int last, double[] in, int inOffset, double[] out, int outOffset, int start, int length) {
+        ElementwiseKernels kernels = ElementwiseKernels.INSTANCE;
+        if (first == last && (in != out || inOffset != outOffset)) {
+            System.arraycopy(in, inOffset, out, outOffset, length);
+        }
+        for (int index = first; index < last; index += 1) {
+            Stage stage = stages.get(index);
+            double[] operand = (stage.operand == null ? null : stage.operand.getArray());
+            int operandOffset = (stage.operand == null ? 0 : stage.operand.getArrayOffset() + start);
+            switch (stage.operation) {
+                case ADD:
+                    kernels.add(in, inOffset, operand, operandOffset, out, outOffset, length);
+                    break;
+                case SUBTRACT:
+                    kernels.subtract(in, inOffset, operand, operandOffset, out, outOffset, length);
+                    break;
+                case HADAMARD_MULTIPLY:
+                    kernels.multiply(in, inOffset, operand, operandOffset, out, outOffset, length);
+                    break;
+                case SCALE:
+                    kernels.scale(in, inOffset, stage.scalar, out, outOffset, length);
+                    break;
+                case DIVIDE:
+                    kernels.divide(in, inOffset, stage.scalar, out, outOffset, length);
+                    break;
+                case POW:
+                    if (stage.scalar == 2.0) {
+                        kernels.square(in, inOffset, out, outOffset, length);
+                    } else {
+                        for (int i = 0; i < length; i += 1) {
+                            out[outOffset + i] = Math.pow(in[inOffset + i], stage.scalar);
+                        }
+                    }
+                    break;
+                case ABS:
+                    kernels.abs(in, inOffset, out, outOffset, length);
+                    break;
+                default:
+                    stage.activation.activate(in, inOffset, out, outOffset, length, 1);
+            }
+            in = out;
+            inOffset = outOffset;
+        }
+    }
+
+    /**
+     * Applies one stage to a single entry.
+     * @param stage The stage to apply.
+     * @param value The entry.
+     * @param row The row of the entry, used to read matrix operands.
+     * @param col The column of the entry, used to read matrix operands.
+     * @param entry A one-entry array to activate the entry in.
+     * @return the result of the stage.
+     */
+    private static double applyStage(Stage stage, double value, int row, int col, double[] entry) {
+        switch (stage.operation) {
+            case ADD:
+                return value + stage.operand.get(row, col);
+            case SUBTRACT:
+                return value - stage.operand.get(row, col);
+            case HADAMARD_MULTIPLY:
+                return value * stage.operand.get(row, col);
+            case SCALE:
+                return value * stage.scalar;
+            case DIVIDE:
+                return value / stage.scalar;
+            case POW:
+                return Math.pow(value, stage.scalar);
+            case ABS:
+                return Math.abs(value);
+            default:
+                entry[0] = value;
+                stage.activation.activate(entry, 0, entry, 0, 1, 1);
+                return entry[0];
+        }
+    }
+}
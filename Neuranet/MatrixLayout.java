@@ -0,0 +1,22 @@
+package Neuranet;
+
+/**
+ * Enum that represents the order in which a Matrix3D
+ * stores its entries in memory.
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+public enum MatrixLayout {
+    /**
+     * Layer by layer, each layer row-major (CHW). Every layer is one
+     * contiguous block, which suits per-channel work such as
+     * activation and pooling.
+     */
+    CHANNEL_FIRST,
+    /**
+     * Row by row, pixel by pixel, with the layers of each pixel next
+     * to each other (HWC). Each row of a window spans one contiguous
+     * run across all channels, which suits multi-channel filters.
+     */
+    CHANNEL_LAST
+}
@@ -0,0 +1,535 @@
+package Neuranet;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class that holds the matrix multiplication kernels used by
+ * Matrix2D. Matrices are passed as flat arrays with an offset
+ * and row/column strides, so the same kernels can read views
+ * and transposes without copying them.
+ *
+ * Large products are computed with a cache-blocked algorithm:
+ * panels of both operands are packed into contiguous buffers
+ * sized to stay in cache, and a small register-tiled
+ * micro-kernel computes MR x NR blocks of the output from them.
+ * Small products skip the packing and use a plain loop.
+ *
+ * Products above a configurable number of floating-point
+ * operations are split into blocks of output rows/columns that
+ * are computed in parallel on a ForkJoinPool. The threshold and
+ * pool size default to the system properties
+ * "neuranet.parallelThreshold" and "neuranet.parallelism".
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+final class MatrixMultiplier {
+    /** The number of output rows computed by the micro-kernel. */
+    private static final int MR = 4;
+    /** The number of output columns computed by the micro-kernel. */
+    private static final int NR = 4;
+    /** The number of rows of the first matrix packed at a time. */
+    private static final int MC = 128;
+    /** The number of shared terms packed at a time. */
+    private static final int KC = 256;
+    /** The number of columns of the second matrix packed at a time. */
+    private static final int NC = 1024;
+    /** Products with fewer multiply-adds than this use the plain loop. */
+    private static final long BLOCKING_THRESHOLD = 32 * 32 * 32;
+
+    /** The default number of floating-point operations above which products run in parallel. */
+    private static final long DEFAULT_PARALLEL_THRESHOLD = 2L * 128 * 128 * 128;
+    /** The number of tasks per thread that parallel products are split into. */
+    private static final int TASKS_PER_THREAD = 4;
+
+    /** The number of floating-point operations above which products run in parallel. */
+    private static volatile long parallelThreshold = Long.getLong("neuranet.parallelThreshold", DEFAULT_PARALLEL_THRESHOLD);
+    /** The number of threads used by parallel products. */
+    private static volatile int parallelism = Math.max(1, Integer.getInteger("neuranet.parallelism", Runtime.getRuntime().availableProcessors()));
+    /** The pool that parallel products run on, created when first needed. */
+    private static ForkJoinPool pool;
+
+    /** The per-thread buffer that panels of the first matrix are packed into. */
+    private static final ThreadLocal<double[]> PACKED_A = ThreadLocal.withInitial(() -> new double[0]);
+    /** The per-thread buffer that panels of the second matrix are packed into. */
+    private static final ThreadLocal<double[]> PACKED_B = ThreadLocal.withInitial(() -> new double[0]);
+    /** The per-thread buffer that tiles of products of matrices stored off the heap are computed in. */
+    private static final ThreadLocal<double[]> TILE = ThreadLocal.withInitial(() -> new double[MR * NR]);
+
+    /**
+     * Computes c += a * b, where a is m x k, b is k x n and c is m x n.
+     * Entry (row, col) of a matrix x is at x[xOffset + row * xRowStride + col * xColumnStride].
+     * @param m the number of rows of a and c.
+     * @param n the number of columns of b and c.
+     * @param k the number of columns of a and rows of b.
+     * @param a the values of the first matrix.
+     * @param aOffset the position of a's first entry.
+     * @param aRowStride the distance between a's rows.
+     * @param aColumnStride the distance between a's columns.
+     * @param b the values of the second matrix.
+     * @param bOffset the position of b's first entry.
+     * @param bRowStride the distance between b's rows.
+     * @param bColumnStride the distance between b's columns.
+     * @param c the values of the output matrix.
+     * @param cOffset the position of c's first entry.
+     * @param cRowStride the distance between c's rows.
+     * @param cColumnStride the distance between c's columns.
+     */
+    static void multiplyAdd(int m, int n, int k,
+            double[] a, int aOffset, int aRowStride, int aColumnStride,
+            double[] b, int bOffset, int bRowStride, int bColumnStride,
+            double[] c, int cOffset, int cRowStride, int cColumnStride) {
+        long flops = 2L * m * n * k;
+        int threads = parallelism;
+        if (threads > 1 && flops >= parallelThreshold && !ForkJoinTask.inForkJoinPool()) {
+            long grain = Math.max(flops / ((long) threads * TASKS_PER_THREAD), DEFAULT_PARALLEL_THRESHOLD / 8);
+            getPool().invoke(new MultiplyTask(m, n, k, a, aOffset, aRowStride, aColumnStride,
+                b, bOffset, bRowStride, bColumnStride, c, cOffset, cRowStride, cColumnStride, grain));
+        } else {
+            multiplyAddSerial(m, n, k, a, aOffset, aRowStride, aColumnStride,
+                b, bOffset, bRowStride, bColumnStride, c, cOffset, cRowStride, cColumnStride);
+        }
+    }
+
+    /**
+     * Computes c += op(a) * op(b) for matrices that are not all stored on
+     * the heap, reading and writing their entries through get and set so
+     * that none of them is copied. Panels of the operands are packed into
+     * the same per-thread buffers as the array kernels, and each tile of c
+     * is read and written once per block of shared terms. Dimensions must
+     * already have been checked, and c must not be one of the operands.
+     * @param a the first matrix.
+     * @param transposeA whether a is read as its transpose.
+     * @param b the second matrix.
+     * @param transposeB whether b is read as its transpose.
+     * @param c the output matrix.
+     */
+    static void multiplyAdd(Matrix2D a, boolean transposeA, Matrix2D b, boolean transposeB, Matrix2D c) {
+        int m = c.getRowCount();
+        int n = c.getColumnCount();
+        int k = (transposeA ? a.getRowCount() : a.getColumnCount());
+        if (m == 0 || n == 0 || k == 0) {
+            return;
+        }
+
+        double[] packedA = buffer(PACKED_A, roundUp(Math.min(m, MC), MR) * Math.min(k, KC));
+        double[] packedB = buffer(PACKED_B, roundUp(Math.min(n, NC), NR) * Math.min(k, KC));
+        double[] tile = buffer(TILE, MR * NR);
+
+        for (int jc = 0; jc < n; jc += NC) {
+            int nc = Math.min(NC, n - jc);
+            for (int pc = 0; pc < k; pc += KC) {
+                int kc = Math.min(KC, k - pc);
+                packB(kc, nc, b, transposeB, pc, jc, packedB);
+
+                for (int ic = 0; ic < m; ic += MC) {
+                    int mc = Math.min(MC, m - ic);
+                    packA(mc, kc, a, transposeA, ic, pc, packedA);
+
+                    for (int jr = 0; jr < nc; jr += NR) {
+                        for (int ir = 0; ir < mc; ir += MR) {
+                            int rows = Math.min(MR, mc - ir);
+                            int cols = Math.min(NR, nc - jr);
+                            for (int index = 0; index < MR * NR; index += 1) {
+                                tile[index] = 0.0;
+                            }
+                            microKernel(kc, packedA, ir * kc, packedB, jr * kc, tile, 0, NR, 1, MR, NR);
+                            for (int i = 0; i < rows; i += 1) {
+                                for (int j = 0; j < cols; j += 1) {
+                                    int row = ic + ir + i;
+                                    int col = jc + jr + j;
+                                    c.set(row, col, c.get(row, col) + tile[i * NR + j]);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes c += a * b on the calling thread. Takes the
+     * same arguments as multiplyAdd.
+     */
+    private static void multiplyAddSerial(int m, int n, int k,
+            double[] a, int aOffset, int aRowStride, int aColumnStride,
+            double[] b, int bOffset, int bRowStride, int bColumnStride,
+            double[] c, int cOffset, int cRowStride, int cColumnStride) {
+        if (m == 0 || n == 0 || k == 0) {
+            return;
+        }
+        if ((long) m * n * k < BLOCKING_THRESHOLD || m < MR || n < NR) {
+            multiplyAddSimple(m, n, k, a, aOffset, aRowStride, aColumnStride,
+                b, bOffset, bRowStride, bColumnStride, c, cOffset, cRowStride, cColumnStride);
+            return;
+        }
+
+        double[] packedA = buffer(PACKED_A, roundUp(Math.min(m, MC), MR) * Math.min(k, KC));
+        double[] packedB = buffer(PACKED_B, roundUp(Math.min(n, NC), NR) * Math.min(k, KC));
+
+        for (int jc = 0; jc < n; jc += NC) {
+            int nc = Math.min(NC, n - jc);
+            for (int pc = 0; pc < k; pc += KC) {
+                int kc = Math.min(KC, k - pc);
+                packB(kc, nc, b, bOffset + pc * bRowStride + jc * bColumnStride, bRowStride, bColumnStride, packedB);
+
+                for (int ic = 0; ic < m; ic += MC) {
+                    int mc = Math.min(MC, m - ic);
+                    packA(mc, kc, a, aOffset + ic * aRowStride + pc * aColumnStride, aRowStride, aColumnStride, packedA);
+
+                    for (int jr = 0; jr < nc; jr += NR) {
+                        for (int ir = 0; ir < mc; ir += MR) {
+                            int cIndex = cOffset + (ic + ir) * cRowStride + (jc + jr) * cColumnStride;
+                            microKernel(kc, packedA, ir * kc, packedB, jr * kc,
+                                c, cIndex, cRowStride, cColumnStride, Math.min(MR, mc - ir), Math.min(NR, nc - jr));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes c += a * b without blocking. Used for products
+     * too small for packing to pay off.
+     */
+    private static void multiplyAddSimple(int m, int n, int k,
+            double[] a, int aOffset, int aRowStride, int aColumnStride,
+            double[] b, int bOffset, int bRowStride, int bColumnStride,
+            double[] c, int cOffset, int cRowStride, int cColumnStride) {
+        if (n == 1) {
+            /** Matrix-vector product: one dot product per row of a. */
+            for (int row = 0; row < m; row += 1) {
+                int aIndex = aOffset + row * aRowStride;
+                int bIndex = bOffset;
+                double sum = 0.0;
+                for (int i = 0; i < k; i += 1) {
+                    sum += a[aIndex] * b[bIndex];
+                    aIndex += aColumnStride;
+                    bIndex += bRowStride;
+                }
+                c[cOffset + row * cRowStride] += sum;
+            }
+            return;
+        }
+
+        /** Streams the rows of b and c for each entry of a. */
+        for (int row = 0; row < m; row += 1) {
+            int cRow = cOffset + row * cRowStride;
+            for (int i = 0; i < k; i += 1) {
+                double aValue = a[aOffset + row * aRowStride + i * aColumnStride];
+                int bIndex = bOffset + i * bRowStride;
+                int cIndex = cRow;
+                for (int col = 0; col < n; col += 1) {
+                    c[cIndex] += aValue * b[bIndex];
+                    bIndex += bColumnStride;
+                    cIndex += cColumnStride;
+                }
+            }
+        }
+    }
+
+    /**
+     * Packs an mc x kc block of a into panels of MR rows, so that
+     * the micro-kernel reads MR consecutive values per term.
+     * Rows past the end of the block are padded with zeros.
+     */
+    private static void packA(int mc, int kc, double[] a, int aOffset, int aRowStride, int aColumnStride, double[] packed) {
+        int packedIndex = 0;
+        for (int ir = 0; ir < mc; ir += MR) {
+            int rows = Math.min(MR, mc - ir);
+            for (int p = 0; p < kc; p += 1) {
+                int aIndex = aOffset + ir * aRowStride + p * aColumnStride;
+                for (int i = 0; i < rows; i += 1) {
+                    packed[packedIndex + i] = a[aIndex];
+                    aIndex += aRowStride;
+                }
+                for (int i = rows; i < MR; i += 1) {
+                    packed[packedIndex + i] = 0.0;
+                }
+                packedIndex += MR;
+            }
+        }
+    }
+
+    /**
+     * Packs a kc x nc block of b into panels of NR columns, so that
+     * the micro-kernel reads NR consecutive values per term.
+     * Columns past the end of the block are padded with zeros.
+     */
+    private static void packB(int kc, int nc, double[] b, int bOffset, int bRowStride, int bColumnStride, double[] packed) {
+        int packedIndex = 0;
+        for (int jr = 0; jr < nc; jr += NR) {
+            int cols = Math.min(NR, nc - jr);
+            for (int p = 0; p < kc; p += 1) {
+                int bIndex = bOffset + p * bRowStride + jr * bColumnStride;
+                for (int j = 0; j < cols; j += 1) {
+                    packed[packedIndex + j] = b[bIndex];
+                    bIndex += bColumnStride;
+                }
+                for (int j = cols; j < NR; j += 1) {
+                    packed[packedIndex + j] = 0.0;
+                }
+                packedIndex += NR;
+            }
+        }
+    }
+
+    /**
+     * Packs an mc x kc block of op(a), starting at entry (row, term),
+     * into panels of MR rows, reading entries through get.
+     * Rows past the end of the block are padded with zeros.
+     */
+    private static void packA(int mc, int kc, Matrix2D a, boolean transposeA, int row, int term, double[] packed) {
+        int packedIndex = 0;
+        for (int ir = 0; ir < mc; ir += MR) {
+            int rows = Math.min(MR, mc - ir);
+            for (int p = 0; p < kc; p += 1) {
+                for (int i = 0; i < rows; i += 1) {
+                    packed[packedIndex + i] = (transposeA ? a.get(term + p, row + ir + i) : a.get(row + ir + i, term + p));
+                }
+                for (int i = rows; i < MR; i += 1) {
+                    packed[packedIndex + i] = 0.0;
+                }
+                packedIndex += MR;
+            }
+        }
+    }
+
+    /**
+     * Packs a kc x nc block of op(b), starting at entry (term, col),
+     * into panels of NR columns, reading entries through get.
+     * Columns past the end of the block are padded with zeros.
+     */
+    private static void packB(int kc, int nc, Matrix2D b, boolean transposeB, int term, int col, double[] packed) {
+        int packedIndex = 0;
+        for (int jr = 0; jr < nc; jr += NR) {
+            int cols = Math.min(NR, nc - jr);
+            for (int p = 0; p < kc; p += 1) {
+                for (int j = 0; j < cols; j += 1) {
+                    packed[packedIndex + j] = (transposeB ? b.get(col + jr + j, term + p) : b.get(term + p, col + jr + j));
+                }
+                for (int j = cols; j < NR; j += 1) {
+                    packed[packedIndex + j] = 0.0;
+                }
+                packedIndex += NR;
+            }
+        }
+    }
+
+    /**
+     * Computes an MR x NR tile of the output from one packed panel
+     * of each operand, keeping the tile in local variables so the
+     * JIT can hold it in registers. Only the top-left rows x cols
+     * of the tile are written back to c.
+     */
+    private static void microKernel(int kc, double[] packedA, int aIndex, double[] packedB, int bIndex,
+            double[] c, int cIndex, int cRowStride, int cColumnStride, int rows, int cols) {
+        double c00 = 0.0, c01 = 0.0, c02 = 0.0, c03 = 0.0;
+        double c10 = 0.0, c11 = 0.0, c12 = 0.0, c13 = 0.0;
+        double c20 = 0.0, c21 = 0.0, c22 = 0.0, c23 = 0.0;
+        double c30 = 0.0, c31 = 0.0, c32 = 0.0, c33 = 0.0;
+
+        for (int p = 0; p < kc; p += 1) {
+            double a0 = packedA[aIndex];
+            double a1 = packedA[aIndex + 1];
+            double a2 = packedA[aIndex + 2];
+            double a3 = packedA[aIndex + 3];
+            double b0 = packedB[bIndex];
+            double b1 = packedB[bIndex + 1];
+            double b2 = packedB[bIndex + 2];
+            double b3 = packedB[bIndex + 3];
+
+            c00 += a0 * b0; c01 += a0 * b1; c02 += a0 * b2; c03 += a0 * b3;
+            c10 += a1 * b0; c11 += a1 * b1; c12 += a1 * b2; c13 += a1 * b3;
+            c20 += a2 * b0; c21 += a2 * b1; c22 += a2 * b2; c23 += a2 * b3;
+            c30 += a3 * b0; c31 += a3 * b1; c32 += a3 * b2; c33 += a3 * b3;
+
+            aIndex += MR;
+            bIndex += NR;
+        }
+
+        if (rows == MR && cols == NR) {
+            int row0 = cIndex;
+            int row1 = row0 + cRowStride;
+            int row2 = row1 + cRowStride;
+            int row3 = row2 + cRowStride;
+            int col1 = cColumnStride;
+            int col2 = 2 * cColumnStride;
+            int col3 = 3 * cColumnStride;
+            c[row0] += c00; c[row0 + col1] += c01; c[row0 + col2] += c02; c[row0 + col3] += c03;
+            c[row1] += c10; c[row1 + col1] += c11; c[row1 + col2] += c12; c[row1 + col3] += c13;
+            c[row2] += c20; c[row2 + col1] += c21; c[row2 + col2] += c22; c[row2 + col3] += c23;
+            c[row3] += c30; c[row3 + col1] += c31; c[row3 + col2] += c32; c[row3 + col3] += c33;
+            return;
+        }
+
+        /** Edge tile: only part of the tile lies inside the output. */
+        addRow(c, cIndex, cColumnStride, cols, c00, c01, c02, c03);
+        if (rows > 1) {
+            addRow(c, cIndex + cRowStride, cColumnStride, cols, c10, c11, c12, c13);
+        }
+        if (rows > 2) {
+            addRow(c, cIndex + 2 * cRowStride, cColumnStride, cols, c20, c21, c22, c23);
+        }
+        if (rows > 3) {
+            addRow(c, cIndex + 3 * cRowStride, cColumnStride, cols, c30, c31, c32, c33);
+        }
+    }
+
+    /**
+     * Adds the first cols values of a row of a tile to c.
+     */
+    private static void addRow(double[] c, int cIndex, int cColumnStride, int cols,
+            double v0, double v1, double v2, double v3) {
+        c[cIndex] += v0;
+        if (cols > 1) {
+            c[cIndex + cColumnStride] += v1;
+        }
+        if (cols > 2) {
+            c[cIndex + 2 * cColumnStride] += v2;
+        }
+        if (cols > 3) {
+            c[cIndex + 3 * cColumnStride] += v3;
+        }
+    }
+
+    /**
+     * Sets the number of threads used by parallel products.
+     * A value of 1 disables parallel multiplication. Products already
+     * running, or about to start on the old pool, finish on it; the old
+     * pool is not shut down, and its idle workers end on their own.
+     * @param threads the number of threads (at least 1).
+     */
+    static synchronized void setParallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, was " + threads + ".");
+        }
+        if (threads != parallelism) {
+            /** Another thread may hold the old pool between getPool and invoke, so it is dropped rather than shut down. */
+            pool = null;
+        }
+        parallelism = threads;
+    }
+
+    /**
+     * Returns the number of threads used by parallel products.
+     * @return the number of threads used by parallel products.
+     */
+    static int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of floating-point operations (2 * m * n * k)
+     * above which products are computed in parallel.
+     * @param flops the threshold in floating-point operations.
+     */
+    static void setParallelThreshold(long flops) {
+        parallelThreshold = flops;
+    }
+
+    /**
+     * Returns the number of floating-point operations above which
+     * products are computed in parallel.
+     * @return the threshold in floating-point operations.
+     */
+    static long getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Returns the pool that parallel products run on.
+     */
+    static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    /**
+     * Task that computes a block of the output of a product,
+     * splitting it in half along its longer side until each
+     * block is below the grain size. The blocks of c written
+     * by different tasks never overlap.
+     */
+    private static final class MultiplyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int m, n, k;
+        private final double[] a, b, c;
+        private final int aOffset, aRowStride, aColumnStride;
+        private final int bOffset, bRowStride, bColumnStride;
+        private final int cOffset, cRowStride, cColumnStride;
+        /** The number of floating-point operations below which the block is computed directly. */
+        private final long grain;
+
+        MultiplyTask(int m, int n, int k,
+                double[] a, int aOffset, int aRowStride, int aColumnStride,
+                double[] b, int bOffset, int bRowStride, int bColumnStride,
+                double[] c, int cOffset, int cRowStride, int cColumnStride, long grain) {
+            this.m = m;
+            this.n = n;
+            this.k = k;
+            this.a = a;
+            this.aOffset = aOffset;
+            this.aRowStride = aRowStride;
+            this.aColumnStride = aColumnStride;
+            this.b = b;
+            this.bOffset = bOffset;
+            this.bRowStride = bRowStride;
+            this.bColumnStride = bColumnStride;
+            this.c = c;
+            this.cOffset = cOffset;
+            this.cRowStride = cRowStride;
+            this.cColumnStride = cColumnStride;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (2L * m * n * k <= grain || (m <= MR && n <= NR)) {
+                multiplyAddSerial(m, n, k, a, aOffset, aRowStride, aColumnStride,
+                    b, bOffset, bRowStride, bColumnStride, c, cOffset, cRowStride, cColumnStride);
+            } else if (m >= n) {
+                /** Splits the rows of a and c. */
+                int top = roundUp(m / 2, MR);
+                invokeAll(
+                    new MultiplyTask(top, n, k, a, aOffset, aRowStride, aColumnStride,
+                        b, bOffset, bRowStride, bColumnStride, c, cOffset, cRowStride, cColumnStride, grain),
+                    new MultiplyTask(m - top, n, k, a, aOffset + top * aRowStride, aRowStride, aColumnStride,
+                        b, bOffset, bRowStride, bColumnStride, c, cOffset + top * cRowStride, cRowStride, cColumnStride, grain));
+            } else {
+                /** Splits the columns of b and c. */
+                int left = roundUp(n / 2, NR);
+                invokeAll(
+                    new MultiplyTask(m, left, k, a, aOffset, aRowStride, aColumnStride,
+                        b, bOffset, bRowStride, bColumnStride, c, cOffset, cRowStride, cColumnStride, grain),
+                    new MultiplyTask(m, n - left, k, a, aOffset, aRowStride, aColumnStride,
+                        b, bOffset + left * bColumnStride, bRowStride, bColumnStride, c, cOffset + left * cColumnStride, cRowStride, cColumnStride, grain));
+            }
+        }
+    }
+
+    /**
+     * Returns the calling thread's buffer, growing it if it is
+     * smaller than the requested size.
+     */
+    private static double[] buffer(ThreadLocal<double[]> local, int size) {
+        double[] buffer = local.get();
+        if (buffer.length < size) {
+            buffer = new double[size];
+            local.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Rounds a value up to the nearest multiple of another.
+     */
+    private static int roundUp(int value, int multiple) {
+        return (value + multiple - 1) / multiple * multiple;
+    }
+}
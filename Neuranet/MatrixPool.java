@@ -0,0 +1,377 @@
+package Neuranet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Class that lends out temporary matrices and takes them back for
+ * reuse, so that hot loops which need the same shapes over and over
+ * stop allocating once they reach a steady state.
+ *
+ * Matrices are borrowed inside a scope and are all returned when the
+ * scope closes:
+ *
+ *     try (MatrixPool.Scope scope = pool.open()) {
+ *         Matrix2D temporary = scope.matrix2D(rows, columns);
+ *         ...
+ *     }
+ *
+ * Scopes nest like stack frames, and closing one returns exactly the
+ * matrices borrowed since it was opened. Borrowed matrices are filled
+ * with 0.0, like new ones. They must not be used after their scope
+ * closes, since the next borrower of the same shape receives them.
+ *
+ * A pool is not thread-safe; forCurrentThread gives each thread its own.
+ * Returned matrices are kept by shape until the pool holds
+ * getMaxBytesRetained bytes; beyond that they are left to the garbage
+ * collector.
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+public final class MatrixPool {
+    /** The default limit on the bytes of idle matrices a pool keeps. */
+    public static final long DEFAULT_MAX_BYTES_RETAINED = 64L * 1024 * 1024;
+
+    /** The pool of each thread, created on first use. */
+    private static final ThreadLocal<MatrixPool> THREAD_POOLS = ThreadLocal.withInitial(MatrixPool::new);
+
+    /**
+     * Class that holds the idle matrices of one shape.
+     */
+    private static final class Bucket {
+        /** The number of rows of the matrices. */
+        final int rowCount;
+        /** The number of columns of the matrices. */
+        final int columnCount;
+        /** The number of layers of the matrices, or 0 for 2D matrices. */
+        final int layerCount;
+        /** The layout of 3D matrices, or null for 2D matrices. */
+        final MatrixLayout layout;
+        /** The idle matrices. */
+        final ArrayList<Matrix> matrices = new ArrayList<>();
+
+        Bucket(int rowCount, int columnCount, int layerCount, MatrixLayout layout) {
+            this.rowCount = rowCount;
+            this.columnCount = columnCount;
+            this.layerCount = layerCount;
+            this.layout = layout;
+        }
+    }
+
+    /**
+     * Class that represents a region of code whose borrowed matrices
+     * are returned to the pool together when it closes.
+     */
+    public final class Scope implements AutoCloseable {
+        /** The number of matrices borrowed before the scope was opened. */
+        private int mark;
+        /** Whether the scope is open. */
+        private boolean open;
+
+        private Scope() {
+        }
+
+        /**
+         * Borrows a 2D matrix of zeros for the rest of the scope.
+         * @param rows The number of rows of the matrix.
+         * @param columns The number of columns of the matrix.
+         * @return the matrix.
+         */
+        public Matrix2D matrix2D(int rows, int columns) {
+            checkOpen();
+            return MatrixPool.this.borrow2D(rows, columns);
+        }
+
+        /**
+         * Borrows a 3D matrix of zeros in the default layout
+         * for the rest of the scope.
+         * @param rows The number of rows of the matrix.
+         * @param columns The number of columns of the matrix.
+         * @param layers The number of layers of the matrix.
+         * @return the matrix.
+         */
+        public Matrix3D matrix3D(int rows, int columns, int layers) {
+            return matrix3D(rows, columns, layers, Matrix3D.DEFAULT_LAYOUT);
+        }
+
+        /**
+         * Borrows a 3D matrix of zeros in the given layout
+         * for the rest of the scope.
+         * @param rows The number of rows of the matrix.
+         * @param columns The number of columns of the matrix.
+         * @param layers The number of layers of the matrix.
+         * @param layout The order to store the entries in.
+         * @return the matrix.
+         */
+        public Matrix3D matrix3D(int rows, int columns, int layers, MatrixLayout layout) {
+            checkOpen();
+            return MatrixPool.this.borrow3D(rows, columns, layers, layout);
+        }
+
+        /**
+         * Borrows a 2D matrix of zeros shaped like another matrix.
+         * @param a The matrix to match.
+         * @return the matrix.
+         */
+        public Matrix2D like(Matrix2D a) {
+            return matrix2D(a.getRowCount(), a.getColumnCount());
+        }
+
+        /**
+         * Returns every matrix borrowed in the scope, and in any scope
+         * opened inside it that was left open, to the pool.
+         * @throws IllegalStateException if the scope is already closed.
+         */
+        @Override
+        public void close() {
+            checkOpen();
+            MatrixPool.this.release(this);
+        }
+
+        /**
+         * Ensures the scope can still lend matrices.
+         * @throws IllegalStateException if the scope is closed.
+         */
+        private void checkOpen() {
+            if (!open) {
+                throw new IllegalStateException("The matrix pool scope is closed.");
+            }
+        }
+    }
+
+    /** The buckets of idle matrices; there are few shapes, so a list is searched. */
+    private final ArrayList<Bucket> buckets = new ArrayList<>();
+    /** Every matrix currently borrowed, in the order it was borrowed. */
+    private final ArrayList<Matrix> borrowed = new ArrayList<>();
+    /** The open scopes, innermost last; closed scopes are kept for reuse. */
+    private final ArrayList<Scope> scopes = new ArrayList<>();
+    /** The number of open scopes. */
+    private int depth;
+
+    /** The bytes of idle matrices the pool keeps at most. */
+    private long maxBytesRetained = DEFAULT_MAX_BYTES_RETAINED;
+    /** The bytes of the idle matrices the pool holds. */
+    private long bytesRetained;
+    /** The bytes of the matrices currently borrowed. */
+    private long bytesBorrowed;
+    /** The number of matrices requested. */
+    private long requestCount;
+    /** The number of requests served by an idle matrix. */
+    private long hitCount;
+
+    /**
+     * Creates an empty pool.
+     */
+    public MatrixPool() {
+    }
+
+    /**
+     * Returns the pool of the calling thread.
+     * @return the pool of the current thread.
+     */
+    public static MatrixPool forCurrentThread() {
+        return THREAD_POOLS.get();
+    }
+
+    /**
+     * Opens a scope for borrowing matrices, nested inside
+     * any scope that is already open.
+     * @return the scope, to be closed with try-with-resources.
+     */
+    public Scope open() {
+        if (depth == scopes.size()) {
+            scopes.add(new Scope());
+        }
+        Scope scope = scopes.get(depth);
+        scope.mark = borrowed.size();
+        scope.open = true;
+        depth += 1;
+        return scope;
+    }
+
+    /**
+     * Returns the fraction of requests served by an idle matrix
+     * instead of a new allocation.
+     * @return the hit rate, or 0.0 if nothing was requested.
+     */
+    public double getHitRate() {
+        return (requestCount == 0 ? 0.0 : (double) hitCount / requestCount);
+    }
+
+    /**
+     * Returns the number of matrices requested from the pool.
+     * @return the number of requests.
+     */
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Returns the number of requests served by an idle matrix.
+     * @return the number of hits.
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the bytes of the idle matrices the pool holds.
+     * @return the bytes retained.
+     */
+    public long getBytesRetained() {
+        return bytesRetained;
+    }
+
+    /**
+     * Returns the bytes of the matrices currently borrowed.
+     * @return the bytes borrowed.
+     */
+    public long getBytesBorrowed() {
+        return bytesBorrowed;
+    }
+
+    /**
+     * Returns the limit on the bytes of idle matrices the pool keeps.
+     * @return the limit in bytes.
+     */
+    public long getMaxBytesRetained() {
+        return maxBytesRetained;
+    }
+
+    /**
+     * Sets the limit on the bytes of idle matrices the pool keeps.
+     * Lowering it does not drop matrices already held; see clear.
+     * @param bytes The limit in bytes.
+     */
+    public void setMaxBytesRetained(long bytes) {
+        maxBytesRetained = bytes;
+    }
+
+    /**
+     * Resets the request and hit counts.
+     */
+    public void resetStatistics() {
+        requestCount = 0;
+        hitCount = 0;
+    }
+
+    /**
+     * Drops every idle matrix, leaving borrowed ones untouched.
+     */
+    public void clear() {
+        buckets.clear();
+        bytesRetained = 0;
+    }
+
+    /**
+     * Returns the pool's statistics as a readable String.
+     */
+    @Override
+    public String toString() {
+        return "MatrixPool: " + requestCount + " requests, " + Math.round(getHitRate() * 10000.0) / 100.0 + "% hits, "
+            + bytesRetained + " bytes retained, " + bytesBorrowed + " bytes borrowed";
+    }
+
+    /**
+     * Lends out a zeroed 2D matrix, reusing an idle one if possible.
+     */
+    private Matrix2D borrow2D(int rows, int columns) {
+        requestCount += 1;
+        Bucket bucket = bucket(rows, columns, 0, null);
+        Matrix2D matrix;
+        if (bucket.matrices.isEmpty()) {
+            matrix = new Matrix2D(rows, columns);
+        } else {
+            hitCount += 1;
+            matrix = (Matrix2D) bucket.matrices.remove(bucket.matrices.size() - 1);
+            bytesRetained -= bytes(rows, columns, 1);
+            Arrays.fill(matrix.getArray(), 0.0);
+        }
+        borrowed.add(matrix);
+        bytesBorrowed += bytes(rows, columns, 1);
+        return matrix;
+    }
+
+    /**
+     * Lends out a zeroed 3D matrix, reusing an idle one if possible.
+     */
+    private Matrix3D borrow3D(int rows, int columns, int layers, MatrixLayout layout) {
+        requestCount += 1;
+        Bucket bucket = bucket(rows, columns, layers, layout);
+        Matrix3D matrix;
+        if (bucket.matrices.isEmpty()) {
+            matrix = new Matrix3D(rows, columns, layers, layout);
+        } else {
+            hitCount += 1;
+            matrix = (Matrix3D) bucket.matrices.remove(bucket.matrices.size() - 1);
+            bytesRetained -= bytes(rows, columns, layers);
+            Arrays.fill(matrix.getArray(), 0.0);
+        }
+        borrowed.add(matrix);
+        bytesBorrowed += bytes(rows, columns, layers);
+        return matrix;
+    }
+
+    /**
+     * Closes a scope and every scope opened inside it, returning the
+     * matrices borrowed since it was opened to their buckets.
+     */
+    private void release(Scope scope) {
+        while (depth > 0) {
+            depth -= 1;
+            Scope inner = scopes.get(depth);
+            inner.open = false;
+            if (inner == scope) {
+                break;
+            }
+        }
+        for (int index = borrowed.size() - 1; index >= scope.mark; index -= 1) {
+            Matrix matrix = borrowed.remove(index);
+            int rows;
+            int columns;
+            int layers;
+            Bucket bucket;
+            if (matrix instanceof Matrix3D) {
+                Matrix3D matrix3D = (Matrix3D) matrix;
+                rows = matrix3D.getRowCount();
+                columns = matrix3D.getColumnCount();
+                layers = matrix3D.getLayerCount();
+                bucket = bucket(rows, columns, layers, matrix3D.getLayout());
+            } else {
+                Matrix2D matrix2D = (Matrix2D) matrix;
+                rows = matrix2D.getRowCount();
+                columns = matrix2D.getColumnCount();
+                layers = 1;
+                bucket = bucket(rows, columns, 0, null);
+            }
+            long size = bytes(rows, columns, layers);
+            bytesBorrowed -= size;
+            if (bytesRetained + size <= maxBytesRetained) {
+                bucket.matrices.add(matrix);
+                bytesRetained += size;
+            }
+        }
+    }
+
+    /**
+     * Finds the bucket for a shape, creating it if needed.
+     */
+    private Bucket bucket(int rows, int columns, int layers, MatrixLayout layout) {
+        for (int index = 0; index < buckets.size(); index += 1) {
+            Bucket bucket = buckets.get(index);
+            if (bucket.rowCount == rows && bucket.columnCount == columns && bucket.layerCount == layers && bucket.layout == layout) {
+                return bucket;
+            }
+        }
+        Bucket bucket = new Bucket(rows, columns, layers, layout);
+        buckets.add(bucket);
+        return bucket;
+    }
+
+    /**
+     * Returns the size in bytes of the entries of a matrix.
+     */
+    private static long bytes(int rows, int columns, int layers) {
+        return (long) rows * columns * layers * Double.BYTES;
+    }
+}
@@ -12,13 +12,44 @@ public interface Network {
     /**
      * Computes the 'loss' of the current weights and biases;
      * in other words, how inaccurate the results were from
-     * expected.
+     * expected. This is the mean squared error, found in one
+     * pass over the entries without temporary matrices.
      * @param expectedOutput The true output of the inputs.
      * @param output The model's predicted output based on the inputs.
      * @return The loss of the weights and biases.
      */
     static double loss(Matrix2D expectedOutput, Matrix2D output) throws InvalidMatrixOperation {
-        return Matrix2D.sumEntries(Matrix2D.pow(Matrix2D.subtract(expectedOutput, output), 2.0)) / (output.getRowCount() * output.getColumnCount());
+        if (expectedOutput.getRowCount() != output.getRowCount() || expectedOutput.getColumnCount() != output.getColumnCount()) {
+            throw new InvalidMatrixOperation(expectedOutput, output, "loss");
+        }
+
+        /** Matrices that are not contiguous are read through contiguous copies. */
+        Matrix2D y = (expectedOutput.isContiguous() ? expectedOutput : new Matrix2D(expectedOutput));
+        Matrix2D a = (output.isContiguous() ? output : new Matrix2D(output));
+        int length = a.getRowCount() * a.getColumnCount();
+        return ElementwiseKernels.INSTANCE.squaredDistance(y.getArray(), y.getArrayOffset(), a.getArray(), a.getArrayOffset(), length) / length;
+    }
+
+    /**
+     * Computes the cross-entropy loss of probability outputs, the mean
+     * over input sets (columns) of -sum(y * ln(p)), in one pass over
+     * the entries. Probabilities are floored at Double.MIN_NORMAL so
+     * that a confident wrong answer costs a large but finite loss.
+     * @param expectedOutput The true output of the inputs.
+     * @param probabilities The model's predicted probabilities, such as softmax outputs.
+     * @return The loss of the weights and biases.
+     */
+    static double crossEntropyLoss(Matrix2D expectedOutput, Matrix2D probabilities) throws InvalidMatrixOperation {
+        if (expectedOutput.getRowCount() != probabilities.getRowCount() || expectedOutput.getColumnCount() != probabilities.getColumnCount()) {
+            throw new InvalidMatrixOperation(expectedOutput, probabilities, "cross-entropy loss");
+        }
+
+        /** Matrices that are not contiguous are read through contiguous copies. */
+        Matrix2D y = (expectedOutput.isContiguous() ? expectedOutput : new Matrix2D(expectedOutput));
+        Matrix2D p = (probabilities.isContiguous() ? probabilities : new Matrix2D(probabilities));
+        int length = p.getRowCount() * p.getColumnCount();
+        return ElementwiseKernels.INSTANCE.crossEntropy(y.getArray(), y.getArrayOffset(), p.getArray(), p.getArrayOffset(), length)
+            / p.getColumnCount();
     }
 
     /**
@@ -48,36 +79,33 @@ public interface Network {
      * @return the activated matrix.
      */
     static Matrix2D activate(Matrix2D input, Activation activationType) {
+        return activateInto(input, activationType, new Matrix2D(input.getRowCount(), input.getColumnCount()));
+    }
+
+    /**
+     * Puts a matrix through an activation function, storing the result
+     * in a destination matrix of the same dimensions. The destination
+     * may be the input itself. Each column is a separate input set.
+     * @param input the matrix to 'activate'.
+     * @param activationType the activation function type to use.
+     * @param destination the matrix to store the activated values in.
+     * @return the destination matrix.
+     */
+    static Matrix2D activateInto(Matrix2D input, Activation activationType, Matrix2D destination) {
         int rowCount = input.getRowCount();
         int columnCount = input.getColumnCount();
-
-        double maxValue = 0.0001;
-        Matrix2D activatedMatrix = new Matrix2D(new double[rowCount][columnCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                switch(activationType) {
-                    case SIGMOID:
-                        activatedMatrix.set(row, col, sigmoid(input.get(row, col)));
-                        break;
-                    case RELU:
-                        activatedMatrix.set(row, col, reLU(input.get(row, col)));
-                        break;
-                    case RELU_NORMALIZED:
-                        activatedMatrix.set(row, col, reLU(input.get(row, col)));
-                        if (input.get(row, col) > maxValue) {
-                            maxValue = input.get(row, col);
-                        }
-                        break;
-                    default:
-                        activatedMatrix.set(row, col, input.get(row, col));
-                }
-            }
+        if (destination.getRowCount() != rowCount || destination.getColumnCount() != columnCount) {
+            throw new InvalidMatrixOperation(input, destination, "activation into destination");
         }
-        /** Normalizes the ReLU function. */
-        if (activationType == Activation.RELU_NORMALIZED) {
-            return Matrix2D.divide(activatedMatrix, maxValue);
+
+        /** Matrices that are not contiguous are activated through a contiguous copy. */
+        Matrix2D source = input;
+        Matrix2D target = (destination.isContiguous() ? destination : new Matrix2D(rowCount, columnCount));
+        if (!input.isContiguous()) {
+            source = Matrix2D.copyInto(input, target);
         }
-        return activatedMatrix;
+        activationType.activate(source.getArray(), source.getArrayOffset(), target.getArray(), target.getArrayOffset(), rowCount, columnCount);
+        return (target == destination ? destination : Matrix2D.copyInto(target, destination));
     }
 
     /**
@@ -87,39 +115,34 @@ public interface Network {
      * @return the activated matrix.
      */
     static Matrix3D activate(Matrix3D input, Activation activationType) {
-        int rowCount = input.getRowCount();
-        int columnCount = input.getColumnCount();
-        int layerCount = input.getLayerCount();
+        MatrixLayout layout = input.contiguousLayout();
+        return activateInto(input, activationType, new Matrix3D(input.getRowCount(), input.getColumnCount(), input.getLayerCount(),
+            (layout == null ? input.getLayout() : layout)));
+    }
 
-        double maxValue = 0.0001;
-        Matrix3D activatedMatrix = new Matrix3D(new double[rowCount][columnCount][layerCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                for (int lay = 0; lay < layerCount; lay += 1) {
-                    switch(activationType) {
-                        case SIGMOID:
-                            activatedMatrix.set(row, col, lay, sigmoid(input.get(row, col, lay)));
-                            break;
-                        case RELU:
-                            activatedMatrix.set(row, col, lay, reLU(input.get(row, col, lay)));
-                            break;
-                        case RELU_NORMALIZED:
-                            activatedMatrix.set(row, col, lay, reLU(input.get(row, col, lay)));
-                            if (input.get(row, col, lay) > maxValue) {
-                                maxValue = input.get(row, col, lay);
-                            }
-                            break;
-                        default:
-                            activatedMatrix.set(row, col, lay, input.get(row, col, lay));
-                    }
-                }
-            }
+    /**
+     * Puts a matrix through an activation function, storing the result
+     * in a destination matrix of the same dimensions. The destination
+     * may be the input itself. The whole matrix is one input set.
+     * @param input the matrix to 'activate'.
+     * @param activationType the activation function type to use.
+     * @param destination the matrix to store the activated values in.
+     * @return the destination matrix.
+     */
+    static Matrix3D activateInto(Matrix3D input, Activation activationType, Matrix3D destination) {
+        if (!input.getDimensions().equals(destination.getDimensions())) {
+            throw new InvalidMatrixOperation(input, destination, "activation into destination");
         }
-        /** Normalizes the ReLU function. */
-        if (activationType == Activation.RELU_NORMALIZED) {
-            return Matrix3D.divide(activatedMatrix, maxValue);
+
+        /** Matrices whose entries are not in one matching order are activated through a contiguous copy. */
+        Matrix3D source = input;
+        Matrix3D target = (destination.isContiguous() ? destination : new Matrix3D(input.getRowCount(), input.getColumnCount(), input.getLayerCount()));
+        if (!Matrix3D.sameOrder(input, target)) {
+            source = Matrix3D.copyInto(input, target);
         }
-        return activatedMatrix;
+        int length = input.getRowCount() * input.getColumnCount() * input.getLayerCount();
+        activationType.activate(source.getArray(), source.getArrayOffset(), target.getArray(), target.getArrayOffset(), length, 1);
+        return (target == destination ? destination : Matrix3D.copyInto(target, destination));
     }
 
     /**
@@ -129,28 +152,51 @@ public interface Network {
      * @return the derivative matrix of the activation function.
      */
     static Matrix2D activateDerivative(Matrix2D input, Activation activationType) {
+        return activateDerivativeInto(input, activationType, new Matrix2D(input.getRowCount(), input.getColumnCount()));
+    }
+
+    /**
+     * Finds the derivative of an activation function for a given matrix,
+     * storing it in a destination matrix of the same dimensions. The
+     * destination may be the input itself.
+     * @param input the matrix at to find the derivative of the 'activate' function.
+     * @param activationType the activation function type to use.
+     * @param destination the matrix to store the derivative in.
+     * @return the destination matrix.
+     */
+    static Matrix2D activateDerivativeInto(Matrix2D input, Activation activationType, Matrix2D destination) {
+        return activateDerivativeInto(input, activate(input, activationType), activationType, destination);
+    }
+
+    /**
+     * Finds the derivative of an activation function for a given matrix
+     * whose activated values are already known, storing it in a
+     * destination matrix of the same dimensions. Most functions need
+     * only the activated values (the derivative of sigmoid is
+     * a * (1 - a), for example), so no transcendental functions are
+     * evaluated again. The destination may be either input.
+     * @param input the matrix at to find the derivative of the 'activate' function.
+     * @param output the activated matrix, as computed by activate.
+     * @param activationType the activation function type that produced it.
+     * @param destination the matrix to store the derivative in.
+     * @return the destination matrix.
+     */
+    static Matrix2D activateDerivativeInto(Matrix2D input, Matrix2D output, Activation activationType, Matrix2D destination) {
         int rowCount = input.getRowCount();
         int columnCount = input.getColumnCount();
-
-        Matrix2D derivativeMatrix = new Matrix2D(new double[rowCount][columnCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                switch(activationType) {
-                    case SIGMOID:
-                        derivativeMatrix.set(row, col, sigmoid(input.get(row, col)) * (1 - sigmoid(input.get(row, col))));
-                        break;
-                    case RELU:
-                        derivativeMatrix.set(row, col, reLU(input.get(row, col)) > 0 ? 1.0 : 0.0);
-                        break;
-                    case RELU_NORMALIZED:
-                        derivativeMatrix.set(row, col, reLU(input.get(row, col)) > 0 ? 1.0 : 0.0);
-                        break;
-                    default:
-                        derivativeMatrix.set(row, col, 0.0);
-                }
-            }
+        if (output.getRowCount() != rowCount || output.getColumnCount() != columnCount) {
+            throw new InvalidMatrixOperation(input, output, "activation derivative");
+        } else if (destination.getRowCount() != rowCount || destination.getColumnCount() != columnCount) {
+            throw new InvalidMatrixOperation(input, destination, "activation derivative into destination");
         }
-        return derivativeMatrix;
+
+        /** Matrices that are not contiguous are differentiated through contiguous copies. */
+        Matrix2D z = (input.isContiguous() ? input : new Matrix2D(input));
+        Matrix2D a = (output.isContiguous() ? output : new Matrix2D(output));
+        Matrix2D target = (destination.isContiguous() ? destination : new Matrix2D(rowCount, columnCount));
+        activationType.derivative(z.getArray(), z.getArrayOffset(), a.getArray(), a.getArrayOffset(), target.getArray(), target.getArrayOffset(),
+            rowCount * columnCount);
+        return (target == destination ? destination : Matrix2D.copyInto(target, destination));
     }
 
     /**
@@ -160,30 +206,178 @@ public interface Network {
      * @return the derivative matrix of the activation function.
      */
     static Matrix3D activateDerivative(Matrix3D input, Activation activationType) {
-        int rowCount = input.getRowCount();
-        int columnCount = input.getColumnCount();
-        int layerCount = input.getLayerCount();
+        MatrixLayout layout = input.contiguousLayout();
+        return activateDerivativeInto(input, activationType, new Matrix3D(input.getRowCount(), input.getColumnCount(), input.getLayerCount(),
+            (layout == null ? input.getLayout() : layout)));
+    }
 
-        Matrix3D derivativeMatrix = new Matrix3D(new double[rowCount][columnCount][layerCount]);
-        for (int row = 0; row < rowCount; row += 1) {
-            for (int col = 0; col < columnCount; col += 1) {
-                for (int lay = 0; lay < layerCount; lay += 1) {
-                    switch(activationType) {
-                        case SIGMOID:
-                            derivativeMatrix.set(row, col, lay, sigmoid(input.get(row, col, lay)) * (1 - sigmoid(input.get(row, col, lay))));
-                            break;
-                        case RELU:
-                            derivativeMatrix.set(row, col, lay, reLU(input.get(row, col, lay)) > 0 ? 1.0 : 0.0);
-                            break;
-                        case RELU_NORMALIZED:
-                            derivativeMatrix.set(row, col, lay, reLU(input.get(row, col, lay)) > 0 ? 1.0 : 0.0);
-                            break;
-                        default:
-                            derivativeMatrix.set(row, col, lay, 0.0);
-                    }
+    /**
+     * Finds the derivative of an activation function for a given matrix,
+     * storing it in a destination matrix of the same dimensions. The
+     * destination may be the input itself.
+     * @param input the matrix at to find the derivative of the 'activate' function.
+     * @param activationType the activation function type to use.
+     * @param destination the matrix to store the derivative in.
+     * @return the destination matrix.
+     */
+    static Matrix3D activateDerivativeInto(Matrix3D input, Activation activationType, Matrix3D destination) {
+        if (!input.getDimensions().equals(destination.getDimensions())) {
+            throw new InvalidMatrixOperation(input, destination, "activation derivative into destination");
+        }
+
+        /** The input and its activated values are differentiated as contiguous runs in the same order. */
+        Matrix3D z = (input.isContiguous() ? input : new Matrix3D(input));
+        MatrixLayout layout = z.contiguousLayout();
+        Matrix3D a = activateInto(z, activationType, new Matrix3D(z.getRowCount(), z.getColumnCount(), z.getLayerCount(), layout));
+        Matrix3D target = (Matrix3D.sameOrder(z, destination) ? destination : new Matrix3D(z.getRowCount(), z.getColumnCount(), z.getLayerCount(), layout));
+        int length = z.getRowCount() * z.getColumnCount() * z.getLayerCount();
+        activationType.derivative(z.getArray(), z.getArrayOffset(), a.getArray(), a.getArrayOffset(), target.getArray(), target.getArrayOffset(), length);
+        return (target == destination ? destination : Matrix3D.copyInto(target, destination));
+    }
+
+    /**
+     * Computes the 'loss' of single-precision outputs;
+     * in other words, how inaccurate the results were from
+     * expected. This is the mean squared error, found in one
+     * pass over the entries without temporary matrices.
+     * @param expectedOutput The true output of the inputs.
+     * @param output The model's predicted output based on the inputs.
+     * @return The loss of the weights and biases.
+     */
+    static float loss(FloatMatrix2D expectedOutput, FloatMatrix2D output) throws InvalidMatrixOperation {
+        if (!expectedOutput.getDimensions().equals(output.getDimensions())) {
+            throw new InvalidMatrixOperation(expectedOutput, output, "loss");
+        }
+
+        /** Matrices that are not contiguous are read through contiguous copies. */
+        FloatMatrix2D y = (expectedOutput.isContiguous() ? expectedOutput : new FloatMatrix2D(expectedOutput));
+        FloatMatrix2D a = (output.isContiguous() ? output : new FloatMatrix2D(output));
+        int length = a.getRowCount() * a.getColumnCount();
+        return (float) (ElementwiseKernels.INSTANCE.squaredDistance(y.getArray(), y.getArrayOffset(), a.getArray(), a.getArrayOffset(), length) / length);
+    }
+
+    /**
+     * Puts the float through a sigmoid function
+     * and returns the output.
+     * @param in the input to sigmoid-ify.
+     * @return the sigmoid-ified float.
+     */
+    static float sigmoid(float in) {
+        return 1.0f / (1.0f + (float) Math.exp(-in));
+    }
+
+    /**
+     * Puts the float through a ReLU function
+     * and returns the output.
+     * @param in the float to linearify.
+     * @return the output of the ReLU function.
+     */
+    static float reLU(float in) {
+        return Math.max(0.0f, in);
+    }
+
+    /**
+     * Puts a single-precision matrix through an activation function (sigmoid).
+     * Each column is a separate input set. The single-precision kernels
+     * read the matrix's own array, unless it is not contiguous.
+     * @param input the matrix to 'activate'.
+     * @param activationType the activation function type to use.
+     * @return the activated matrix.
+     */
+    static FloatMatrix2D activate(FloatMatrix2D input, Activation activationType) {
+        FloatMatrix2D source = (input.isContiguous() ? input : new FloatMatrix2D(input));
+        FloatMatrix2D output = new FloatMatrix2D(input.getRowCount(), input.getColumnCount());
+        activationType.activate(source.getArray(), source.getArrayOffset(), output.getArray(), output.getArrayOffset(),
+            input.getRowCount(), input.getColumnCount());
+        return output;
+    }
+
+    /**
+     * Puts a single-precision matrix through an activation function (sigmoid).
+     * The whole matrix is one input set. Element-wise functions run on
+     * each run of layers in place; the others need the entries in one run.
+     * @param input the matrix to 'activate'.
+     * @param activationType the activation function type to use.
+     * @return the activated matrix.
+     */
+    static FloatMatrix3D activate(FloatMatrix3D input, Activation activationType) {
+        int layerCount = input.getLayerCount();
+        FloatMatrix3D output = new FloatMatrix3D(input.getRowCount(), input.getColumnCount(), layerCount);
+        float[][][] z = input.getArray();
+        float[][][] a = output.getArray();
+        if (activationType.isElementwise()) {
+            for (int row = 0; row < input.getRowCount(); row += 1) {
+                for (int col = 0; col < input.getColumnCount(); col += 1) {
+                    activationType.activate(z[row][col], 0, a[row][col], 0, layerCount, 1);
                 }
             }
+            return output;
+        }
+
+        float[] values = new float[input.getRowCount() * input.getColumnCount() * layerCount];
+        int index = 0;
+        for (int row = 0; row < input.getRowCount(); row += 1) {
+            for (int col = 0; col < input.getColumnCount(); col += 1) {
+                System.arraycopy(z[row][col], 0, values, index, layerCount);
+                index += layerCount;
+            }
+        }
+        activationType.activate(values, 0, values, 0, values.length, 1);
+        index = 0;
+        for (int row = 0; row < input.getRowCount(); row += 1) {
+            for (int col = 0; col < input.getColumnCount(); col += 1) {
+                System.arraycopy(values, index, a[row][col], 0, layerCount);
+                index += layerCount;
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Finds the derivative of an activation function (sigmoid) for a given single-precision matrix.
+     * @param input the matrix at to find the derivative of the 'activate' function.
+     * @param activationType the activation function type to use.
+     * @return the derivative matrix of the activation function.
+     */
+    static FloatMatrix2D activateDerivative(FloatMatrix2D input, Activation activationType) {
+        return activateDerivative(input, activate(input, activationType), activationType);
+    }
+
+    /**
+     * Finds the derivative of an activation function for a given
+     * single-precision matrix whose activated values are already known.
+     * @param input the matrix at to find the derivative of the 'activate' function.
+     * @param output the activated matrix, as computed by activate.
+     * @param activationType the activation function type that produced it.
+     * @return the derivative matrix of the activation function.
+     */
+    static FloatMatrix2D activateDerivative(FloatMatrix2D input, FloatMatrix2D output, Activation activationType) {
+        if (!input.getDimensions().equals(output.getDimensions())) {
+            throw new InvalidMatrixOperation(input, output, "activation derivative");
+        }
+        FloatMatrix2D z = (input.isContiguous() ? input : new FloatMatrix2D(input));
+        FloatMatrix2D a = (output.isContiguous() ? output : new FloatMatrix2D(output));
+        FloatMatrix2D derivative = new FloatMatrix2D(input.getRowCount(), input.getColumnCount());
+        activationType.derivative(z.getArray(), z.getArrayOffset(), a.getArray(), a.getArrayOffset(),
+            derivative.getArray(), derivative.getArrayOffset(), input.getRowCount() * input.getColumnCount());
+        return derivative;
+    }
+
+    /**
+     * Finds the derivative of an activation function (sigmoid) for a given single-precision matrix.
+     * @param input the matrix at to find the derivative of the 'activate' function.
+     * @param activationType the activation function type to use.
+     * @return the derivative matrix of the activation function.
+     */
+    static FloatMatrix3D activateDerivative(FloatMatrix3D input, Activation activationType) {
+        FloatMatrix3D derivative = activate(input, activationType);
+        float[][][] z = input.getArray();
+        float[][][] a = derivative.getArray();
+        for (int row = 0; row < input.getRowCount(); row += 1) {
+            for (int col = 0; col < input.getColumnCount(); col += 1) {
+                activationType.derivative(z[row][col], 0, a[row][col], 0, a[row][col], 0, input.getLayerCount());
+            }
         }
-        return derivativeMatrix;
+        return derivative;
     }
 }
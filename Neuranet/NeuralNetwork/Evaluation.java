@@ -0,0 +1,122 @@
+package Neuranet.NeuralNetwork;
+
+/**
+ * Class that holds the results of evaluating a network on a set of
+ * datasets: the average loss, the predicted class of every input set,
+ * and the confusion matrix of predicted against expected classes, from
+ * which the accuracy follows. The class of an output is the index of
+ * its largest entry. Each column of a dataset counts as one input set.
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+public final class Evaluation {
+    /** The mean loss over every input set. */
+    private final double averageLoss;
+    /** The number of input sets of each expected class (row) predicted as each class (column). */
+    private final int[][] confusionMatrix;
+    /** The predicted class of each input set, in order. */
+    private final int[] predictions;
+    /** The number of input sets whose predicted class was the expected class. */
+    private final int correctCount;
+
+    /**
+     * Creates the results of an evaluation.
+     * @param averageLoss the mean loss over every input set.
+     * @param confusionMatrix the counts of expected (row) against predicted (column) classes.
+     * @param predictions the predicted class of each input set.
+     */
+    Evaluation(double averageLoss, int[][] confusionMatrix, int[] predictions) {
+        this.averageLoss = averageLoss;
+        this.confusionMatrix = confusionMatrix;
+        this.predictions = predictions;
+        int correct = 0;
+        for (int index = 0; index < confusionMatrix.length; index += 1) {
+            correct += confusionMatrix[index][index];
+        }
+        this.correctCount = correct;
+    }
+
+    /**
+     * Returns the mean loss over every input set, as
+     * measured by the network's loss function.
+     * @return the average loss, or 0.0 if there were no input sets.
+     */
+    public double getAverageLoss() {
+        return averageLoss;
+    }
+
+    /**
+     * Returns the fraction of input sets whose predicted
+     * class was the expected class.
+     * @return the accuracy in [0, 1], or 0.0 if there were no input sets.
+     */
+    public double getAccuracy() {
+        return (predictions.length == 0 ? 0.0 : (double) correctCount / predictions.length);
+    }
+
+    /**
+     * Returns the number of input sets whose predicted
+     * class was the expected class.
+     * @return the number of correct predictions.
+     */
+    public int getCorrectCount() {
+        return correctCount;
+    }
+
+    /**
+     * Returns the number of input sets evaluated.
+     * @return the number of input sets.
+     */
+    public int getSampleCount() {
+        return predictions.length;
+    }
+
+    /**
+     * Returns the predicted class of an input set.
+     * @param index the position of the input set, counting every column of every dataset in order.
+     * @return the predicted class.
+     */
+    public int getPrediction(int index) {
+        return predictions[index];
+    }
+
+    /**
+     * Returns the predicted class of every input set, counting
+     * every column of every dataset in order.
+     * @return a copy of the predictions.
+     */
+    public int[] getPredictions() {
+        return predictions.clone();
+    }
+
+    /**
+     * Returns the confusion matrix, whose entry at [expected][predicted]
+     * is the number of input sets of the expected class that were
+     * predicted as the other class.
+     * @return a copy of the confusion matrix.
+     */
+    public int[][] getConfusionMatrix() {
+        int[][] copy = new int[confusionMatrix.length][];
+        for (int index = 0; index < confusionMatrix.length; index += 1) {
+            copy[index] = confusionMatrix[index].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the results as a readable String.
+     */
+    @Override
+    public String toString() {
+        String out = "Average loss: " + averageLoss + "\nAccuracy: " + correctCount + " / " + predictions.length
+            + " (" + Math.round(getAccuracy() * 10000.0) / 100.0 + "%)\nConfusion matrix (expected by predicted):";
+        for (int[] row : confusionMatrix) {
+            out += "\n[";
+            for (int count : row) {
+                out += String.format(" %6d", count);
+            }
+            out += "  ]";
+        }
+        return out;
+    }
+}
@@ -0,0 +1,280 @@
+package Neuranet.NeuralNetwork;
+
+import java.util.Arrays;
+
+import Neuranet.Activation;
+import Neuranet.Dataset;
+import Neuranet.FloatMatrix2D;
+import Neuranet.Network;
+import Neuranet.Tuple;
+import Neuranet.RuntimeExceptions.InvalidMatrixOperation;
+
+/**
+ * Class that represents a neural network whose weights,
+ * biases and intermediate values are single-precision floats.
+ * Datasets are converted to single precision as they are used.
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+public class FloatNeuralNetwork implements Network {
+    /** The weights of the neural network. */
+    private FloatMatrix2D[] weights;
+    /** The biases of the neural network. */
+    private FloatMatrix2D[] biases;
+    /** The type of activation function that the neural network uses. */
+    private Activation activationType;
+    
+    /**
+     * Default no-args constructor that creates a network object.
+     */
+    public FloatNeuralNetwork() {
+        this.activationType = Activation.SIGMOID;
+        weights = new FloatMatrix2D[0];
+        biases = new FloatMatrix2D[0];
+    }
+
+    /**
+     * Creates a neural network with the given number of nodes.
+     * The activation function will default to SIGMOID.
+     * @param nodeCounts The numbers of nodes per layer in the network.
+     */
+    public FloatNeuralNetwork(int[] nodeCounts) {
+        this(nodeCounts, Activation.SIGMOID);
+    }
+
+    /**
+     * Creates a neural network with the given number of nodes
+     * and the type of activation function of the network.
+     * @param nodeCounts The numbers of nodes per layer in the network.
+     * @param activationType The type of activation function the network will use.
+     * @throws IllegalArgumentException if the activation function is SOFTMAX,
+     *         whose derivative backpropagation cannot apply entry by entry;
+     *         a softmax output layer comes from Loss.SOFTMAX_CROSS_ENTROPY.
+     */
+    public FloatNeuralNetwork(int[] nodeCounts, Activation activationType) {
+        if (activationType == Activation.SOFTMAX) {
+            throw new IllegalArgumentException("SOFTMAX cannot be the activation of every layer; use Loss.SOFTMAX_CROSS_ENTROPY for a softmax output layer.");
+        }
+        this.activationType = activationType;
+        weights = new FloatMatrix2D[nodeCounts.length - 1];
+        biases = new FloatMatrix2D[nodeCounts.length - 1];
+        for (int index = 0; index < weights.length; index++) {
+            if (activationType != Activation.RELU && activationType != Activation.RELU_NORMALIZED) {
+                weights[index] = FloatMatrix2D.random(nodeCounts[index + 1], nodeCounts[index], -1.0f, 1.0f);
+            } else {
+                weights[index] = FloatMatrix2D.random(nodeCounts[index + 1], nodeCounts[index], 0.001f, 1.0f);
+            }
+            biases[index] = FloatMatrix2D.random(nodeCounts[index + 1], 1, 0.0f, 0.0f);
+        }
+    }
+
+    /**
+     * Computes output sets for all input datasets and
+     * returns the average loss of the neural network.
+     * @return The average loss of the neural network.
+     */
+    public double getAverageLoss(Dataset[] datasets) throws InvalidMatrixOperation {
+        if(datasets == null || datasets.length == 0) {
+            return 0.0;
+        }
+        double loss = 0.0;
+        for (int index = 0; index < datasets.length; index += 1) {
+            loss += Network.loss(new FloatMatrix2D(datasets[index].getExpectedOutput()), compute(new FloatMatrix2D(datasets[index].getInput())));
+        }
+        return loss / datasets.length;
+    }
+
+    /**
+     * Produces an output set for the provided input set
+     * based on the weights and biases of the neural network.
+     * @param input The input set to compute the output for.
+     * @return The output of the neural network with the given input,
+     * weights, and biases.
+     */
+    public FloatMatrix2D compute(FloatMatrix2D input) throws InvalidMatrixOperation {
+        FloatMatrix2D output = new FloatMatrix2D(input);
+        for (int index = 0; index < weights.length; index++) {
+            output = Network.activate(FloatMatrix2D.add(FloatMatrix2D.multiply(weights[index], output), biases[index]), activationType);    
+        }
+        return output;
+    }
+
+    /**
+     * Computes the node values at each layer
+     * of the forward propagation process before
+     * activation (the z vectors), keeping the
+     * activated values as well.
+     * @param input The input set.
+     * @param activations The array to store the activated
+     *                    values of each layer in; index 0
+     *                    is the input.
+     * @return An array of matrices containing the layers'
+     * values.
+     */
+    private FloatMatrix2D[] getZvalues(FloatMatrix2D input, FloatMatrix2D[] activations) throws InvalidMatrixOperation {
+        /**
+         * Array of combined mx1 matrices where the first column is the
+         * unactivated value at the layer.
+         */
+        FloatMatrix2D[] output = new FloatMatrix2D[weights.length + 1];
+        output[0] = new FloatMatrix2D(input);
+        activations[0] = output[0];
+        
+        FloatMatrix2D a = input;
+        /** Calculates the partial derivative of the activation at that layer. */
+        for (int index = 0; index < weights.length; index++) {
+            FloatMatrix2D z = FloatMatrix2D.add(FloatMatrix2D.multiply(weights[index], a), biases[index]);
+            output[index + 1] = new FloatMatrix2D(z);
+            a = Network.activate(z, activationType);
+            activations[index + 1] = a;
+        }
+        return output;
+    }
+
+    /**
+     * Given a set of Datasets, it takes the average
+     * gradient learned from the model and adjusts the
+     * weights and biases accordingly. It defaults to
+     * one cycle of training and a batch size of one
+     * dataset before updating the weights and biases.
+     * @param datasets the datasets used to teach the model.
+     */
+    public void learn(Dataset[] datasets) {
+        learn(datasets, 1, 1, 1.0);
+    }
+
+    /**
+     * Loops through an array of Datasets, taking 'batchSize'
+     * Datasets at a time and averaging the gradients for the
+     * weights and biases over these 'batchSize' datasets, adjusting the
+     * weights and biases accordingly. It repeats this process
+     * 'epochs' times.
+     * @param datasets the Datasets used to teach the model.
+     * @param epoch the amount of times to run the training datasets.
+     * @param batchSize the size of each batch to train the model.
+     *                  In other words, the number of datasets to
+     *                  go through each time before averaging their
+     *                  gradients and updating the model's weights
+     *                  and biases.
+     */
+    public void learn(Dataset[] datasets, int epochs, int batchSize, double learningRate) {
+        for (int epoch = 0; epoch < epochs; epoch += 1) {
+            for (int batchStartIndex = 0; batchStartIndex < datasets.length; batchStartIndex += batchSize) {
+                Dataset[] batch = Arrays.copyOfRange(datasets, batchStartIndex, Math.min(datasets.length, batchStartIndex + batchSize));
+
+                FloatMatrix2D[] totalWeightGradients = FloatMatrix2D.multiply(weights, 0.0f);
+                FloatMatrix2D[] totalBiasGradients = FloatMatrix2D.multiply(biases, 0.0f);
+                
+                /** Sums the gradients of the weights and biases for all datasets. */
+                for (Dataset dataset : batch) {
+                    Tuple<FloatMatrix2D[], FloatMatrix2D[]> gradients = datasetGradients(dataset);
+                    FloatMatrix2D.addInto(totalWeightGradients, gradients.x, totalWeightGradients);
+                    FloatMatrix2D.addInto(totalBiasGradients, gradients.y, totalBiasGradients);
+                }
+        
+                /** Modifies the weights and biases by the averaged gradients. */
+                float stepSize = (float) (learningRate / batch.length);
+                for (int index = 0; index < weights.length; index += 1) { 
+                    FloatMatrix2D.scaledAdd(weights[index], -stepSize, totalWeightGradients[index], weights[index]);
+                }
+                for (int index = 0; index < biases.length; index += 1) { 
+                    FloatMatrix2D.scaledAdd(biases[index], -stepSize, totalBiasGradients[index], biases[index]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes in a dataset and returns the gradient of the
+     * cost function with respect to the weights and biases
+     * based on the error of the model with the given dataset.
+     * @param dataset The Dataset to compute and learn from.
+     * @return the weight and bias gradients learned from the dataset.
+     */
+    public Tuple<FloatMatrix2D[], FloatMatrix2D[]> datasetGradients(Dataset dataset) {
+        FloatMatrix2D input = new FloatMatrix2D(dataset.getInput());
+        FloatMatrix2D expectedOutput = new FloatMatrix2D(dataset.getExpectedOutput());
+        
+        /** Retrieves the the set of unactivated nodes, and the activated ones. */
+        FloatMatrix2D[] activations = new FloatMatrix2D[weights.length + 1];
+        FloatMatrix2D[] nodeValues = getZvalues(input, activations); 
+        
+        /** Backpropagates given the node values and expected output. */
+        return backpropagate(nodeValues, activations, expectedOutput);
+    }
+
+    /**
+     * Given the z values and the expected output, it
+     * backpropagates until it finds the gradients of
+     * the cost function with respect to the weights
+     * and biases.
+     * @param zValues the z values of the nodes with
+     *                the given input and values.
+     * @param activations the activated node values kept
+     *                    by the forward pass.
+     * @param expectedOutput the expected output of
+     *                       the dataset that created
+     *                       the node values.
+     * @return the weight and bias gradients learned
+     *         from the dataset.
+     */
+    private Tuple<FloatMatrix2D[], FloatMatrix2D[]> backpropagate(FloatMatrix2D[] zValues, FloatMatrix2D[] activations, FloatMatrix2D expectedOutput) {
+        /** The output of the input with the current weights and biases. */
+        FloatMatrix2D output = activations[activations.length - 1];
+        /** Gradient of loss with respect to the last layer. */
+        FloatMatrix2D dCda_l = FloatMatrix2D.subtract(output, expectedOutput);
+        
+        /**
+         * The new gradients to modify the weights and biases with
+         * based on the error of this dataset.
+         */
+        FloatMatrix2D[] weightGradients = new FloatMatrix2D[weights.length];
+        FloatMatrix2D[] biasGradients = new FloatMatrix2D[biases.length];
+        
+        /** The cost at layer l. */
+        FloatMatrix2D delta_l = new FloatMatrix2D();
+
+        for (int layer = weights.length - 1; layer >= 0; layer -= 1) {
+            /** Activated node values (a) at layer l-1; the input layer is not activated. */
+            FloatMatrix2D a_lminusOne = activations[layer];
+            /** The derivative of the activation function at layer l, found from its activated values. */
+            FloatMatrix2D sigma_lprime = Network.activateDerivative(zValues[layer + 1], activations[layer + 1], activationType);
+            
+            /** Recalculates the cost at the current layer. */
+            if (layer == weights.length - 1) {
+                delta_l = FloatMatrix2D.hadamardMultiply(dCda_l, sigma_lprime);
+            } else {
+                delta_l = FloatMatrix2D.hadamardMultiply(FloatMatrix2D.transposeMultiply(weights[layer + 1], delta_l), sigma_lprime);
+            }
+
+            /**
+             * Adjusts the weight and bias gradients based on the error
+             * at the current layer.
+             */
+            weightGradients[layer] = FloatMatrix2D.multiplyTranspose(delta_l, a_lminusOne);
+            biasGradients[layer] = new FloatMatrix2D(delta_l);
+        }
+
+        /** Returns the gradients of the weights and biases. */
+        return new Tuple<>(weightGradients, biasGradients);
+    }
+
+    /**
+     * Returns the state of the Network as a readable String.
+     */
+    @Override
+    public String toString() {
+        String out = "\n~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~  Float Neural Network  ~~~~~~~~~~~~~~~~~~~~~~~~~~~";
+
+        if(weights != null && weights.length > 0) {
+            out += "\n\n\tLAYER 1 (" + weights[0].getColumnCount() + " nodes)\n";
+        }
+
+        for (int index = 0; index < weights.length; index += 1) {
+            out += "\nWeights:" + weights[index] + "\nBiases:" + biases[index];
+            out += "\n\n\tLAYER " + (index + 2) + " (" + weights[index].getRowCount() + " nodes)\n";
+        }
+        out += "\n~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~\n";
+        return out;
+    }
+}
\ No newline at end of file
@@ -1,11 +1,19 @@
 package Neuranet.NeuralNetwork;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 
 import Neuranet.Activation;
 import Neuranet.Dataset;
+import Neuranet.Loss;
 import Neuranet.Matrix2D;
+import Neuranet.MatrixExpression;
 import Neuranet.Network;
+import Neuranet.Optimizer;
+import Neuranet.SparseMatrix2D;
 import Neuranet.Tuple;
 import Neuranet.RuntimeExceptions.InvalidMatrixOperation;
 
@@ -15,12 +23,36 @@ import Neuranet.RuntimeExceptions.InvalidMatrixOperation;
  * @version 1.0.0
  */
 public class NeuralNetwork implements Network {
+    /** The number of datasets (or inputs) stacked into one matrix by evaluate and compute. */
+    private static final int EVALUATION_CHUNK_SIZE = 64;
+
+    /**
+     * Interface of the work evaluate and compute do on a range of
+     * chunks, in the workspace of one shard.
+     */
+    @FunctionalInterface
+    private interface ChunkRange {
+        void run(int shard, int firstChunk, int lastChunk, TrainingWorkspace workspace);
+    }
+
     /** The weights of the neural network. */
     private Matrix2D[] weights;
     /** The biases of the neural network. */
     private Matrix2D[] biases;
     /** The type of activation function that the neural network uses. */
     private Activation activationType;
+    /** Whether the activation function is computed with its fast approximation. */
+    private boolean approximateActivation;
+    /** The loss function the network is trained to minimize. */
+    private Loss loss = Loss.MEAN_SQUARED_ERROR;
+    /** The rule used to update the weights and biases after each batch. */
+    private Optimizer optimizer = Optimizer.sgd();
+    /** The number of threads each training batch is split across. */
+    private int threadCount = 1;
+    /** The pool the threads of a training batch run on, created on first use. */
+    private ForkJoinPool trainingPool;
+    /** The training matrices of each shard of a batch, reused between batches; the first serves the calling thread. */
+    private TrainingWorkspace[] workspaces = new TrainingWorkspace[0];
     
     /**
      * Default no-args constructor that creates a network object.
@@ -45,13 +77,19 @@ public class NeuralNetwork implements Network {
      * and the type of activation function of the network.
      * @param nodeCounts The numbers of nodes per layer in the network.
      * @param activationType The type of activation function the network will use.
+     * @throws IllegalArgumentException if the activation function is SOFTMAX,
+     *         whose derivative backpropagation cannot apply entry by entry;
+     *         a softmax output layer comes from Loss.SOFTMAX_CROSS_ENTROPY.
      */
     public NeuralNetwork(int[] nodeCounts, Activation activationType) {
+        if (activationType == Activation.SOFTMAX) {
+            throw new IllegalArgumentException("SOFTMAX cannot be the activation of every layer; use Loss.SOFTMAX_CROSS_ENTROPY for a softmax output layer.");
+        }
         this.activationType = activationType;
         weights = new Matrix2D[nodeCounts.length - 1];
         biases = new Matrix2D[nodeCounts.length - 1];
         for (int index = 0; index < weights.length; index++) {
-            if (activationType == Activation.SIGMOID) {
+            if (activationType != Activation.RELU && activationType != Activation.RELU_NORMALIZED) {
                 weights[index] = Matrix2D.random(nodeCounts[index + 1], nodeCounts[index], -1.0, 1.0);
             } else {
                 weights[index] = Matrix2D.random(nodeCounts[index + 1], nodeCounts[index], 0.001, 1.0);
@@ -62,18 +100,159 @@ public class NeuralNetwork implements Network {
 
     /**
      * Computes output sets for all input datasets and
-     * returns the average loss of the neural network.
+     * returns the average loss of the neural network,
+     * the mean over every input set (column) of the datasets.
+     * The datasets are split across getThreadCount threads,
+     * with the same result for any number of threads; see evaluate.
      * @return The average loss of the neural network.
      */
     public double getAverageLoss(Dataset[] datasets) throws InvalidMatrixOperation {
-        if(datasets == null || datasets.length == 0) {
-            return 0.0;
+        return evaluate(datasets).getAverageLoss();
+    }
+
+    /**
+     * Evaluates the network on a set of datasets in one pass, finding
+     * the average loss, the predicted class of every input set and the
+     * confusion matrix together. The datasets are run through the
+     * network in stacked chunks of EVALUATION_CHUNK_SIZE, in matrices
+     * allocated once per call rather than per dataset. With
+     * getThreadCount above 1 the chunks are split across threads; the
+     * loss of each chunk is kept apart and the chunks are added in
+     * order, so the results do not depend on the number of threads.
+     * Each call computes in workspaces of its own, so evaluations may
+     * run from several threads at once.
+     * @param datasets the datasets to evaluate on.
+     * @return the results of the evaluation.
+     */
+    public Evaluation evaluate(Dataset[] datasets) throws InvalidMatrixOperation {
+        if (datasets == null || datasets.length == 0) {
+            return new Evaluation(0.0, new int[0][0], new int[0]);
         }
-        double loss = 0.0;
+
+        /** The position of each dataset's first input set among all of them. */
+        int[] firstColumns = new int[datasets.length + 1];
         for (int index = 0; index < datasets.length; index += 1) {
-            loss += Network.loss(datasets[index].getExpectedOutput(), compute(datasets[index].getInput()));
+            firstColumns[index + 1] = firstColumns[index] + datasets[index].getInput().getColumnCount();
+        }
+        int classCount = datasets[0].getExpectedOutput().getRowCount();
+        int chunkCount = (datasets.length + EVALUATION_CHUNK_SIZE - 1) / EVALUATION_CHUNK_SIZE;
+        int shardCount = Math.min(threadCount, chunkCount);
+        double[] chunkLosses = new double[chunkCount];
+        int[][][] confusionMatrices = new int[shardCount][classCount][classCount];
+        int[] predictions = new int[firstColumns[datasets.length]];
+        runChunks(chunkCount, shardCount, (shard, firstChunk, lastChunk, workspace) ->
+            evaluateChunks(datasets, firstColumns, firstChunk, lastChunk, workspace, chunkLosses, confusionMatrices[shard], predictions));
+
+        /** The chunk losses and shard counts are added in a fixed order, for results that match across thread counts. */
+        double totalLoss = 0.0;
+        for (int chunk = 0; chunk < chunkCount; chunk += 1) {
+            totalLoss += chunkLosses[chunk];
+        }
+        int[][] confusionMatrix = confusionMatrices[0];
+        for (int shard = 1; shard < shardCount; shard += 1) {
+            for (int row = 0; row < classCount; row += 1) {
+                for (int column = 0; column < classCount; column += 1) {
+                    confusionMatrix[row][column] += confusionMatrices[shard][row][column];
+                }
+            }
+        }
+        return new Evaluation(totalLoss / predictions.length, confusionMatrix, predictions);
+    }
+
+    /**
+     * Splits chunks into shardCount contiguous ranges and runs each on
+     * the training pool in the workspace of its shard, or runs them all
+     * on the calling thread when there is one shard. The workspaces
+     * serve only forward passes and belong to this call alone.
+     * @param chunkCount the number of chunks.
+     * @param shardCount the number of shards, at most the thread count.
+     * @param range the work to do on each range of chunks.
+     */
+    private void runChunks(int chunkCount, int shardCount, ChunkRange range) {
+        if (shardCount == 1) {
+            range.run(0, 0, chunkCount, new TrainingWorkspace(weights));
+            return;
+        }
+
+        ForkJoinTask<?>[] shards = new ForkJoinTask<?>[shardCount];
+        for (int shard = 0; shard < shardCount; shard += 1) {
+            int index = shard;
+            int firstChunk = (int) ((long) chunkCount * shard / shardCount);
+            int lastChunk = (int) ((long) chunkCount * (shard + 1) / shardCount);
+            shards[shard] = getTrainingPool().submit(() -> range.run(index, firstChunk, lastChunk, new TrainingWorkspace(weights)));
+        }
+        for (int shard = 0; shard < shardCount; shard += 1) {
+            shards[shard].join();
+        }
+    }
+
+    /**
+     * Evaluates a range of chunks of datasets, storing the summed loss
+     * of each chunk, counting every input set in the confusion matrix,
+     * and storing its predicted class.
+     * @param datasets the datasets.
+     * @param firstColumns the position of each dataset's first input set.
+     * @param firstChunk the index of the first chunk to evaluate.
+     * @param lastChunk the index after the last chunk to evaluate.
+     * @param workspace the workspace to compute in.
+     * @param chunkLosses the summed loss of each chunk.
+     * @param confusionMatrix the confusion matrix to count in.
+     * @param predictions the predicted class of each input set.
+     */
+    private void evaluateChunks(Dataset[] datasets, int[] firstColumns, int firstChunk, int lastChunk, TrainingWorkspace workspace,
+            double[] chunkLosses, int[][] confusionMatrix, int[] predictions) {
+        for (int chunk = firstChunk; chunk < lastChunk; chunk += 1) {
+            int startIndex = chunk * EVALUATION_CHUNK_SIZE;
+            int endIndex = Math.min(datasets.length, startIndex + EVALUATION_CHUNK_SIZE);
+            if (canStack(datasets, startIndex, endIndex)) {
+                TrainingWorkspace.Batch batch = stack(datasets, startIndex, endIndex, workspace);
+                forwardPropagate(batch.inputs, batch);
+                chunkLosses[chunk] = tally(batch.expectedOutputs, batch.activations[weights.length], firstColumns[startIndex],
+                    confusionMatrix, predictions);
+            } else {
+                double chunkLoss = 0.0;
+                for (int index = startIndex; index < endIndex; index += 1) {
+                    Matrix2D input = datasets[index].getInput();
+                    TrainingWorkspace.Batch batch = workspace.batch(input.getColumnCount());
+                    forwardPropagate(input, batch);
+                    chunkLoss += tally(datasets[index].getExpectedOutput(), batch.activations[weights.length], firstColumns[index],
+                        confusionMatrix, predictions);
+                }
+                chunkLosses[chunk] = chunkLoss;
+            }
         }
-        return loss / datasets.length;
+    }
+
+    /**
+     * Counts the expected and predicted class of every input set
+     * (column) of an output in a confusion matrix, storing the
+     * predictions, and returns the summed loss of the input sets.
+     * @param expectedOutput the expected output.
+     * @param output the output of the network.
+     * @param firstColumn the position of the output's first input set.
+     * @param confusionMatrix the confusion matrix to count in.
+     * @param predictions the predicted class of each input set.
+     * @return the sum of the losses of the input sets.
+     */
+    private double tally(Matrix2D expectedOutput, Matrix2D output, int firstColumn, int[][] confusionMatrix, int[] predictions) {
+        int rowCount = output.getRowCount();
+        for (int column = 0; column < output.getColumnCount(); column += 1) {
+            int expected = 0;
+            int predicted = 0;
+            for (int row = 1; row < rowCount; row += 1) {
+                if (expectedOutput.get(row, column) > expectedOutput.get(expected, column)) {
+                    expected = row;
+                }
+                if (output.get(row, column) > output.get(predicted, column)) {
+                    predicted = row;
+                }
+            }
+            confusionMatrix[expected][predicted] += 1;
+            predictions[firstColumn + column] = predicted;
+        }
+
+        /** Both losses are means over the input sets of their own matrix, so this is the sum over them. */
+        return loss.loss(expectedOutput, output) * output.getColumnCount();
     }
 
     /**
@@ -84,36 +263,111 @@ public class NeuralNetwork implements Network {
      * weights, and biases.
      */
     public Matrix2D compute(Matrix2D input) throws InvalidMatrixOperation {
-        Matrix2D output = new Matrix2D(input);
+        Matrix2D output = input;
         for (int index = 0; index < weights.length; index++) {
-            output = Network.activate(Matrix2D.add(Matrix2D.multiply(weights[index], output), biases[index]), activationType);    
+            output = MatrixExpression.product(weights[index], output).add(biases[index]).activate(activation(index)).evaluate();
         }
         return output;
     }
 
+    /**
+     * Produces the output set of every input set in an array. The
+     * inputs are run through the network in stacked chunks of
+     * EVALUATION_CHUNK_SIZE, split across getThreadCount threads like
+     * evaluate. Each output depends only on its chunk, whose bounds do
+     * not change with the number of threads, so the outputs are the
+     * same for any number of threads. They may differ from those of
+     * compute on each input in the last bits, since stacked products
+     * add in a different order. (With the Vector API, exponentials and
+     * tanh round slightly differently before and after the JIT compiles
+     * them, which no choice of order can hide.) Like evaluate, each call
+     * computes in workspaces of its own, so calls may run from several
+     * threads at once.
+     * @param inputs The input sets to compute the outputs for.
+     * @return The output of the neural network for each input, in order.
+     */
+    public Matrix2D[] compute(Matrix2D[] inputs) throws InvalidMatrixOperation {
+        Matrix2D[] outputs = new Matrix2D[inputs.length];
+        if (inputs.length == 0) {
+            return outputs;
+        }
+        int chunkCount = (inputs.length + EVALUATION_CHUNK_SIZE - 1) / EVALUATION_CHUNK_SIZE;
+        runChunks(chunkCount, Math.min(threadCount, chunkCount), (shard, firstChunk, lastChunk, workspace) -> {
+            for (int chunk = firstChunk; chunk < lastChunk; chunk += 1) {
+                computeChunk(inputs, chunk * EVALUATION_CHUNK_SIZE, Math.min(inputs.length, (chunk + 1) * EVALUATION_CHUNK_SIZE),
+                    workspace, outputs);
+            }
+        });
+        return outputs;
+    }
+
+    /**
+     * Computes the outputs of a range of inputs as one stacked
+     * matrix, or one at a time if any of them is sparse.
+     * @param inputs the input sets.
+     * @param startIndex the index of the first input.
+     * @param endIndex the index after the last input.
+     * @param workspace the workspace to compute in.
+     * @param outputs the array to store the outputs in.
+     */
+    private void computeChunk(Matrix2D[] inputs, int startIndex, int endIndex, TrainingWorkspace workspace, Matrix2D[] outputs) {
+        boolean stackable = (endIndex - startIndex > 1);
+        int columnCount = 0;
+        for (int index = startIndex; index < endIndex; index += 1) {
+            stackable = stackable && !(inputs[index] instanceof SparseMatrix2D);
+            columnCount += inputs[index].getColumnCount();
+        }
+        if (!stackable) {
+            for (int index = startIndex; index < endIndex; index += 1) {
+                TrainingWorkspace.Batch batch = workspace.batch(inputs[index].getColumnCount());
+                forwardPropagate(inputs[index], batch);
+                outputs[index] = new Matrix2D(batch.activations[weights.length]);
+            }
+            return;
+        }
+
+        TrainingWorkspace.Batch batch = workspace.batch(columnCount);
+        int column = 0;
+        for (int index = startIndex; index < endIndex; index += 1) {
+            int width = inputs[index].getColumnCount();
+            Matrix2D.copyInto(inputs[index], Matrix2D.subMatrixView(batch.inputs, 0, column, batch.inputs.getRowCount(), column + width));
+            column += width;
+        }
+        forwardPropagate(batch.inputs, batch);
+        Matrix2D output = batch.activations[weights.length];
+        column = 0;
+        for (int index = startIndex; index < endIndex; index += 1) {
+            int width = inputs[index].getColumnCount();
+            outputs[index] = Matrix2D.subMatrix(output, 0, column, output.getRowCount(), column + width);
+            column += width;
+        }
+    }
+
     /**
      * Computes the node values at each layer
-     * of the forward propagation process before
-     * activation (the z vectors).
-     * @return An array of matrices containing the layers'
-     * values.
+     * of the forward propagation process, both before
+     * activation (the z vectors) and after, into the
+     * matrices of a batch. Each column of the input
+     * is a separate input set.
+     * @param input The input set.
+     * @param batch The matrices to store the node values in.
      */
-    private Matrix2D[] getZvalues(Matrix2D input) throws InvalidMatrixOperation {
-        /**
-         * Array of combined mx1 matrices where the first column is the
-         * unactivated value at the layer.
-         */
-        Matrix2D[] output = new Matrix2D[weights.length + 1];
-        output[0] = new Matrix2D(input);
-        
-        Matrix2D a = input;
-        /** Calculates the partial derivative of the activation at that layer. */
+    private void forwardPropagate(Matrix2D input, TrainingWorkspace.Batch batch) throws InvalidMatrixOperation {
+        batch.zValues[0] = input;
+        batch.activations[0] = input;
+
         for (int index = 0; index < weights.length; index++) {
-            Matrix2D z = Matrix2D.add(Matrix2D.multiply(weights[index], a), biases[index]);
-            output[index + 1] = new Matrix2D(z);
-            a = Network.activate(z, activationType);
+            Matrix2D z = batch.zValues[index + 1];
+            /** Starts from the biases, copied into every column as the outer product with a row of ones. */
+            if (batch.ones == null) {
+                Matrix2D.copyInto(biases[index], z);
+            } else {
+                Matrix2D.fill(z, 0.0);
+                Matrix2D.addOuterProduct(biases[index], batch.ones, z);
+            }
+            Matrix2D.multiplyAddInto(weights[index], batch.activations[index], z);
+            Network.activateInto(z, activation(index), batch.activations[index + 1]);
         }
-        return output;
     }
 
     /**
@@ -143,109 +397,482 @@ public class NeuralNetwork implements Network {
      *                  and biases.
      */
     public void learn(Dataset[] datasets, int epochs, int batchSize, double learningRate) {
+        /** The gradient totals and every node value live in the workspace, so training reaches a steady state without allocating. */
+        TrainingWorkspace workspace = workspace(0);
+        /** The weights and biases as one list for the optimizer, matching the workspace's gradients. */
+        Matrix2D[] parameters = concatenate(weights, biases);
+
         for (int epoch = 0; epoch < epochs; epoch += 1) {
             for (int batchStartIndex = 0; batchStartIndex < datasets.length; batchStartIndex += batchSize) {
-                Dataset[] batch = Arrays.copyOfRange(datasets, batchStartIndex, Math.min(datasets.length, batchStartIndex + batchSize));
-
-                Matrix2D[] totalWeightGradients = Matrix2D.multiply(weights, 0.0);
-                Matrix2D[] totalBiasGradients = Matrix2D.multiply(biases, 0.0);
-                
-                /** Averages the gradients of the weights and biases for all datasets. */
-                for (Dataset dataset : batch) {
-                    Tuple<Matrix2D[], Matrix2D[]> gradients = datasetGradients(dataset);
-                    totalWeightGradients = Matrix2D.add(totalWeightGradients, gradients.x);
-                    totalBiasGradients = Matrix2D.add(totalBiasGradients, gradients.y);
-                }
-                for (int index = 0; index < totalWeightGradients.length; index += 1) {
-                    totalWeightGradients[index] = Matrix2D.divide(totalWeightGradients[index], batch.length);
-                    totalBiasGradients[index] = Matrix2D.divide(totalBiasGradients[index], batch.length);
-                }
-        
-                /** Modifies the weights and biases by the calculated gradients. */
-                for (int index = 0; index < weights.length; index += 1) { 
-                    weights[index] = Matrix2D.subtract(weights[index], Matrix2D.multiply(totalWeightGradients[index], learningRate));
+                int batchEndIndex = Math.min(datasets.length, batchStartIndex + batchSize);
+
+                /** Sums the gradients of the weights and biases for all datasets. */
+                if (threadCount > 1 && batchEndIndex - batchStartIndex > 1) {
+                    accumulateParallelGradients(datasets, batchStartIndex, batchEndIndex);
+                } else {
+                    accumulateGradients(datasets, batchStartIndex, batchEndIndex, workspace);
                 }
-                for (int index = 0; index < biases.length; index += 1) { 
-                    biases[index] = Matrix2D.subtract(biases[index], Matrix2D.multiply(totalBiasGradients[index], learningRate));
+
+                /** Lets the optimizer modify the weights and biases by the averaged gradients, then clears the totals. */
+                optimizer.step(parameters, workspace.gradients, 1.0 / (batchEndIndex - batchStartIndex), learningRate);
+                workspace.clearGradients();
+            }
+        }
+    }
+
+    /**
+     * Trains the model with lock-free asynchronous stochastic gradient
+     * descent (Hogwild). getThreadCount threads each take the next
+     * dataset from a shared counter, run it through the model, and
+     * subtract its gradients times the learning rate straight from the
+     * shared weights and biases, without locks or waiting for each
+     * other. A thread may therefore read weights that another thread
+     * is partway through updating; with sparse inputs, whose updates
+     * touch few weights, this rarely matters and the threads scale
+     * almost linearly. Results are not repeatable between runs.
+     * @param datasets the Datasets used to teach the model.
+     * @param epochs the amount of times to run the training datasets.
+     * @param learningRate the factor to multiply each gradient by.
+     * @return the number of datasets each thread learned from per second.
+     * @throws IllegalArgumentException if epochs is negative.
+     */
+    public double[] learnAsynchronously(Dataset[] datasets, int epochs, double learningRate) {
+        if (epochs < 0) {
+            throw new IllegalArgumentException("Epoch count must not be negative, was " + epochs + ".");
+        }
+        /** Counted in longs, since epochs times a large corpus can pass Integer.MAX_VALUE. */
+        long sampleCount = (long) epochs * datasets.length;
+        AtomicLong nextSample = new AtomicLong();
+        double[] samplesPerSecond = new double[threadCount];
+
+        ForkJoinTask<?>[] workers = new ForkJoinTask<?>[threadCount];
+        for (int thread = 0; thread < threadCount; thread += 1) {
+            int worker = thread;
+            workers[thread] = getTrainingPool().submit(() -> {
+                TrainingWorkspace workspace = new TrainingWorkspace(weights, biases);
+                long start = System.nanoTime();
+                long learned = 0;
+                for (long sample = nextSample.getAndIncrement(); sample < sampleCount; sample = nextSample.getAndIncrement()) {
+                    Dataset dataset = datasets[(int) (sample % datasets.length)];
+                    accumulateGradients(dataset.getInput(), dataset.getExpectedOutput(), workspace, weights, biases, -learningRate);
+                    learned += 1;
                 }
+                long elapsed = System.nanoTime() - start;
+                samplesPerSecond[worker] = (elapsed == 0 ? 0.0 : learned * 1e9 / elapsed);
+            });
+        }
+        for (int thread = 0; thread < threadCount; thread += 1) {
+            workers[thread].join();
+        }
+        return samplesPerSecond;
+    }
+
+    /**
+     * Sets the rule used to update the weights and biases from the
+     * averaged gradients of each batch in learn, such as
+     * Optimizer.adam(). Defaults to plain stochastic gradient descent.
+     * The optimizer keeps state for this network's parameters, so it
+     * should not be shared with another network. learnAsynchronously
+     * always uses plain stochastic gradient descent.
+     * @param optimizer the optimizer to use.
+     */
+    public void setOptimizer(Optimizer optimizer) {
+        if (optimizer == null) {
+            throw new IllegalArgumentException("Optimizer must not be null.");
+        }
+        this.optimizer = optimizer;
+    }
+
+    /**
+     * Returns the rule used to update the weights and biases after each batch.
+     * @return the optimizer.
+     */
+    public Optimizer getOptimizer() {
+        return optimizer;
+    }
+
+    /**
+     * Sets whether the network computes its activation function with the
+     * fast approximation given by Activation.approximation, in both
+     * compute and training. SIGMOID is then within 1.2e-5 of its exact
+     * value and TANH within 2.4e-5, at about a third of the cost of
+     * Math.exp on the scalar kernels; other activation functions are
+     * unaffected. Defaults to false.
+     * @param approximate whether to use the approximation.
+     */
+    public void setApproximateActivation(boolean approximate) {
+        approximateActivation = approximate;
+    }
+
+    /**
+     * Determines whether the network computes its activation
+     * function with its fast approximation.
+     * @return whether the approximation is used.
+     */
+    public boolean isApproximateActivation() {
+        return approximateActivation;
+    }
+
+    /**
+     * Sets the loss function the network is trained to minimize, and
+     * which getAverageLoss reports. With SOFTMAX_CROSS_ENTROPY the
+     * output layer becomes a softmax, so compute returns a probability
+     * for each class, and its error during training is simply the
+     * output minus the expected output. Defaults to MEAN_SQUARED_ERROR.
+     * @param loss the loss function.
+     */
+    public void setLoss(Loss loss) {
+        if (loss == null) {
+            throw new IllegalArgumentException("Loss must not be null.");
+        }
+        this.loss = loss;
+    }
+
+    /**
+     * Returns the loss function the network is trained to minimize.
+     * @return the loss function.
+     */
+    public Loss getLoss() {
+        return loss;
+    }
+
+    /**
+     * Returns the activation function the network computes at a layer,
+     * which is its approximation if approximateActivation is set, and
+     * at the output layer is chosen by the loss function.
+     */
+    private Activation activation(int layer) {
+        Activation activation = (approximateActivation ? activationType.approximation() : activationType);
+        return (layer == weights.length - 1 ? loss.outputActivation(activation) : activation);
+    }
+
+    /**
+     * Sets the number of threads that each training batch is split
+     * across. Each thread sums the gradients of its share of the batch
+     * into its own totals, and the totals are then added together in
+     * pairs. The result matches training on one thread up to the order
+     * in which the gradients are added. Defaults to 1. Large products
+     * within each thread may still be split further; see
+     * Matrix2D.setParallelism to leave all cores to the batch. evaluate
+     * splits its datasets across the same threads.
+     * @param threads the number of threads (1 trains on the calling thread).
+     */
+    public synchronized void setThreadCount(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1, was " + threads + ".");
+        }
+        if (threads != threadCount) {
+            /**
+             * Training or evaluation on another thread may still be submitting
+             * shards to the old pool, so it is dropped rather than shut down;
+             * its idle workers end on their own.
+             */
+            trainingPool = null;
+        }
+        threadCount = threads;
+    }
+
+    /**
+     * Returns the number of threads that each training batch is split across.
+     * @return the number of training threads.
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Sums the gradients of a batch of datasets into the gradient
+     * totals of a workspace, as one stacked matrix where possible.
+     * @param datasets the datasets.
+     * @param startIndex the index of the first dataset in the batch.
+     * @param endIndex the index after the last dataset in the batch.
+     * @param workspace the workspace to train in and add to.
+     */
+    private void accumulateGradients(Dataset[] datasets, int startIndex, int endIndex, TrainingWorkspace workspace) {
+        if (canStack(datasets, startIndex, endIndex)) {
+            accumulateBatchGradients(datasets, startIndex, endIndex, workspace);
+        } else {
+            for (int index = startIndex; index < endIndex; index += 1) {
+                accumulateGradients(datasets[index].getInput(), datasets[index].getExpectedOutput(), workspace,
+                    workspace.weightGradients, workspace.biasGradients, 1.0);
+            }
+        }
+    }
+
+    /**
+     * Splits a batch of datasets into one shard per thread, sums the
+     * gradients of each shard on its own thread into the totals of its
+     * own workspace, and adds the totals together in a tree, so that
+     * the sum of the whole batch ends up in the first workspace.
+     * @param datasets the datasets.
+     * @param startIndex the index of the first dataset in the batch.
+     * @param endIndex the index after the last dataset in the batch.
+     */
+    private void accumulateParallelGradients(Dataset[] datasets, int startIndex, int endIndex) {
+        int shardCount = Math.min(threadCount, endIndex - startIndex);
+        workspace(shardCount - 1);
+        getTrainingPool().invoke(new GradientTask(datasets, startIndex, endIndex, 0, shardCount, shardCount));
+    }
+
+    /**
+     * Returns the workspace of a shard of a batch, creating it and
+     * those of the shards before it on first use.
+     * @param shard the index of the shard.
+     * @return the workspace of the shard.
+     */
+    private TrainingWorkspace workspace(int shard) {
+        if (workspaces.length <= shard) {
+            TrainingWorkspace[] grown = Arrays.copyOf(workspaces, shard + 1);
+            for (int index = workspaces.length; index <= shard; index += 1) {
+                grown[index] = new TrainingWorkspace(weights, biases);
+            }
+            workspaces = grown;
+        }
+        return workspaces[shard];
+    }
+
+    /**
+     * Returns the pool that training threads run on, creating it
+     * with getThreadCount threads on first use. Synchronized, since
+     * evaluations on several threads may ask for it at once.
+     * @return the training pool.
+     */
+    private synchronized ForkJoinPool getTrainingPool() {
+        if (trainingPool == null) {
+            trainingPool = new ForkJoinPool(threadCount);
+        }
+        return trainingPool;
+    }
+
+    /**
+     * Task that sums the gradients of a range of shards of a batch.
+     * Ranges of more than one shard are split in half, both halves run
+     * in parallel, and the totals of the upper half are then added into
+     * those of the lower half and cleared, so that the reduction forms
+     * a tree and the range's sum ends up in its first shard.
+     */
+    private final class GradientTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Dataset[] datasets;
+        private final int startIndex, endIndex;
+        private final int firstShard, lastShard, shardCount;
+
+        GradientTask(Dataset[] datasets, int startIndex, int endIndex, int firstShard, int lastShard, int shardCount) {
+            this.datasets = datasets;
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+            this.firstShard = firstShard;
+            this.lastShard = lastShard;
+            this.shardCount = shardCount;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastShard - firstShard == 1) {
+                int size = endIndex - startIndex;
+                accumulateGradients(datasets, startIndex + (int) ((long) size * firstShard / shardCount),
+                    startIndex + (int) ((long) size * lastShard / shardCount), workspaces[firstShard]);
+                return;
+            }
+
+            int middleShard = (firstShard + lastShard) / 2;
+            invokeAll(new GradientTask(datasets, startIndex, endIndex, firstShard, middleShard, shardCount),
+                new GradientTask(datasets, startIndex, endIndex, middleShard, lastShard, shardCount));
+            Matrix2D[] totals = workspaces[firstShard].gradients;
+            Matrix2D[] upperTotals = workspaces[middleShard].gradients;
+            for (int index = 0; index < totals.length; index += 1) {
+                Matrix2D.addInto(totals[index], upperTotals[index], totals[index]);
             }
+            workspaces[middleShard].clearGradients();
         }
     }
 
+    /**
+     * Determines whether a batch of datasets should be trained as one
+     * stacked matrix. Sparse inputs are kept apart, since stacking
+     * them would make them dense.
+     * @param datasets the datasets.
+     * @param startIndex the index of the first dataset in the batch.
+     * @param endIndex the index after the last dataset in the batch.
+     * @return whether to stack the batch.
+     */
+    private static boolean canStack(Dataset[] datasets, int startIndex, int endIndex) {
+        if (endIndex - startIndex < 2) {
+            return false;
+        }
+        for (int index = startIndex; index < endIndex; index += 1) {
+            if (datasets[index].getInput() instanceof SparseMatrix2D) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the matrices of two arrays in one array, in order.
+     * @param a the first matrices.
+     * @param b the matrices that follow.
+     * @return the combined array.
+     */
+    private static Matrix2D[] concatenate(Matrix2D[] a, Matrix2D[] b) {
+        Matrix2D[] combined = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, combined, a.length, b.length);
+        return combined;
+    }
+
     /**
      * Takes in a dataset and returns the gradient of the
      * cost function with respect to the weights and biases
      * based on the error of the model with the given dataset.
+     * It computes in a workspace of its own, whose zeroed gradient
+     * totals become the result, so it leaves the workspaces of learn
+     * and evaluate untouched and may run alongside them.
      * @param dataset The Dataset to compute and learn from.
      * @return the weight and bias gradients learned from the dataset.
      */
     public Tuple<Matrix2D[], Matrix2D[]> datasetGradients(Dataset dataset) {
-        Matrix2D input = dataset.getInput();
-        Matrix2D expectedOutput = dataset.getExpectedOutput();
-        
-        /** Retrieves the the set of unactivated nodes. */
-        Matrix2D[] nodeValues = getZvalues(input); 
-        
-        /** Backpropagates given the node values and expected output. */
-        return backpropagate(nodeValues, expectedOutput);
-    }
-
-    /**
-     * Given the z values and the expected output, it
-     * backpropagates until it finds the gradients of
-     * the cost function with respect to the weights
-     * and biases.
-     * @param zValues the z values of the nodes with
-     *                the given input and values.
+        TrainingWorkspace workspace = new TrainingWorkspace(weights, biases);
+        accumulateGradients(dataset.getInput(), dataset.getExpectedOutput(), workspace,
+            workspace.weightGradients, workspace.biasGradients, 1.0);
+        return new Tuple<>(workspace.weightGradients, workspace.biasGradients);
+    }
+
+    /**
+     * Takes in a batch of datasets and adds the sum of their gradients
+     * to the gradient totals of a workspace. The inputs and expected
+     * outputs are stacked side by side into one matrix each, so every
+     * layer of the forward and backward passes is a single
+     * matrix-matrix product rather than one matrix-vector product per
+     * dataset.
+     * @param datasets the datasets.
+     * @param startIndex the index of the first dataset in the batch.
+     * @param endIndex the index after the last dataset in the batch.
+     * @param workspace the workspace to train in and add to.
+     */
+    private void accumulateBatchGradients(Dataset[] datasets, int startIndex, int endIndex, TrainingWorkspace workspace) {
+        TrainingWorkspace.Batch batch = stack(datasets, startIndex, endIndex, workspace);
+        forwardPropagate(batch.inputs, batch);
+        backpropagate(batch, batch.expectedOutputs, workspace.weightGradients, workspace.biasGradients, 1.0);
+    }
+
+    /**
+     * Copies the inputs and expected outputs of a range of datasets
+     * side by side into the matrices of a batch of a workspace.
+     * @param datasets the datasets.
+     * @param startIndex the index of the first dataset to stack.
+     * @param endIndex the index after the last dataset to stack.
+     * @param workspace the workspace whose batch to fill.
+     * @return the batch, as wide as the datasets' columns together.
+     */
+    private static TrainingWorkspace.Batch stack(Dataset[] datasets, int startIndex, int endIndex, TrainingWorkspace workspace) {
+        int columnCount = 0;
+        for (int index = startIndex; index < endIndex; index += 1) {
+            columnCount += datasets[index].getInput().getColumnCount();
+        }
+
+        TrainingWorkspace.Batch batch = workspace.batch(columnCount);
+        int column = 0;
+        for (int index = startIndex; index < endIndex; index += 1) {
+            Matrix2D input = datasets[index].getInput();
+            Matrix2D expectedOutput = datasets[index].getExpectedOutput();
+            for (int width = 0; width < input.getColumnCount(); width += 1) {
+                for (int row = 0; row < input.getRowCount(); row += 1) {
+                    batch.inputs.set(row, column, input.get(row, width));
+                }
+                for (int row = 0; row < expectedOutput.getRowCount(); row += 1) {
+                    batch.expectedOutputs.set(row, column, expectedOutput.get(row, width));
+                }
+                column += 1;
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Takes in an input and its expected output and adds the
+     * gradient of the cost function with respect to the weights
+     * and biases, multiplied by a scale, to the given targets.
+     * Each column of the input is a separate input set, and their
+     * gradients are summed.
+     * @param input The input set to compute and learn from.
+     * @param expectedOutput The expected output of the input set.
+     * @param workspace the workspace to store the node values in.
+     * @param weightTargets the weight gradients (or weights) to add to.
+     * @param biasTargets the bias gradients (or biases) to add to.
+     * @param scale the factor to multiply the gradients by.
+     */
+    private void accumulateGradients(Matrix2D input, Matrix2D expectedOutput, TrainingWorkspace workspace,
+            Matrix2D[] weightTargets, Matrix2D[] biasTargets, double scale) {
+        TrainingWorkspace.Batch batch = workspace.batch(input.getColumnCount());
+        forwardPropagate(input, batch);
+        backpropagate(batch, expectedOutput, weightTargets, biasTargets, scale);
+    }
+
+    /**
+     * Given the node values of a batch and the expected
+     * output, it backpropagates until it finds the
+     * gradients of the cost function with respect to the
+     * weights and biases, and adds them, multiplied by a
+     * scale, to the given targets. The targets may be
+     * gradient totals, or the weights and biases themselves
+     * with a scale of minus the learning rate.
+     * @param batch the node values, computed by forwardPropagate.
      * @param expectedOutput the expected output of
-     *                       the dataset that created
+     *                       the input that created
      *                       the node values.
-     * @return the weight and bias gradients learned
-     *         from the dataset.
-     */
-    private Tuple<Matrix2D[], Matrix2D[]> backpropagate(Matrix2D[] zValues, Matrix2D expectedOutput) {
-        /** The output of the input with the current weights and biases. */
-        Matrix2D output = Network.activate(zValues[zValues.length - 1], activationType);
-        /** Gradient of loss with respect to the last layer. */
-        Matrix2D dCda_l = Matrix2D.subtract(output, expectedOutput);
-        
-        /**
-         * The new gradients to modify the weights and biases with
-         * based on the error of this dataset.
-         */
-        Matrix2D[] weightGradients = new Matrix2D[weights.length];
-        Matrix2D[] biasGradients = new Matrix2D[biases.length];
-        
-        /** The cost at layer l. */
-        Matrix2D delta_l = new Matrix2D();
-
+     * @param weightTargets the weight gradients (or weights) to add to.
+     * @param biasTargets the bias gradients (or biases) to add to.
+     * @param scale the factor to multiply the gradients by.
+     */
+    private void backpropagate(TrainingWorkspace.Batch batch, Matrix2D expectedOutput, Matrix2D[] weightTargets, Matrix2D[] biasTargets,
+            double scale) {
+        Matrix2D[] deltas = batch.deltas;
         for (int layer = weights.length - 1; layer >= 0; layer -= 1) {
-            /** Unactivated node values (z) at layer l. */
-            Matrix2D z_l = zValues[layer + 1];
-            /** Unactivated node values (z) at layer l-1. */
-            Matrix2D z_lminusOne = zValues[layer];
-            /** Activated node values (a) at layer l-1. */
-            Matrix2D a_lminusOne = Network.activate(z_lminusOne, activationType);
-            /** The derivative of the activation function at layer l. */
-            Matrix2D sigma_lprime = Network.activateDerivative(z_l, activationType);
-            
-            /** Recalculates the cost at the current layer. */
+            /**
+             * Recalculates the cost at the current layer, starting from the gradient of loss with respect to the output.
+             * With softmax and cross-entropy, that gradient with respect to the output z values is the output minus the
+             * expected output, found in one pass with no derivative.
+             */
             if (layer == weights.length - 1) {
-                delta_l = Matrix2D.hadamardMultiply(dCda_l, sigma_lprime);
+                Matrix2D.subtractInto(batch.activations[layer + 1], expectedOutput, deltas[layer]);
+                if (loss == Loss.SOFTMAX_CROSS_ENTROPY) {
+                    continue;
+                }
             } else {
-                delta_l = Matrix2D.hadamardMultiply(Matrix2D.multiply(Matrix2D.transpose(weights[layer + 1]), delta_l), sigma_lprime);
+                Matrix2D.transposeMultiplyInto(weights[layer + 1], deltas[layer + 1], deltas[layer]);
+            }
+
+            /** The derivative of the activation function at layer l, found from the activations kept by the forward pass. */
+            Matrix2D sigma_lprime = Network.activateDerivativeInto(batch.zValues[layer + 1], batch.activations[layer + 1], activation(layer),
+                batch.derivatives[layer]);
+            Matrix2D.hadamardMultiplyInto(deltas[layer], sigma_lprime, deltas[layer]);
+        }
+
+        /**
+         * Adds the gradients only once every cost is known, so that
+         * targets which are the weights themselves do not change the
+         * weights the costs were found with.
+         */
+        for (int layer = weights.length - 1; layer >= 0; layer -= 1) {
+            Matrix2D delta_l = deltas[layer];
+            if (scale != 1.0) {
+                Matrix2D.multiplyInto(delta_l, scale, delta_l);
             }
 
             /**
              * Adjusts the weight and bias gradients based on the error
-             * at the current layer.
+             * at the current layer. With a sparse input, only the columns
+             * of the first layer's gradient at its nonzero entries change.
+             * The bias gradients of stacked input sets are summed as a
+             * product with a column of ones.
              */
-            weightGradients[layer] = Matrix2D.multiply(delta_l, Matrix2D.transpose(a_lminusOne));
-            biasGradients[layer] = new Matrix2D(delta_l);
+            Matrix2D.multiplyTransposeAddInto(delta_l, batch.activations[layer], weightTargets[layer]);
+            if (batch.ones == null) {
+                Matrix2D.addInto(biasTargets[layer], delta_l, biasTargets[layer]);
+            } else {
+                Matrix2D.multiplyAddInto(delta_l, batch.ones, biasTargets[layer]);
+            }
         }
-
-        /** Returns the gradients of the weights and biases. */
-        return new Tuple<>(weightGradients, biasGradients);
     }
 
     /**
@@ -0,0 +1,150 @@
+package Neuranet.NeuralNetwork;
+
+import java.util.ArrayList;
+
+import Neuranet.Matrix2D;
+
+/**
+ * Class that holds every matrix one thread needs to train a
+ * NeuralNetwork: the gradient totals, and for each batch width the
+ * stacked inputs and expected outputs, the z values, activations,
+ * activation derivatives and deltas of every layer. It is sized once
+ * from the network's weights and reused across batches and epochs,
+ * so that the training loop allocates nothing once every batch width
+ * has been seen. A workspace for forward passes alone, as used by
+ * evaluation, holds no gradient totals, derivatives or deltas.
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+final class TrainingWorkspace {
+    /** The number of batch widths whose matrices are kept at once. */
+    private static final int MAX_BATCH_WIDTHS = 4;
+
+    /**
+     * Class that holds the matrices of one batch width.
+     */
+    static final class Batch {
+        /** The number of input sets (columns) in the batch. */
+        final int columnCount;
+        /** The stacked inputs of the batch. */
+        final Matrix2D inputs;
+        /** The stacked expected outputs of the batch. */
+        final Matrix2D expectedOutputs;
+        /** A column of ones that sums or broadcasts across the batch, or null for one column. */
+        final Matrix2D ones;
+        /** The z values at each layer; index 0 is the input. */
+        final Matrix2D[] zValues;
+        /** The activated node values at each layer; index 0 is the input. */
+        final Matrix2D[] activations;
+        /** The derivative of the activation function at each layer after the input. */
+        final Matrix2D[] derivatives;
+        /** The gradient of the cost with respect to z at each layer after the input. */
+        final Matrix2D[] deltas;
+
+        /**
+         * Allocates the matrices of a batch of the given width.
+         * @param nodeCounts the numbers of nodes per layer.
+         * @param columnCount the number of input sets in the batch.
+         * @param forwardOnly whether to leave out the derivatives and deltas.
+         */
+        Batch(int[] nodeCounts, int columnCount, boolean forwardOnly) {
+            int layers = nodeCounts.length - 1;
+            this.columnCount = columnCount;
+            inputs = new Matrix2D(nodeCounts[0], columnCount);
+            expectedOutputs = new Matrix2D(nodeCounts[layers], columnCount);
+            ones = (columnCount == 1 ? null : Matrix2D.fill(new Matrix2D(columnCount, 1), 1.0));
+            zValues = new Matrix2D[layers + 1];
+            activations = new Matrix2D[layers + 1];
+            derivatives = new Matrix2D[forwardOnly ? 0 : layers];
+            deltas = new Matrix2D[forwardOnly ? 0 : layers];
+            for (int layer = 0; layer < layers; layer += 1) {
+                zValues[layer + 1] = new Matrix2D(nodeCounts[layer + 1], columnCount);
+                activations[layer + 1] = new Matrix2D(nodeCounts[layer + 1], columnCount);
+                if (!forwardOnly) {
+                    derivatives[layer] = new Matrix2D(nodeCounts[layer + 1], columnCount);
+                    deltas[layer] = new Matrix2D(nodeCounts[layer + 1], columnCount);
+                }
+            }
+        }
+    }
+
+    /** The numbers of nodes per layer of the network. */
+    private final int[] nodeCounts;
+    /** Whether the workspace only serves forward passes. */
+    private final boolean forwardOnly;
+    /** The weight gradient totals. */
+    final Matrix2D[] weightGradients;
+    /** The bias gradient totals. */
+    final Matrix2D[] biasGradients;
+    /** The weight gradient totals followed by the bias gradient totals. */
+    final Matrix2D[] gradients;
+    /** The matrices of each batch width seen, most recently created last. */
+    private final ArrayList<Batch> batches = new ArrayList<>();
+
+    /**
+     * Creates a workspace for a network with the given weights and biases.
+     * @param weights the weights of the network.
+     * @param biases the biases of the network.
+     */
+    TrainingWorkspace(Matrix2D[] weights, Matrix2D[] biases) {
+        forwardOnly = false;
+        nodeCounts = new int[weights.length + 1];
+        weightGradients = new Matrix2D[weights.length];
+        biasGradients = new Matrix2D[biases.length];
+        gradients = new Matrix2D[weights.length + biases.length];
+        nodeCounts[0] = (weights.length == 0 ? 0 : weights[0].getColumnCount());
+        for (int layer = 0; layer < weights.length; layer += 1) {
+            nodeCounts[layer + 1] = weights[layer].getRowCount();
+            weightGradients[layer] = new Matrix2D(weights[layer].getRowCount(), weights[layer].getColumnCount());
+            biasGradients[layer] = new Matrix2D(biases[layer].getRowCount(), biases[layer].getColumnCount());
+            gradients[layer] = weightGradients[layer];
+            gradients[weights.length + layer] = biasGradients[layer];
+        }
+    }
+
+    /**
+     * Creates a workspace for forward passes alone through a network
+     * with the given weights, with no gradient totals.
+     * @param weights the weights of the network.
+     */
+    TrainingWorkspace(Matrix2D[] weights) {
+        forwardOnly = true;
+        nodeCounts = new int[weights.length + 1];
+        weightGradients = new Matrix2D[0];
+        biasGradients = new Matrix2D[0];
+        gradients = new Matrix2D[0];
+        nodeCounts[0] = (weights.length == 0 ? 0 : weights[0].getColumnCount());
+        for (int layer = 0; layer < weights.length; layer += 1) {
+            nodeCounts[layer + 1] = weights[layer].getRowCount();
+        }
+    }
+
+    /**
+     * Returns the matrices for a batch of the given width, creating
+     * them on first use. Only the most recent few widths are kept.
+     * @param columnCount the number of input sets in the batch.
+     * @return the matrices of the batch.
+     */
+    Batch batch(int columnCount) {
+        for (int index = batches.size() - 1; index >= 0; index -= 1) {
+            if (batches.get(index).columnCount == columnCount) {
+                return batches.get(index);
+            }
+        }
+        if (batches.size() == MAX_BATCH_WIDTHS) {
+            batches.remove(0);
+        }
+        Batch batch = new Batch(nodeCounts, columnCount, forwardOnly);
+        batches.add(batch);
+        return batch;
+    }
+
+    /**
+     * Fills every gradient total with zeros.
+     */
+    void clearGradients() {
+        for (int index = 0; index < gradients.length; index += 1) {
+            Matrix2D.fill(gradients[index], 0.0);
+        }
+    }
+}
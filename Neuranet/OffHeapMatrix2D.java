@@ -0,0 +1,136 @@
+package Neuranet;
+
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+import Neuranet.RuntimeExceptions.InvalidMatrixIndex;
+
+/**
+ * Class that represents a 2D matrix whose entries are stored
+ * outside the Java heap, in native memory allocated through the
+ * Foreign Memory API. Its memory is not scanned or moved by the
+ * garbage collector and is freed as soon as its scope is closed,
+ * either by closing the matrix or by closing a scope shared by
+ * several matrices.
+ *
+ * Off-heap matrices can be passed to any static Matrix2D
+ * operation; operations read and write their entries in place,
+ * so no heap copy of them is made.
+ *
+ * Requires the incubating jdk.incubator.foreign module
+ * (--add-modules jdk.incubator.foreign on JDK 17).
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+public class OffHeapMatrix2D extends Matrix2D implements AutoCloseable {
+    /** The native memory holding the values, in row-major order. */
+    private final MemorySegment segment;
+    /** The scope that owns the native memory. */
+    private final ResourceScope scope;
+    /** Whether the scope was created for this matrix alone. */
+    private final boolean ownsScope;
+
+    /**
+     * Creates an off-heap matrix with the specified dimensions and its
+     * own scope, which is freed when the matrix is closed. Default values: 0.0.
+     * @param rows The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     */
+    public OffHeapMatrix2D(int rows, int columns) {
+        this(rows, columns, ResourceScope.newSharedScope(), true);
+    }
+
+    /**
+     * Creates an off-heap matrix with the specified dimensions in an
+     * existing scope. The memory is freed when that scope is closed,
+     * along with every other matrix allocated in it. Default values: 0.0.
+     * @param rows The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     * @param scope The scope to allocate the matrix in.
+     */
+    public OffHeapMatrix2D(int rows, int columns, ResourceScope scope) {
+        this(rows, columns, scope, false);
+    }
+
+    /**
+     * Creates an off-heap copy of another matrix with its own scope.
+     * @param matrix The matrix to copy.
+     */
+    public OffHeapMatrix2D(Matrix2D matrix) {
+        this(matrix.getRowCount(), matrix.getColumnCount());
+        Matrix2D.copyInto(matrix, this);
+    }
+
+    /**
+     * Creates an off-heap copy of another matrix in an existing scope.
+     * @param matrix The matrix to copy.
+     * @param scope The scope to allocate the matrix in.
+     */
+    public OffHeapMatrix2D(Matrix2D matrix, ResourceScope scope) {
+        this(matrix.getRowCount(), matrix.getColumnCount(), scope);
+        Matrix2D.copyInto(matrix, this);
+    }
+
+    /**
+     * Allocates the native memory of the matrix.
+     * @param rows The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     * @param scope The scope to allocate the matrix in.
+     * @param ownsScope Whether closing the matrix closes the scope.
+     */
+    private OffHeapMatrix2D(int rows, int columns, ResourceScope scope, boolean ownsScope) {
+        super(null, rows, columns, columns, 1);
+        this.segment = MemorySegment.allocateNative((long) rows * columns * Double.BYTES, Double.BYTES, scope);
+        this.scope = scope;
+        this.ownsScope = ownsScope;
+    }
+
+    /**
+     * Gets a value at a specified index. Indices should be valid.
+     * @param row The row the value is in.
+     * @param column The column the value is in.
+     * @return The value of the specified index.
+     */
+    @Override
+    public double get(int row, int column) {
+        return MemoryAccess.getDoubleAtIndex(segment, (long) row * getColumnCount() + column);
+    }
+
+    /**
+     * Sets a value at a specified index. Indices should be valid.
+     * @param row The row of the value to modify.
+     * @param column The column of the value to modify.
+     * @param value The value to set the specified index to.
+     * @throws InvalidMatrixIndex if the index is invalid
+     */
+    @Override
+    public void set(int row, int column, double value) throws InvalidMatrixIndex {
+        if (row > getRowCount() - 1 || column > getColumnCount() - 1) {
+            throw new InvalidMatrixIndex(this, row, column);
+        }
+        MemoryAccess.setDoubleAtIndex(segment, (long) row * getColumnCount() + column, value);
+    }
+
+    /**
+     * Returns whether the native memory of the matrix is still allocated.
+     * @return whether the matrix can still be read and written.
+     */
+    public boolean isAlive() {
+        return scope.isAlive();
+    }
+
+    /**
+     * Frees the native memory of the matrix if the matrix owns its scope.
+     * Matrices allocated in a shared scope are freed by closing that scope.
+     * @throws IllegalStateException if the matrix was allocated in a
+     *      scope it does not own.
+     */
+    @Override
+    public void close() {
+        if (!ownsScope) {
+            throw new IllegalStateException("Off-heap matrix belongs to a shared scope; close the scope instead.");
+        }
+        scope.close();
+    }
+}
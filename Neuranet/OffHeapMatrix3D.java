@@ -0,0 +1,189 @@
+package Neuranet;
+
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+import Neuranet.RuntimeExceptions.InvalidMatrixIndex;
+
+/**
+ * Class that represents a 3D matrix whose entries are stored
+ * outside the Java heap, in native memory allocated through the
+ * Foreign Memory API. Its memory is not scanned or moved by the
+ * garbage collector and is freed as soon as its scope is closed,
+ * either by closing the matrix or by closing a scope shared by
+ * several matrices. Off-heap matrices can be passed to any static
+ * Matrix3D operation.
+ *
+ * Requires the incubating jdk.incubator.foreign module
+ * (--add-modules jdk.incubator.foreign on JDK 17).
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+public class OffHeapMatrix3D extends Matrix3D implements AutoCloseable {
+    /** The native memory holding the values, indexed by (row, column, layer). */
+    private final MemorySegment segment;
+    /** The scope that owns the native memory. */
+    private final ResourceScope scope;
+    /** Whether the scope was created for this matrix alone. */
+    private final boolean ownsScope;
+    /** The number of rows in the matrix. */
+    private final int rowCount;
+    /** The number of columns in the matrix. */
+    private final int columnCount;
+    /** The number of layers in the matrix. */
+    private final int layerCount;
+
+    /**
+     * Creates an off-heap matrix with the specified dimensions and its
+     * own scope, which is freed when the matrix is closed. Default values: 0.0.
+     * @param rows The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     * @param layers The number of layers of the matrix.
+     */
+    public OffHeapMatrix3D(int rows, int columns, int layers) {
+        this(rows, columns, layers, ResourceScope.newSharedScope(), true);
+    }
+
+    /**
+     * Creates an off-heap matrix with the specified dimensions in an
+     * existing scope. The memory is freed when that scope is closed,
+     * along with every other matrix allocated in it. Default values: 0.0.
+     * @param rows The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     * @param layers The number of layers of the matrix.
+     * @param scope The scope to allocate the matrix in.
+     */
+    public OffHeapMatrix3D(int rows, int columns, int layers, ResourceScope scope) {
+        this(rows, columns, layers, scope, false);
+    }
+
+    /**
+     * Creates an off-heap copy of another matrix with its own scope.
+     * @param matrix The matrix to copy.
+     */
+    public OffHeapMatrix3D(Matrix3D matrix) {
+        this(matrix.getRowCount(), matrix.getColumnCount(), matrix.getLayerCount());
+        copyFrom(matrix);
+    }
+
+    /**
+     * Creates an off-heap copy of another matrix in an existing scope.
+     * @param matrix The matrix to copy.
+     * @param scope The scope to allocate the matrix in.
+     */
+    public OffHeapMatrix3D(Matrix3D matrix, ResourceScope scope) {
+        this(matrix.getRowCount(), matrix.getColumnCount(), matrix.getLayerCount(), scope);
+        copyFrom(matrix);
+    }
+
+    /**
+     * Allocates the native memory of the matrix.
+     */
+    private OffHeapMatrix3D(int rows, int columns, int layers, ResourceScope scope, boolean ownsScope) {
+        super(null, rows, columns, layers, MatrixLayout.CHANNEL_LAST);
+        this.rowCount = rows;
+        this.columnCount = columns;
+        this.layerCount = layers;
+        this.segment = MemorySegment.allocateNative((long) rows * columns * layers * Double.BYTES, Double.BYTES, scope);
+        this.scope = scope;
+        this.ownsScope = ownsScope;
+    }
+
+    /**
+     * Copies the values of another matrix of the same dimensions.
+     */
+    private void copyFrom(Matrix3D matrix) {
+        for (int row = 0; row < rowCount; row += 1) {
+            for (int col = 0; col < columnCount; col += 1) {
+                for (int lay = 0; lay < layerCount; lay += 1) {
+                    set(row, col, lay, matrix.get(row, col, lay));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the position of an entry in the native memory.
+     */
+    private long index(int row, int column, int layer) {
+        return ((long) row * columnCount + column) * layerCount + layer;
+    }
+
+    /**
+     * Gets a value at a specified index. Indices should be valid.
+     * @param row The row the value is in.
+     * @param column The column the value is in.
+     * @param layer The layer the value is in.
+     * @return The value of the specified index.
+     */
+    @Override
+    public double get(int row, int column, int layer) {
+        return MemoryAccess.getDoubleAtIndex(segment, index(row, column, layer));
+    }
+
+    /**
+     * Sets a value at a specified index. Indices should be valid.
+     * @param row The row of the value to modify.
+     * @param column The column of the value to modify.
+     * @param layer The layer of the value to modify.
+     * @param value The value to set the specified index to.
+     * @throws InvalidMatrixIndex if the index is invalid
+     */
+    @Override
+    public void set(int row, int column, int layer, double value) throws InvalidMatrixIndex {
+        if (row > rowCount - 1 || column > columnCount - 1 || layer > layerCount - 1) {
+            throw new InvalidMatrixIndex(this, row, column, layer);
+        }
+        MemoryAccess.setDoubleAtIndex(segment, index(row, column, layer), value);
+    }
+
+    /**
+     * Returns the number of rows in the matrix.
+     * @return the number of rows in the matrix.
+     */
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the number of columns in the matrix.
+     * @return the number of columns in the matrix.
+     */
+    @Override
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Returns the number of layers in the matrix.
+     * @return the number of layers in the matrix.
+     */
+    @Override
+    public int getLayerCount() {
+        return layerCount;
+    }
+
+    /**
+     * Returns whether the native memory of the matrix is still allocated.
+     * @return whether the matrix can still be read and written.
+     */
+    public boolean isAlive() {
+        return scope.isAlive();
+    }
+
+    /**
+     * Frees the native memory of the matrix if the matrix owns its scope.
+     * Matrices allocated in a shared scope are freed by closing that scope.
+     * @throws IllegalStateException if the matrix was allocated in a
+     *      scope it does not own.
+     */
+    @Override
+    public void close() {
+        if (!ownsScope) {
+            throw new IllegalStateException("Off-heap matrix belongs to a shared scope; close the scope instead.");
+        }
+        scope.close();
+    }
+}
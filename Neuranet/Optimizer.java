@@ -0,0 +1,305 @@
+package Neuranet;
+
+import Neuranet.RuntimeExceptions.InvalidMatrixOperation;
+
+/**
+ * Class that represents the rule a network uses to update its
+ * parameters from their gradients after each batch.
+ *
+ * Optimizers with memory (momentum, RMSProp and Adam) keep one or two
+ * buffers per parameter matrix. The buffers are allocated on the first
+ * step and then updated in place, together with the parameters, in a
+ * single pass over each matrix, so a step allocates nothing.
+ *
+ * An optimizer holds the state of one set of parameters and should
+ * not be shared between networks; reset clears it.
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+public abstract class Optimizer {
+    /** The number of state buffers kept per parameter matrix. */
+    private final int bufferCount;
+    /** The state buffers of each parameter matrix, allocated on the first step. */
+    private double[][][] state = new double[0][][];
+    /** The number of steps taken since the optimizer was created or reset. */
+    private long stepCount;
+
+    /**
+     * Creates an optimizer that keeps the given number of
+     * state buffers per parameter matrix.
+     * @param bufferCount the number of state buffers.
+     */
+    private Optimizer(int bufferCount) {
+        this.bufferCount = bufferCount;
+    }
+
+    /**
+     * Returns plain stochastic gradient descent, which subtracts the
+     * gradient times the learning rate and keeps no state.
+     * @return the optimizer.
+     */
+    public static Optimizer sgd() {
+        return new SGD();
+    }
+
+    /**
+     * Returns stochastic gradient descent with momentum 0.9.
+     * @return the optimizer.
+     */
+    public static Optimizer momentum() {
+        return momentum(0.9);
+    }
+
+    /**
+     * Returns stochastic gradient descent with momentum, which steps
+     * along a running sum of the gradients, each step's sum decayed
+     * by the momentum (v = momentum * v + g, p -= learningRate * v).
+     * @param momentum the fraction of the previous velocity kept, in [0, 1).
+     * @return the optimizer.
+     */
+    public static Optimizer momentum(double momentum) {
+        checkDecay(momentum, "Momentum");
+        return new Momentum(momentum);
+    }
+
+    /**
+     * Returns RMSProp with a decay of 0.9 and an epsilon of 1e-8.
+     * @return the optimizer.
+     */
+    public static Optimizer rmsProp() {
+        return rmsProp(0.9, 1e-8);
+    }
+
+    /**
+     * Returns RMSProp, which divides each gradient by a running root
+     * mean square of that parameter's gradients
+     * (s = decay * s + (1 - decay) * g^2, p -= learningRate * g / (sqrt(s) + epsilon)).
+     * @param decay the fraction of the previous mean square kept, in [0, 1).
+     * @param epsilon the term that keeps the division finite.
+     * @return the optimizer.
+     */
+    public static Optimizer rmsProp(double decay, double epsilon) {
+        checkDecay(decay, "Decay");
+        return new RMSProp(decay, epsilon);
+    }
+
+    /**
+     * Returns Adam with betas of 0.9 and 0.999 and an epsilon of 1e-8.
+     * @return the optimizer.
+     */
+    public static Optimizer adam() {
+        return adam(0.9, 0.999, 1e-8);
+    }
+
+    /**
+     * Returns Adam, which steps along a running mean of the gradients
+     * divided by a running root mean square of them, both corrected
+     * for starting at zero.
+     * @param beta1 the fraction of the previous mean kept, in [0, 1).
+     * @param beta2 the fraction of the previous mean square kept, in [0, 1).
+     * @param epsilon the term that keeps the division finite.
+     * @return the optimizer.
+     */
+    public static Optimizer adam(double beta1, double beta2, double epsilon) {
+        checkDecay(beta1, "Beta1");
+        checkDecay(beta2, "Beta2");
+        return new Adam(beta1, beta2, epsilon);
+    }
+
+    /**
+     * Updates every parameter matrix from its gradient. Each gradient
+     * is multiplied by gradientScale before it is used, so that summed
+     * gradients can be passed with 1 / batchSize to average them.
+     * @param parameters the parameter matrices to update in place.
+     * @param gradients the gradient of each parameter matrix.
+     * @param gradientScale the factor to multiply the gradients by.
+     * @param learningRate the size of the step.
+     */
+    public void step(Matrix2D[] parameters, Matrix2D[] gradients, double gradientScale, double learningRate) throws InvalidMatrixOperation {
+        if (parameters.length != gradients.length) {
+            throw new IllegalArgumentException("Expected " + parameters.length + " gradients, was " + gradients.length + ".");
+        }
+        if (state.length != parameters.length) {
+            state = new double[parameters.length][][];
+        }
+        stepCount += 1;
+        for (int index = 0; index < parameters.length; index += 1) {
+            Matrix2D parameter = parameters[index];
+            Matrix2D gradient = gradients[index];
+            if (parameter.getRowCount() != gradient.getRowCount() || parameter.getColumnCount() != gradient.getColumnCount()) {
+                throw new InvalidMatrixOperation(parameter, gradient, "an optimizer step");
+            }
+            int length = parameter.getRowCount() * parameter.getColumnCount();
+            if (state[index] == null || (bufferCount > 0 && state[index][0].length != length)) {
+                state[index] = new double[bufferCount][length];
+            }
+
+            /** Views and off-heap matrices are updated through heap copies. */
+            Matrix2D heapParameter = (parameter.isContiguous() ? parameter : new Matrix2D(parameter));
+            Matrix2D heapGradient = (gradient.isContiguous() ? gradient : new Matrix2D(gradient));
+            update(heapParameter.getArray(), heapParameter.getArrayOffset(), heapGradient.getArray(), heapGradient.getArrayOffset(),
+                gradientScale, learningRate, state[index], length);
+            if (heapParameter != parameter) {
+                Matrix2D.copyInto(heapParameter, parameter);
+            }
+        }
+    }
+
+    /**
+     * Clears the state buffers and the step count, as if
+     * the optimizer had just been created.
+     */
+    public void reset() {
+        state = new double[0][][];
+        stepCount = 0;
+    }
+
+    /**
+     * Returns the number of steps taken since the
+     * optimizer was created or reset.
+     * @return the step count.
+     */
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * Updates a run of parameters and their state buffers in one pass.
+     * @param p the array of the parameters.
+     * @param pOffset the position of the first parameter.
+     * @param g the array of the gradients.
+     * @param gOffset the position of the first gradient.
+     * @param gradientScale the factor to multiply the gradients by.
+     * @param learningRate the size of the step.
+     * @param buffers the state buffers of the parameters, starting at 0.
+     * @param length the number of parameters.
+     */
+    abstract void update(double[] p, int pOffset, double[] g, int gOffset, double gradientScale, double learningRate,
+        double[][] buffers, int length);
+
+    /**
+     * Ensures a decay rate is in [0, 1).
+     * @throws IllegalArgumentException if it is not.
+     */
+    private static void checkDecay(double decay, String name) {
+        if (!(decay >= 0.0 && decay < 1.0)) {
+            throw new IllegalArgumentException(name + " must be in [0, 1), was " + decay + ".");
+        }
+    }
+
+    /**
+     * Plain stochastic gradient descent.
+     */
+    private static final class SGD extends Optimizer {
+        SGD() {
+            super(0);
+        }
+
+        @Override
+        void update(double[] p, int pOffset, double[] g, int gOffset, double gradientScale, double learningRate, double[][] buffers, int length) {
+            ElementwiseKernels.INSTANCE.scaledAdd(p, pOffset, -learningRate * gradientScale, g, gOffset, p, pOffset, length);
+        }
+
+        @Override
+        public String toString() {
+            return "SGD";
+        }
+    }
+
+    /**
+     * Stochastic gradient descent with momentum; the buffer is the velocity.
+     */
+    private static final class Momentum extends Optimizer {
+        private final double momentum;
+
+        Momentum(double momentum) {
+            super(1);
+            this.momentum = momentum;
+        }
+
+        @Override
+        void update(double[] p, int pOffset, double[] g, int gOffset, double gradientScale, double learningRate, double[][] buffers, int length) {
+            double[] velocity = buffers[0];
+            for (int i = 0; i < length; i += 1) {
+                double v = momentum * velocity[i] + gradientScale * g[gOffset + i];
+                velocity[i] = v;
+                p[pOffset + i] -= learningRate * v;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Momentum(" + momentum + ")";
+        }
+    }
+
+    /**
+     * RMSProp; the buffer is the running mean square of the gradients.
+     */
+    private static final class RMSProp extends Optimizer {
+        private final double decay;
+        private final double epsilon;
+
+        RMSProp(double decay, double epsilon) {
+            super(1);
+            this.decay = decay;
+            this.epsilon = epsilon;
+        }
+
+        @Override
+        void update(double[] p, int pOffset, double[] g, int gOffset, double gradientScale, double learningRate, double[][] buffers, int length) {
+            double[] meanSquare = buffers[0];
+            for (int i = 0; i < length; i += 1) {
+                double gradient = gradientScale * g[gOffset + i];
+                double s = decay * meanSquare[i] + (1.0 - decay) * gradient * gradient;
+                meanSquare[i] = s;
+                p[pOffset + i] -= learningRate * gradient / (Math.sqrt(s) + epsilon);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "RMSProp(" + decay + ", " + epsilon + ")";
+        }
+    }
+
+    /**
+     * Adam; the buffers are the running mean and mean square of the gradients.
+     */
+    private static final class Adam extends Optimizer {
+        private final double beta1;
+        private final double beta2;
+        private final double epsilon;
+
+        Adam(double beta1, double beta2, double epsilon) {
+            super(2);
+            this.beta1 = beta1;
+            this.beta2 = beta2;
+            this.epsilon = epsilon;
+        }
+
+        @Override
+        void update(double[] p, int pOffset, double[] g, int gOffset, double gradientScale, double learningRate, double[][] buffers, int length) {
+            double[] mean = buffers[0];
+            double[] meanSquare = buffers[1];
+            /** The bias corrections are folded into the step size and epsilon once per step. */
+            double correction1 = 1.0 - Math.pow(beta1, getStepCount());
+            double correction2 = Math.sqrt(1.0 - Math.pow(beta2, getStepCount()));
+            double stepSize = learningRate * correction2 / correction1;
+            double correctedEpsilon = epsilon * correction2;
+            for (int i = 0; i < length; i += 1) {
+                double gradient = gradientScale * g[gOffset + i];
+                double m = beta1 * mean[i] + (1.0 - beta1) * gradient;
+                double v = beta2 * meanSquare[i] + (1.0 - beta2) * gradient * gradient;
+                mean[i] = m;
+                meanSquare[i] = v;
+                p[pOffset + i] -= stepSize * m / (Math.sqrt(v) + correctedEpsilon);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Adam(" + beta1 + ", " + beta2 + ", " + epsilon + ")";
+        }
+    }
+}
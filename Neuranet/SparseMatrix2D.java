@@ -0,0 +1,307 @@
+package Neuranet;
+
+import java.util.Arrays;
+
+import Neuranet.RuntimeExceptions.InvalidMatrixArrayValue;
+import Neuranet.RuntimeExceptions.InvalidMatrixIndex;
+
+/**
+ * Class that represents a 2D matrix stored in compressed sparse
+ * row (CSR) form: only the nonzero entries are kept, row by row,
+ * along with their column indices. Memory use and the cost of
+ * multiplication grow with the number of nonzero entries rather
+ * than with rows * columns, which suits inputs such as one-hot or
+ * bag-of-words vectors.
+ *
+ * Sparse matrices can be passed to any static Matrix2D operation.
+ * Matrix products (multiply, transposeMultiply, multiplyTranspose
+ * and their Into forms, and addOuterProduct) visit only the nonzero
+ * entries; other operations work on dense copies.
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+public class SparseMatrix2D extends Matrix2D {
+    /**
+     * rowPointers[row] is the position in columnIndices and entries of
+     * the first nonzero entry of the row; rowPointers[rowCount] is the
+     * number of nonzero entries.
+     */
+    private int[] rowPointers;
+    /** The column of each nonzero entry, increasing within each row. */
+    private int[] columnIndices;
+    /** The value of each nonzero entry. */
+    private double[] entries;
+
+    /**
+     * Creates a sparse matrix with the specified dimensions
+     * and no nonzero entries.
+     * @param rows The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     */
+    public SparseMatrix2D(int rows, int columns) {
+        this(rows, columns, new int[rows + 1], new int[0], new double[0]);
+    }
+
+    /**
+     * Creates a sparse copy of another matrix, keeping only
+     * its nonzero entries.
+     * @param matrix The matrix to copy.
+     */
+    public SparseMatrix2D(Matrix2D matrix) {
+        super(null, matrix.getRowCount(), matrix.getColumnCount(), matrix.getColumnCount(), 1);
+        if (matrix instanceof SparseMatrix2D) {
+            SparseMatrix2D sparse = (SparseMatrix2D) matrix;
+            int nonZeroCount = sparse.getNonZeroCount();
+            rowPointers = sparse.rowPointers.clone();
+            columnIndices = Arrays.copyOf(sparse.columnIndices, nonZeroCount);
+            entries = Arrays.copyOf(sparse.entries, nonZeroCount);
+            return;
+        }
+        int rowCount = matrix.getRowCount();
+        int columnCount = matrix.getColumnCount();
+        int nonZeroCount = 0;
+        for (int row = 0; row < rowCount; row += 1) {
+            for (int col = 0; col < columnCount; col += 1) {
+                if (matrix.get(row, col) != 0.0) {
+                    nonZeroCount += 1;
+                }
+            }
+        }
+        rowPointers = new int[rowCount + 1];
+        columnIndices = new int[nonZeroCount];
+        entries = new double[nonZeroCount];
+        int position = 0;
+        for (int row = 0; row < rowCount; row += 1) {
+            rowPointers[row] = position;
+            for (int col = 0; col < columnCount; col += 1) {
+                double value = matrix.get(row, col);
+                if (value != 0.0) {
+                    columnIndices[position] = col;
+                    entries[position] = value;
+                    position += 1;
+                }
+            }
+        }
+        rowPointers[rowCount] = position;
+    }
+
+    /**
+     * Creates a sparse matrix from arrays already in CSR form.
+     * The arrays are used directly, not copied.
+     * @param rows The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     * @param rowPointers The position of the first entry of each row,
+     *                    followed by the number of entries (length rows + 1).
+     * @param columnIndices The column of each entry, increasing within each row.
+     * @param entries The value of each entry.
+     * @throws InvalidMatrixArrayValue if the arrays do not describe
+     *                                 a rows x columns matrix.
+     */
+    public SparseMatrix2D(int rows, int columns, int[] rowPointers, int[] columnIndices, double[] entries) throws InvalidMatrixArrayValue {
+        super(null, rows, columns, columns, 1);
+        if (rowPointers.length != rows + 1 || rowPointers[0] != 0) {
+            throw new InvalidMatrixArrayValue(rows + 1, rowPointers.length, "row pointers");
+        } else if (columnIndices.length < rowPointers[rows] || entries.length < rowPointers[rows]) {
+            throw new InvalidMatrixArrayValue(rowPointers[rows], Math.min(columnIndices.length, entries.length), "entries");
+        }
+        for (int row = 0; row < rows; row += 1) {
+            if (rowPointers[row + 1] < rowPointers[row]) {
+                throw new InvalidMatrixIndex(this, row, rowPointers[row + 1]);
+            }
+            for (int position = rowPointers[row]; position < rowPointers[row + 1]; position += 1) {
+                if (columnIndices[position] < 0 || columnIndices[position] >= columns
+                        || (position > rowPointers[row] && columnIndices[position] <= columnIndices[position - 1])) {
+                    throw new InvalidMatrixIndex(this, row, columnIndices[position]);
+                }
+            }
+        }
+        this.rowPointers = rowPointers;
+        this.columnIndices = columnIndices;
+        this.entries = entries;
+    }
+
+    /**
+     * Returns the number of stored (nonzero) entries.
+     * @return the number of nonzero entries.
+     */
+    public int getNonZeroCount() {
+        return rowPointers[getRowCount()];
+    }
+
+    /**
+     * Returns the fraction of entries that are stored.
+     * @return the number of nonzero entries divided by rows * columns.
+     */
+    public double getDensity() {
+        long size = (long) getRowCount() * getColumnCount();
+        return (size == 0 ? 0.0 : (double) getNonZeroCount() / size);
+    }
+
+    /**
+     * Returns the position of an entry in columnIndices and entries,
+     * or -(insertion point) - 1 if the entry is not stored.
+     * @param row The row of the entry.
+     * @param column The column of the entry.
+     * @return the position of the entry.
+     */
+    private int position(int row, int column) {
+        return Arrays.binarySearch(columnIndices, rowPointers[row], rowPointers[row + 1], column);
+    }
+
+    /**
+     * Gets a value at a specified index. Indices should be valid.
+     * @param row The row the value is in.
+     * @param column The column the value is in.
+     * @return The value of the specified index.
+     */
+    @Override
+    public double get(int row, int column) {
+        int position = position(row, column);
+        return (position >= 0 ? entries[position] : 0.0);
+    }
+
+    /**
+     * Sets a value at a specified index. Indices should be valid.
+     * Setting an entry that is not yet stored shifts every later
+     * entry, so matrices with many nonzeros should be built from a
+     * dense matrix or from CSR arrays instead.
+     * @param row The row of the value to modify.
+     * @param column The column of the value to modify.
+     * @param value The value to set the specified index to.
+     * @throws InvalidMatrixIndex if the index is invalid
+     */
+    @Override
+    public void set(int row, int column, double value) throws InvalidMatrixIndex {
+        if (row > getRowCount() - 1 || column > getColumnCount() - 1) {
+            throw new InvalidMatrixIndex(this, row, column);
+        }
+        int position = position(row, column);
+        if (position >= 0) {
+            entries[position] = value;
+            return;
+        } else if (value == 0.0) {
+            return;
+        }
+        position = -position - 1;
+        int nonZeroCount = getNonZeroCount();
+        if (nonZeroCount == entries.length) {
+            int capacity = Math.max(4, nonZeroCount * 2);
+            columnIndices = Arrays.copyOf(columnIndices, capacity);
+            entries = Arrays.copyOf(entries, capacity);
+        }
+        System.arraycopy(columnIndices, position, columnIndices, position + 1, nonZeroCount - position);
+        System.arraycopy(entries, position, entries, position + 1, nonZeroCount - position);
+        columnIndices[position] = column;
+        entries[position] = value;
+        for (int r = row + 1; r < rowPointers.length; r += 1) {
+            rowPointers[r] += 1;
+        }
+    }
+
+    /**
+     * Adds the product of a sparse matrix and a dense matrix, in either
+     * order, to a destination array, visiting only the nonzero entries
+     * of the sparse matrix. The dense matrix and the destination are
+     * given as arrays with strides, so transposes are read in place.
+     * @param sparse The sparse operand.
+     * @param transposeSparse Whether the sparse operand is read as its transpose.
+     * @param sparseOnLeft Whether the product is op(sparse) * dense
+     *                     rather than dense * op(sparse).
+     * @param length The number of columns of the destination if the sparse
+     *               operand is on the left, or its rows otherwise.
+     * @param dense The entries of the dense operand (after any transpose).
+     * @param denseOffset The position of entry (0, 0) of the dense operand.
+     * @param denseRowStride The distance between rows of the dense operand.
+     * @param denseColumnStride The distance between columns of the dense operand.
+     * @param c The entries of the destination.
+     * @param cOffset The position of entry (0, 0) of the destination.
+     * @param cRowStride The distance between rows of the destination.
+     * @param cColumnStride The distance between columns of the destination.
+     */
+    static void multiplyAdd(SparseMatrix2D sparse, boolean transposeSparse, boolean sparseOnLeft, int length,
+            double[] dense, int denseOffset, int denseRowStride, int denseColumnStride,
+            double[] c, int cOffset, int cRowStride, int cColumnStride) {
+        /**
+         * Entry (row, col) of the sparse matrix joins line 'inner' of the
+         * dense operand to line 'outer' of the destination, where lines are
+         * rows if the sparse matrix is on the left and columns otherwise.
+         */
+        int denseLineStride = (sparseOnLeft ? denseRowStride : denseColumnStride);
+        int denseStep = (sparseOnLeft ? denseColumnStride : denseRowStride);
+        int cLineStride = (sparseOnLeft ? cRowStride : cColumnStride);
+        int cStep = (sparseOnLeft ? cColumnStride : cRowStride);
+        boolean outerIsRow = (sparseOnLeft != transposeSparse);
+
+        int[] rowPointers = sparse.rowPointers;
+        int[] columnIndices = sparse.columnIndices;
+        double[] entries = sparse.entries;
+        for (int row = 0; row < sparse.getRowCount(); row += 1) {
+            for (int position = rowPointers[row]; position < rowPointers[row + 1]; position += 1) {
+                int col = columnIndices[position];
+                double value = entries[position];
+                int outer = (outerIsRow ? row : col);
+                int inner = (outerIsRow ? col : row);
+                int denseIndex = denseOffset + inner * denseLineStride;
+                int cIndex = cOffset + outer * cLineStride;
+                for (int index = 0; index < length; index += 1) {
+                    c[cIndex] += value * dense[denseIndex];
+                    denseIndex += denseStep;
+                    cIndex += cStep;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the product of a sparse matrix and a dense matrix, in either
+     * order, to a destination matrix, reading and writing entries through
+     * get and set so that matrices stored off the heap are used in place.
+     * @param sparse The sparse operand.
+     * @param transposeSparse Whether the sparse operand is read as its transpose.
+     * @param sparseOnLeft Whether the product is op(sparse) * op(dense)
+     *                     rather than op(dense) * op(sparse).
+     * @param dense The dense operand.
+     * @param transposeDense Whether the dense operand is read as its transpose.
+     * @param c The destination.
+     */
+    static void multiplyAdd(SparseMatrix2D sparse, boolean transposeSparse, boolean sparseOnLeft,
+            Matrix2D dense, boolean transposeDense, Matrix2D c) {
+        boolean outerIsRow = (sparseOnLeft != transposeSparse);
+        int length = (sparseOnLeft ? c.getColumnCount() : c.getRowCount());
+        int[] rowPointers = sparse.rowPointers;
+        int[] columnIndices = sparse.columnIndices;
+        double[] entries = sparse.entries;
+        for (int row = 0; row < sparse.getRowCount(); row += 1) {
+            for (int position = rowPointers[row]; position < rowPointers[row + 1]; position += 1) {
+                int col = columnIndices[position];
+                double value = entries[position];
+                int outer = (outerIsRow ? row : col);
+                int inner = (outerIsRow ? col : row);
+                for (int index = 0; index < length; index += 1) {
+                    int denseRow = (sparseOnLeft ? inner : index);
+                    int denseColumn = (sparseOnLeft ? index : inner);
+                    int cRow = (sparseOnLeft ? outer : index);
+                    int cColumn = (sparseOnLeft ? index : outer);
+                    double denseValue = (transposeDense ? dense.get(denseColumn, denseRow) : dense.get(denseRow, denseColumn));
+                    c.set(cRow, cColumn, c.get(cRow, cColumn) + value * denseValue);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the state of the matrix as a readable String,
+     * listing its nonzero entries.
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder("\nSparse " + getDimensions() + " (" + getNonZeroCount() + " nonzero)\n");
+        for (int row = 0; row < getRowCount(); row += 1) {
+            for (int position = rowPointers[row]; position < rowPointers[row + 1]; position += 1) {
+                out.append("[").append(row).append(", ").append(columnIndices[position]).append("]  ")
+                    .append(entries[position]).append("\n");
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,316 @@
+package Neuranet;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Class that implements the element-wise kernels with the Vector
+ * API, using the widest vector shape preferred by the machine
+ * (e.g. 8 doubles with AVX-512). Each kernel processes whole
+ * vectors and finishes the remaining entries with scalar code.
+ *
+ * Only loaded by ElementwiseKernels, and only when the incubating
+ * jdk.incubator.vector module is available.
+ * @author Nolan Bridges
+ * @version 1.0.0
+ */
+final class VectorKernels extends ElementwiseKernels {
+    /** The widest vector shape preferred by the machine. */
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    String getName() {
+        return "vector (" + SPECIES.length() + " x double)";
+    }
+
+    @Override
+    void add(double[] a, int aOffset, double[] b, int bOffset, double[] out, int outOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOffset + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOffset + i);
+            va.add(vb).intoArray(out, outOffset + i);
+        }
+        for (; i < length; i += 1) {
+            out[outOffset + i] = a[aOffset + i] + b[bOffset + i];
+        }
+    }
+
+    @Override
+    void subtract(double[] a, int aOffset, double[] b, int bOffset, double[] out, int outOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOffset + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOffset + i);
+            va.sub(vb).intoArray(out, outOffset + i);
+        }
+        for (; i < length; i += 1) {
+            out[outOffset + i] = a[aOffset + i] - b[bOffset + i];
+        }
+    }
+
+    @Override
+    void multiply(double[] a, int aOffset, double[] b, int bOffset, double[] out, int outOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOffset + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOffset + i);
+            va.mul(vb).intoArray(out, outOffset + i);
+        }
+        for (; i < length; i += 1) {
+            out[outOffset + i] = a[aOffset + i] * b[bOffset + i];
+        }
+    }
+
+    @Override
+    void scaledAdd(double[] a, int aOffset, double factor, double[] b, int bOffset, double[] out, int outOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOffset + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOffset + i);
+            vb.mul(factor).add(va).intoArray(out, outOffset + i);
+        }
+        for (; i < length; i += 1) {
+            out[outOffset + i] = a[aOffset + i] + factor * b[bOffset + i];
+        }
+    }
+
+    @Override
+    void scale(double[] a, int aOffset, double factor, double[] out, int outOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOffset + i).mul(factor).intoArray(out, outOffset + i);
+        }
+        for (; i < length; i += 1) {
+            out[outOffset + i] = a[aOffset + i] * factor;
+        }
+    }
+
+    @Override
+    void divide(double[] a, int aOffset, double factor, double[] out, int outOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOffset + i).div(factor).intoArray(out, outOffset + i);
+        }
+        for (; i < length; i += 1) {
+            out[outOffset + i] = a[aOffset + i] / factor;
+        }
+    }
+
+    @Override
+    void square(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOffset + i);
+            va.mul(va).intoArray(out, outOffset + i);
+        }
+        for (; i < length; i += 1) {
+            double value = a[aOffset + i];
+            out[outOffset + i] = value * value;
+        }
+    }
+
+    @Override
+    void abs(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOffset + i).abs().intoArray(out, outOffset + i);
+        }
+        for (; i < length; i += 1) {
+            out[outOffset + i] = Math.abs(a[aOffset + i]);
+        }
+    }
+
+    @Override
+    double sum(double[] a, int aOffset, int length) {
+        int i = 0;
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            sums = sums.add(DoubleVector.fromArray(SPECIES, a, aOffset + i));
+        }
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i += 1) {
+            sum += a[aOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        int i = 0;
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector difference = DoubleVector.fromArray(SPECIES, a, aOffset + i).sub(DoubleVector.fromArray(SPECIES, b, bOffset + i));
+            sums = difference.fma(difference, sums);
+        }
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i += 1) {
+            double difference = a[aOffset + i] - b[bOffset + i];
+            sum += difference * difference;
+        }
+        return sum;
+    }
+
+    @Override
+    double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        int i = 0;
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            sums = DoubleVector.fromArray(SPECIES, a, aOffset + i).fma(DoubleVector.fromArray(SPECIES, b, bOffset + i), sums);
+        }
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i += 1) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    void sigmoid(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        int i = 0;
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector exp = DoubleVector.fromArray(SPECIES, a, aOffset + i).neg().lanewise(VectorOperators.EXP);
+            one.div(exp.add(1.0)).intoArray(out, outOffset + i);
+        }
+        for (; i < length; i += 1) {
+            out[outOffset + i] = 1.0 / (1.0 + Math.exp(-a[aOffset + i]));
+        }
+    }
+
+    /**
+     * The vector exponential is already a fast polynomial approximation,
+     * quicker than a table lookup, which would need gathers; so the
+     * exact kernel is used.
+     */
+    @Override
+    void fastSigmoid(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        sigmoid(a, aOffset, out, outOffset, length);
+    }
+
+    /** The exact kernel is used, as for fastSigmoid. */
+    @Override
+    void fastTanh(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        tanh(a, aOffset, out, outOffset, length);
+    }
+
+    @Override
+    void sigmoidOutputDerivative(double[] s, int sOffset, double[] out, int outOffset, int length) {
+        int i = 0;
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector sigmoid = DoubleVector.fromArray(SPECIES, s, sOffset + i);
+            sigmoid.mul(one.sub(sigmoid)).intoArray(out, outOffset + i);
+        }
+        for (; i < length; i += 1) {
+            double sigmoid = s[sOffset + i];
+            out[outOffset + i] = sigmoid * (1 - sigmoid);
+        }
+    }
+
+    @Override
+    void reLU(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOffset + i).max(0.0).intoArray(out, outOffset + i);
+        }
+        for (; i < length; i += 1) {
+            out[outOffset + i] = Math.max(0.0, a[aOffset + i]);
+        }
+    }
+
+    @Override
+    void reLUDerivative(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        int i = 0;
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            VectorMask<Double> positive = DoubleVector.fromArray(SPECIES, a, aOffset + i).compare(VectorOperators.GT, 0.0);
+            zero.blend(1.0, positive).intoArray(out, outOffset + i);
+        }
+        for (; i < length; i += 1) {
+            out[outOffset + i] = (a[aOffset + i] > 0 ? 1.0 : 0.0);
+        }
+    }
+
+    @Override
+    void tanh(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOffset + i).lanewise(VectorOperators.TANH).intoArray(out, outOffset + i);
+        }
+        for (; i < length; i += 1) {
+            out[outOffset + i] = Math.tanh(a[aOffset + i]);
+        }
+    }
+
+    @Override
+    void tanhOutputDerivative(double[] t, int tOffset, double[] out, int outOffset, int length) {
+        int i = 0;
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector tanh = DoubleVector.fromArray(SPECIES, t, tOffset + i);
+            one.sub(tanh.mul(tanh)).intoArray(out, outOffset + i);
+        }
+        for (; i < length; i += 1) {
+            double tanh = t[tOffset + i];
+            out[outOffset + i] = 1 - tanh * tanh;
+        }
+    }
+
+    @Override
+    void leakyReLU(double[] a, int aOffset, double slope, double[] out, int outOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOffset + i);
+            va.mul(slope).blend(va, va.compare(VectorOperators.GT, 0.0)).intoArray(out, outOffset + i);
+        }
+        for (; i < length; i += 1) {
+            double value = a[aOffset + i];
+            out[outOffset + i] = (value > 0 ? value : slope * value);
+        }
+    }
+
+    @Override
+    void leakyReLUDerivative(double[] a, int aOffset, double slope, double[] out, int outOffset, int length) {
+        int i = 0;
+        DoubleVector slopes = DoubleVector.broadcast(SPECIES, slope);
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            VectorMask<Double> positive = DoubleVector.fromArray(SPECIES, a, aOffset + i).compare(VectorOperators.GT, 0.0);
+            slopes.blend(1.0, positive).intoArray(out, outOffset + i);
+        }
+        for (; i < length; i += 1) {
+            out[outOffset + i] = (a[aOffset + i] > 0 ? 1.0 : slope);
+        }
+    }
+
+    @Override
+    void gelu(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOffset + i);
+            DoubleVector tanh = va.mul(va).mul(GELU_CUBIC).add(1.0).mul(va).mul(GELU_SCALE).lanewise(VectorOperators.TANH);
+            tanh.add(1.0).mul(va).mul(0.5).intoArray(out, outOffset + i);
+        }
+        if (i < length) {
+            super.gelu(a, aOffset + i, out, outOffset + i, length - i);
+        }
+    }
+
+    @Override
+    void geluDerivative(double[] a, int aOffset, double[] out, int outOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOffset + i);
+            DoubleVector square = va.mul(va);
+            DoubleVector tanh = square.mul(GELU_CUBIC).add(1.0).mul(va).mul(GELU_SCALE).lanewise(VectorOperators.TANH);
+            DoubleVector slope = square.mul(3 * GELU_CUBIC).add(1.0).mul(GELU_SCALE);
+            DoubleVector sech2 = tanh.mul(tanh).neg().add(1.0);
+            tanh.add(1.0).add(va.mul(sech2).mul(slope)).mul(0.5).intoArray(out, outOffset + i);
+        }
+        if (i < length) {
+            super.geluDerivative(a, aOffset + i, out, outOffset + i, length - i);
+        }
+    }
+}